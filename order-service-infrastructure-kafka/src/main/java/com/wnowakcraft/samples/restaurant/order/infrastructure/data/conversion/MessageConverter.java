@@ -2,7 +2,23 @@ package com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion;
 
 import com.google.protobuf.Message;
 
+import java.util.Optional;
+
 public interface MessageConverter<S, M extends Message> extends Converter<S, M> {
     S convert(M message, long offset);
     boolean canConvert(Message message);
+
+    /**
+     * @return the message class this converter converts from, provided it accepts exactly that class and nothing else
+     */
+    default Optional<Class<? extends Message>> getSupportedMessageType() {
+        return Optional.empty();
+    }
+
+    /**
+     * @return the source class this converter converts from, provided it accepts exactly that class and nothing else
+     */
+    default Optional<Class<?>> getSupportedSourceType() {
+        return Optional.empty();
+    }
 }
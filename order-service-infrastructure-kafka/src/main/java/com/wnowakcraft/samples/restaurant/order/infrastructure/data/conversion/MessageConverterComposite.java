@@ -3,39 +3,93 @@ package com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion;
 import com.google.protobuf.Message;
 
 import javax.inject.Inject;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
 import static java.lang.String.format;
 
+/**
+ * Dispatches conversions to the converter registered for the exact class of the object being converted. Converters not
+ * declaring their supported types are tried one by one, in the order of registration, but only when no converter is
+ * registered for the exact class.
+ */
 public class MessageConverterComposite<S> implements MessageConverter<S, Message> {
-    private Collection<MessageConverter<S, Message>> messageConverters;
+    private final Map<Class<?>, MessageConverter<S, Message>> convertersByMessageType;
+    private final Map<Class<?>, MessageConverter<S, Message>> convertersBySourceType;
+    private final Collection<MessageConverter<S, Message>> untypedMessageConverters;
+    private final Collection<MessageConverter<S, Message>> untypedSourceConverters;
 
     @Inject
     public MessageConverterComposite(Collection<MessageConverter<S, Message>> messageConverters) {
         requireNonNull(messageConverters, "messageConverters");
 
-        this.messageConverters = List.copyOf(messageConverters);
+        var converters = List.copyOf(messageConverters);
+        this.convertersByMessageType = convertersByType(converters, MessageConverter::getSupportedMessageType);
+        this.convertersBySourceType = convertersByType(converters, MessageConverter::getSupportedSourceType);
+        this.untypedMessageConverters = untypedConverters(converters, MessageConverter::getSupportedMessageType);
+        this.untypedSourceConverters = untypedConverters(converters, MessageConverter::getSupportedSourceType);
+    }
+
+    private static <S> Map<Class<?>, MessageConverter<S, Message>> convertersByType(
+            Collection<MessageConverter<S, Message>> converters,
+            Function<MessageConverter<S, Message>, Optional<? extends Class<?>>> supportedTypeOf) {
+
+        var convertersByType = new HashMap<Class<?>, MessageConverter<S, Message>>();
+        converters.forEach(converter ->
+                supportedTypeOf.apply(converter).ifPresent(type -> convertersByType.putIfAbsent(type, converter))
+        );
+        return Map.copyOf(convertersByType);
+    }
+
+    private static <S> Collection<MessageConverter<S, Message>> untypedConverters(
+            Collection<MessageConverter<S, Message>> converters,
+            Function<MessageConverter<S, Message>, Optional<? extends Class<?>>> supportedTypeOf) {
+
+        return converters.stream()
+                .filter(converter -> supportedTypeOf.apply(converter).isEmpty())
+                .collect(Collectors.toUnmodifiableList());
     }
 
     @Override
     public S convert(Message message, long offset) {
-        return messageConverters.stream()
-                .filter(dataConverter -> dataConverter.canConvert(message))
-                .findFirst().orElseThrow(unsupportedInputType(message))
+        return findMessageConverterFor(message)
+                .orElseThrow(unsupportedInputType(message))
                 .convert(message, offset);
     }
 
     @Override
     public Message convert(S source) {
-        return messageConverters.stream()
-                .filter(dataConverter -> dataConverter.canConvert(source))
-                .findFirst().orElseThrow(unsupportedInputType(source))
+        return findSourceConverterFor(source)
+                .orElseThrow(unsupportedInputType(source))
                 .convert(source);
     }
 
+    private Optional<MessageConverter<S, Message>> findMessageConverterFor(Message message) {
+        return findConverterFor(message, convertersByMessageType, untypedMessageConverters, converter -> converter.canConvert(message));
+    }
+
+    private Optional<MessageConverter<S, Message>> findSourceConverterFor(Object source) {
+        return findConverterFor(source, convertersBySourceType, untypedSourceConverters, converter -> converter.canConvert(source));
+    }
+
+    private static <S> Optional<MessageConverter<S, Message>> findConverterFor(
+            Object object,
+            Map<Class<?>, MessageConverter<S, Message>> convertersByType,
+            Collection<MessageConverter<S, Message>> untypedConverters,
+            Predicate<MessageConverter<S, Message>> canConvert) {
+
+        var converter = convertersByType.get(object.getClass());
+        if (converter != null) {
+            return Optional.of(converter);
+        }
+
+        return untypedConverters.stream().filter(canConvert).findFirst();
+    }
+
     private Supplier<IllegalArgumentException> unsupportedInputType(Object object) {
         return () ->
                 new IllegalArgumentException(
@@ -45,11 +99,11 @@ public class MessageConverterComposite<S> implements MessageConverter<S, Message
 
     @Override
     public boolean canConvert(Message messageCandidate) {
-        return messageConverters.stream().anyMatch(messageConverter -> messageConverter.canConvert(messageCandidate));
+        return findMessageConverterFor(messageCandidate).isPresent();
     }
 
     @Override
     public boolean canConvert(Object sourceCandidate) {
-        return messageConverters.stream().anyMatch(dataConverter -> dataConverter.canConvert(sourceCandidate));
+        return findSourceConverterFor(sourceCandidate).isPresent();
     }
 }
@@ -8,6 +8,7 @@ import com.wnowakcraft.samples.restaurant.order.domain.model.OrderApprovedEvent;
 import com.wnowakcraft.samples.restaurant.order.infrastructure.data.message.OrderApprovedEventMessage;
 
 import java.time.Instant;
+import java.util.Optional;
 
 @ConcreteDataConverter
 //@RequiredArgsConstructor(onConstructor_ = { @Inject})
@@ -46,4 +47,14 @@ public class OrderApprovedEventMessageConverter implements MessageConverter<Orde
     public boolean canConvert(Object eventCandidate) {
         return OrderApprovedEvent.class == eventCandidate.getClass();
     }
+
+    @Override
+    public Optional<Class<? extends Message>> getSupportedMessageType() {
+        return Optional.of(OrderApprovedEventMessage.class);
+    }
+
+    @Override
+    public Optional<Class<?>> getSupportedSourceType() {
+        return Optional.of(OrderApprovedEvent.class);
+    }
 }
@@ -10,6 +10,7 @@ import com.wnowakcraft.samples.restaurant.order.domain.model.RestaurantId;
 import com.wnowakcraft.samples.restaurant.order.infrastructure.data.message.OrderCreatedEventMessage;
 
 import java.time.Instant;
+import java.util.Optional;
 
 import static com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion.OrderItemConverter.messageOrderItemsOf;
 import static com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion.OrderItemConverter.orderItemsOf;
@@ -56,4 +57,14 @@ public class OrderCreatedEventMessageConverter implements MessageConverter<Order
     public boolean canConvert(Object eventCandidate) {
         return OrderCreatedEvent.class == eventCandidate.getClass();
     }
+
+    @Override
+    public Optional<Class<? extends Message>> getSupportedMessageType() {
+        return Optional.of(OrderCreatedEventMessage.class);
+    }
+
+    @Override
+    public Optional<Class<?>> getSupportedSourceType() {
+        return Optional.of(OrderCreatedEvent.class);
+    }
 }
@@ -9,6 +9,7 @@ import com.wnowakcraft.samples.restaurant.order.domain.model.RestaurantId;
 import com.wnowakcraft.samples.restaurant.order.infrastructure.data.message.OrderSnapshotMessage;
 
 import java.time.Instant;
+import java.util.Optional;
 
 import static com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion.OrderItemConverter.messageOrderItemsOf;
 import static com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion.OrderItemConverter.orderItemsOf;
@@ -52,4 +53,14 @@ public class OrderSnapshotMessageConverter implements MessageConverter<OrderSnap
     public boolean canConvert(Object snapshotCandidate) {
         return OrderSnapshot.class == snapshotCandidate.getClass();
     }
+
+    @Override
+    public Optional<Class<? extends Message>> getSupportedMessageType() {
+        return Optional.of(OrderSnapshotMessage.class);
+    }
+
+    @Override
+    public Optional<Class<?>> getSupportedSourceType() {
+        return Optional.of(OrderSnapshot.class);
+    }
 }
@@ -0,0 +1,206 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard;
+
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.store.GroupCommitQueue;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.store.KafkaConsumerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.inject.Alternative;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.Collectors;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+/**
+ * {@link ShardMetadataProvider} looking offsets up with a single long-lived consumer instead of one consumer per lookup.
+ * Lookups made at about the same time are collected into batches, and the offsets of all shards of a batch are asked
+ * for in one request, so checking the offsets of thousands of shards takes a handful of requests. When such a request
+ * fails, the shards of the batch are looked up one by one, so only the lookups of the shards at fault fail.
+ * <p>
+ * The consumer is used by the single thread handling the batches only.
+ */
+@Slf4j
+@Alternative
+public class BatchingShardMetadataProvider implements ShardMetadataProvider {
+    private final KafkaConsumerFactory consumerFactory;
+    private final int maxBatchSize;
+    private final Duration maxWait;
+    private Consumer<String, Object> consumer;
+    private GroupCommitQueue<OffsetLookup> lookupQueue;
+
+    @Inject
+    public BatchingShardMetadataProvider(
+            KafkaConsumerFactory consumerFactory,
+            @ConfigProperty(name = "service.infrastructure.kafka.metadataBatch.maxBatchSize", defaultValue = "1000")
+                    int maxBatchSize,
+            @ConfigProperty(name = "service.infrastructure.kafka.metadataBatch.maxWaitMillis", defaultValue = "1")
+                    long maxWaitMillis) {
+        requireThat(maxBatchSize > 0, "maxBatchSize needs to be positive");
+        requireThat(maxWaitMillis >= 0, "maxWaitMillis cannot be negative");
+
+        this.consumerFactory = requireNonNull(consumerFactory, "consumerFactory");
+        this.maxBatchSize = maxBatchSize;
+        this.maxWait = Duration.ofMillis(maxWaitMillis);
+    }
+
+    @PostConstruct
+    public void startLookups() {
+        consumer = consumerFactory.createConsumer();
+        lookupQueue = new GroupCommitQueue<>("kafka-shard-metadata", maxBatchSize, maxWait, this::lookOffsetsUp, OffsetLookup::fail);
+    }
+
+    @PreDestroy
+    public void stopLookups() {
+        if (lookupQueue != null) {
+            lookupQueue.close();
+        }
+        if (consumer != null) {
+            consumer.close();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastRecordOffsetForShard(ShardRef shardRef) {
+        return submit(new OffsetLookup(shardRef, LookupKind.LAST_RECORD, 0));
+    }
+
+    @Override
+    public CompletableFuture<Map<ShardRef, Long>> getLastRecordOffsetsForShards(Collection<ShardRef> shardRefs) {
+        requireNonNull(shardRefs, "shardRefs");
+
+        var lookups = shardRefs.stream()
+                .distinct()
+                .map(shardRef -> new OffsetLookup(shardRef, LookupKind.LAST_RECORD, 0))
+                .collect(Collectors.toUnmodifiableList());
+        lookups.forEach(this::submit);
+
+        return CompletableFuture.allOf(lookups.stream().map(lookup -> lookup.offset).toArray(CompletableFuture[]::new))
+                .thenApply(allLookedUp -> lookups.stream().collect(Collectors.toUnmodifiableMap(lookup -> lookup.shardRef, lookup -> lookup.offset.join())));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLatestOffsetFor(ShardRef shardRef, Instant beforeGivenPointInTime) {
+        requireNonNull(beforeGivenPointInTime, "beforeGivenPointInTime");
+
+        return submit(new OffsetLookup(shardRef, LookupKind.LATEST_BEFORE, beforeGivenPointInTime.getEpochSecond()));
+    }
+
+    @Override
+    public CompletableFuture<Long> getFirstOffsetFor(ShardRef shardRef, Instant afterOrEqualGivenPointInTime) {
+        requireNonNull(afterOrEqualGivenPointInTime, "afterOrEqualGivenPointInTime");
+
+        return submit(new OffsetLookup(shardRef, LookupKind.FIRST_AFTER_OR_EQUAL, afterOrEqualGivenPointInTime.getEpochSecond()));
+    }
+
+    private CompletableFuture<Long> submit(OffsetLookup offsetLookup) {
+        requireNonNull(offsetLookup.shardRef, "shardRef");
+
+        lookupQueue.submit(offsetLookup);
+        return offsetLookup.offset;
+    }
+
+    private void lookOffsetsUp(List<OffsetLookup> offsetLookups) {
+        var lookupsByTimestamp = offsetLookups.stream()
+                .filter(offsetLookup -> offsetLookup.kind != LookupKind.LAST_RECORD)
+                .collect(Collectors.groupingBy(offsetLookup -> offsetLookup.timestamp));
+        var lastRecordLookups = offsetLookups.stream()
+                .filter(offsetLookup -> offsetLookup.kind == LookupKind.LAST_RECORD)
+                .collect(Collectors.toUnmodifiableList());
+
+        if (!lastRecordLookups.isEmpty()) {
+            completeLookups(lastRecordLookups, partitions -> consumer.endOffsets(partitions));
+        }
+        lookupsByTimestamp.forEach((timestamp, timestampLookups) -> completeLookups(timestampLookups, partitions ->
+                offsetsOf(consumer.offsetsForTimes(partitions.stream().collect(Collectors.toMap(partition -> partition, partition -> timestamp))))
+        ));
+    }
+
+    private void completeLookups(List<OffsetLookup> offsetLookups,
+                                 Function<Set<TopicPartition>, Map<TopicPartition, Long>> offsetsQuery) {
+        var partitions = offsetLookups.stream()
+                .map(offsetLookup -> KafkaPartition.of(offsetLookup.shardRef))
+                .collect(Collectors.toUnmodifiableSet());
+
+        try {
+            var offsets = offsetsQuery.apply(partitions);
+            offsetLookups.forEach(offsetLookup -> offsetLookup.complete(offsets.get(KafkaPartition.of(offsetLookup.shardRef))));
+        } catch (RuntimeException ex) {
+            if (partitions.size() == 1) {
+                log.warn("Couldn't obtain offsets for topic: {}, shardId: {}. Reason: {}",
+                        offsetLookups.get(0).shardRef.topicName, offsetLookups.get(0).shardRef.shardId, ex.getMessage(), ex);
+                offsetLookups.forEach(offsetLookup -> offsetLookup.completeNotFound(ex));
+                return;
+            }
+
+            log.warn("Couldn't obtain offsets for {} shards at once, looking them up one by one. Reason: {}", partitions.size(), ex.getMessage());
+            offsetLookups.stream()
+                    .collect(Collectors.groupingBy(offsetLookup -> KafkaPartition.of(offsetLookup.shardRef)))
+                    .values()
+                    .forEach(partitionLookups -> completeLookups(partitionLookups, offsetsQuery));
+        }
+    }
+
+    private static Map<TopicPartition, Long> offsetsOf(Map<TopicPartition, OffsetAndTimestamp> offsetsAndTimestamps) {
+        var offsets = new HashMap<TopicPartition, Long>();
+        offsetsAndTimestamps.forEach((partition, offsetAndTimestamp) -> {
+            if (offsetAndTimestamp != null) {
+                offsets.put(partition, offsetAndTimestamp.offset());
+            }
+        });
+        return offsets;
+    }
+
+    @RequiredArgsConstructor
+    private enum LookupKind {
+        LAST_RECORD(offset -> offset - 1),
+        LATEST_BEFORE(offset -> offset - 1), //minus one as Kafka returns first record at or after given point in time, we need last one before then
+        FIRST_AFTER_OR_EQUAL(offset -> offset);
+
+        private final LongUnaryOperator offsetAdjustment;
+    }
+
+    @RequiredArgsConstructor
+    private static class OffsetLookup {
+        private final ShardRef shardRef;
+        private final LookupKind kind;
+        private final long timestamp;
+        private final CompletableFuture<Long> offset = new CompletableFuture<>();
+
+        private void complete(Long foundOffset) {
+            if (foundOffset == null) {
+                completeNotFound(new IllegalStateException("End offset of the shard hasn't been returned"));
+            } else {
+                offset.complete(kind.offsetAdjustment.applyAsLong(foundOffset));
+            }
+        }
+
+        /**
+         * Last record lookups fail, as {@link #SHARD_OFFSET_UNKNOWN} stands for an empty shard there.
+         */
+        private void completeNotFound(RuntimeException reason) {
+            if (kind == LookupKind.LAST_RECORD) {
+                offset.completeExceptionally(reason);
+            } else {
+                offset.complete(SHARD_OFFSET_UNKNOWN);
+            }
+        }
+
+        private void fail(Throwable exception) {
+            offset.completeExceptionally(exception);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import lombok.Value;
+
+import javax.enterprise.inject.Alternative;
+import javax.inject.Inject;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+
+/**
+ * {@link ShardMetadataProvider} remembering the offsets looked up by {@link KafkaShardMetadataProvider}, so that not
+ * every append and snapshot lookup opens a consumer to run a single metadata query. Concurrent lookups of the same
+ * offset share a single query, and offsets which couldn't be found out aren't remembered.
+ * <p>
+ * Last record offsets are remembered for a short while and moved forward by the appends acknowledged to this service,
+ * hence records appended by anyone else are noticed no later than when the remembered offset expires. Offsets for a
+ * point in time are remembered per shard and second, which is the precision they are looked up with anyway.
+ */
+@Alternative
+public class CachingShardMetadataProvider implements ShardMetadataProvider {
+    private final ShardMetadataProvider shardMetadataProvider;
+    private final Cache<ShardRef, CompletableFuture<Long>> lastRecordOffsets;
+    private final Cache<TimeOffsetKey, CompletableFuture<Long>> timeOffsets;
+
+    @Inject
+    public CachingShardMetadataProvider(KafkaShardMetadataProvider shardMetadataProvider, ShardMetadataCacheConfig cacheConfig) {
+        this.shardMetadataProvider = requireNonNull(shardMetadataProvider, "shardMetadataProvider");
+        requireNonNull(cacheConfig, "cacheConfig");
+
+        this.lastRecordOffsets = CacheBuilder.newBuilder().expireAfterWrite(cacheConfig.getLastRecordOffsetTtl()).build();
+        this.timeOffsets = CacheBuilder.newBuilder()
+                .expireAfterWrite(cacheConfig.getTimeOffsetTtl())
+                .maximumSize(cacheConfig.getMaxCachedTimeOffsets())
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastRecordOffsetForShard(ShardRef shardRef) {
+        requireNonNull(shardRef, "shardRef");
+
+        return getCached(lastRecordOffsets, shardRef, shardMetadataProvider::getLastRecordOffsetForShard);
+    }
+
+    @Override
+    public CompletableFuture<Long> getLatestOffsetFor(ShardRef shardRef, Instant beforeGivenPointInTime) {
+        requireNonNull(shardRef, "shardRef");
+        requireNonNull(beforeGivenPointInTime, "beforeGivenPointInTime");
+
+        return getCached(
+                timeOffsets, new TimeOffsetKey(shardRef, TimeOffsetKind.LATEST_BEFORE, beforeGivenPointInTime.getEpochSecond()),
+                key -> shardMetadataProvider.getLatestOffsetFor(shardRef, beforeGivenPointInTime)
+        );
+    }
+
+    @Override
+    public CompletableFuture<Long> getFirstOffsetFor(ShardRef shardRef, Instant afterOrEqualGivenPointInTime) {
+        requireNonNull(shardRef, "shardRef");
+        requireNonNull(afterOrEqualGivenPointInTime, "afterOrEqualGivenPointInTime");
+
+        return getCached(
+                timeOffsets, new TimeOffsetKey(shardRef, TimeOffsetKind.FIRST_AFTER_OR_EQUAL, afterOrEqualGivenPointInTime.getEpochSecond()),
+                key -> shardMetadataProvider.getFirstOffsetFor(shardRef, afterOrEqualGivenPointInTime)
+        );
+    }
+
+    private static <K> CompletableFuture<Long> getCached(Cache<K, CompletableFuture<Long>> cache, K key,
+                                                         Function<K, CompletableFuture<Long>> offsetLookup) {
+        var cachedOffset = cache.asMap().computeIfAbsent(key, offsetLookup);
+
+        cachedOffset.whenComplete((offset, error) -> {
+            if (error != null || offset == SHARD_OFFSET_UNKNOWN) {
+                cache.asMap().remove(key, cachedOffset);
+            }
+        });
+
+        return cachedOffset.copy();
+    }
+
+    @Override
+    public void recordAppended(ShardRef shardRef, long offset) {
+        requireNonNull(shardRef, "shardRef");
+
+        lastRecordOffsets.asMap().merge(shardRef, CompletableFuture.completedFuture(offset), (cachedOffset, appendedOffset) ->
+                cachedOffset.handle((lastRecordOffset, error) -> error == null ? Math.max(lastRecordOffset, offset) : offset)
+        );
+    }
+
+    @Override
+    public void invalidate(ShardRef shardRef) {
+        requireNonNull(shardRef, "shardRef");
+
+        lastRecordOffsets.invalidate(shardRef);
+    }
+
+    private enum TimeOffsetKind {
+        LATEST_BEFORE,
+        FIRST_AFTER_OR_EQUAL
+    }
+
+    @Value
+    private static class TimeOffsetKey {
+        private final ShardRef shardRef;
+        private final TimeOffsetKind kind;
+        private final long epochSecond;
+    }
+}
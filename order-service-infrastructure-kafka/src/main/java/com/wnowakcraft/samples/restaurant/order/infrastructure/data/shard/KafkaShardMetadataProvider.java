@@ -27,7 +27,11 @@ public class KafkaShardMetadataProvider implements ShardMetadataProvider {
                         shardRef,
                         this::getCurrentOffsetForConsumer
                 )
-                .handle((offset, error) -> handleOffsetResult(offset, error, shardRef));
+                .whenComplete((offset, error) -> {
+                    if(error != null) {
+                        logFailedLookupOf(shardRef, error);
+                    }
+                });
     }
 
 
@@ -36,7 +40,7 @@ public class KafkaShardMetadataProvider implements ShardMetadataProvider {
                 .filter(Objects::nonNull)
                 .findFirst()
                 .map(offset -> offset - 1)
-                .orElse(SHARD_OFFSET_UNKNOWN);
+                .orElseThrow(() -> new IllegalStateException("End offset of the shard hasn't been returned"));
     }
 
     private long handleOffsetResult(long offset, Throwable error, ShardRef shardRef) {
@@ -44,12 +48,16 @@ public class KafkaShardMetadataProvider implements ShardMetadataProvider {
             return offset;
         }
 
-        log.warn("Couldn't obtain an offset for a topic: {}, shardId: {}. Reason: {}",
-                shardRef.topicName, shardRef.shardId, error.getMessage(), error);
+        logFailedLookupOf(shardRef, error);
 
         return SHARD_OFFSET_UNKNOWN;
     }
 
+    private static void logFailedLookupOf(ShardRef shardRef, Throwable error) {
+        log.warn("Couldn't obtain an offset for a topic: {}, shardId: {}. Reason: {}",
+                shardRef.topicName, shardRef.shardId, error.getMessage(), error);
+    }
+
     @Override
     public CompletableFuture<Long> getLatestOffsetFor(ShardRef shardRef, Instant beforeGivenPointInTime) {
         return kafkaConsumerFactory
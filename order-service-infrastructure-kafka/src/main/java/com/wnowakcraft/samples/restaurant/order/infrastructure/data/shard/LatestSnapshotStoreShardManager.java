@@ -0,0 +1,34 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard;
+
+import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardingStrategy;
+import lombok.RequiredArgsConstructor;
+
+import javax.inject.Inject;
+
+import static com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardingStrategy.ShardingType.LATEST_SNAPSHOT_STORE;
+
+/**
+ * Shards latest snapshots of all aggregates of the same kind over a fixed number of partitions of a single topic. The
+ * topic is expected to be log-compacted, records are keyed by aggregate id.
+ */
+@ShardingStrategy(LATEST_SNAPSHOT_STORE)
+@RequiredArgsConstructor(onConstructor_ = { @Inject})
+public class LatestSnapshotStoreShardManager implements ShardManager {
+    private static final short MAX_PARTITION_NUMBER = 10;
+    private static final String LATEST_SNAPSHOT_SUFFIX = "-LATEST-SNAPSHOT";
+
+    @Override
+    public ShardRef getShardForBusinessIdOf(Aggregate.Id aggregateId) {
+        return new ShardRef(getTopicNameFor(aggregateId), calculateShardNumberFor(aggregateId));
+    }
+
+    private String getTopicNameFor(Aggregate.Id aggregateId)
+    {
+        return aggregateId.domainName + "-" + aggregateId.domainObjectName + LATEST_SNAPSHOT_SUFFIX;
+    }
+
+    private short calculateShardNumberFor(Aggregate.Id aggregateId) {
+        return (short)(Math.floorMod(aggregateId.hashCode(), MAX_PARTITION_NUMBER));
+    }
+}
@@ -1,8 +1,10 @@
 package com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard;
 
 import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate;
+import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.ToString;
 
 import javax.inject.Qualifier;
 import java.lang.annotation.Retention;
@@ -14,6 +16,8 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 public interface ShardManager {
     ShardRef getShardForBusinessIdOf(Aggregate.Id aggregateId);
 
+    @ToString
+    @EqualsAndHashCode
     @RequiredArgsConstructor
     class ShardRef {
         @NonNull public final String topicName;
@@ -30,6 +34,7 @@ public interface ShardManager {
             ANY,
             EVENT_STORE,
             SNAPSHOT_STORE,
+            LATEST_SNAPSHOT_STORE,
             EVENT_PUBLISHING
         }
     }
@@ -0,0 +1,33 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard;
+
+import lombok.Value;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.inject.Inject;
+import java.time.Duration;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+@Value
+public class ShardMetadataCacheConfig {
+    private final Duration lastRecordOffsetTtl;
+    private final Duration timeOffsetTtl;
+    private final long maxCachedTimeOffsets;
+
+    @Inject
+    public ShardMetadataCacheConfig(
+            @ConfigProperty(name = "service.infrastructure.kafka.metadataCache.lastRecordOffsetTtlMillis", defaultValue = "100")
+                    long lastRecordOffsetTtlMillis,
+            @ConfigProperty(name = "service.infrastructure.kafka.metadataCache.timeOffsetTtlMillis", defaultValue = "60000")
+                    long timeOffsetTtlMillis,
+            @ConfigProperty(name = "service.infrastructure.kafka.metadataCache.maxCachedTimeOffsets", defaultValue = "10000")
+                    long maxCachedTimeOffsets) {
+        requireThat(lastRecordOffsetTtlMillis > 0, "lastRecordOffsetTtlMillis needs to be positive");
+        requireThat(timeOffsetTtlMillis > 0, "timeOffsetTtlMillis needs to be positive");
+        requireThat(maxCachedTimeOffsets >= 0, "maxCachedTimeOffsets cannot be negative");
+
+        this.lastRecordOffsetTtl = Duration.ofMillis(lastRecordOffsetTtlMillis);
+        this.timeOffsetTtl = Duration.ofMillis(timeOffsetTtlMillis);
+        this.maxCachedTimeOffsets = maxCachedTimeOffsets;
+    }
+}
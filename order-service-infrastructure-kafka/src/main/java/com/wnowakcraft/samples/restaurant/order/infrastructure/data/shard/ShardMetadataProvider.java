@@ -3,15 +3,47 @@ package com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard;
 import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
 public interface ShardMetadataProvider {
     long SHARD_OFFSET_UNKNOWN = -1;
+
+    /**
+     * Completes with {@link #SHARD_OFFSET_UNKNOWN} when the shard is empty, and exceptionally when its offset couldn't be
+     * looked up.
+     */
     CompletableFuture<Long> getLastRecordOffsetForShard(ShardManager.ShardRef shardRef);
     CompletableFuture<Long> getLatestOffsetFor(ShardManager.ShardRef shardRef, Instant beforeGivenPointInTime);
     CompletableFuture<Long> getFirstOffsetFor(ShardManager.ShardRef shardRef, Instant afterOrEqualGivenPointInTime);
 
+    /**
+     * Looks the last record offsets of many shards up at once. Shards are looked up one by one by default.
+     */
+    default CompletableFuture<Map<ShardManager.ShardRef, Long>> getLastRecordOffsetsForShards(Collection<ShardManager.ShardRef> shardRefs) {
+        var lastRecordOffsets = new ConcurrentHashMap<ShardManager.ShardRef, Long>();
+        var lookups = shardRefs.stream()
+                .map(shardRef -> getLastRecordOffsetForShard(shardRef).thenAccept(offset -> lastRecordOffsets.put(shardRef, offset)))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(lookups).thenApply(allLookedUp -> Map.copyOf(lastRecordOffsets));
+    }
+
+    /**
+     * Lets the provider know a record appended to the shard was acknowledged at the given offset.
+     */
+    default void recordAppended(ShardManager.ShardRef shardRef, long offset) {
+    }
+
+    /**
+     * Lets the provider know what it knows about the offsets of the shard may be out of date.
+     */
+    default void invalidate(ShardManager.ShardRef shardRef) {
+    }
+
     static long offsetOf(CompletableFuture<Long> currentOffsetFuture, long defaultOffset) {
         var offset = defaultOffset;
 
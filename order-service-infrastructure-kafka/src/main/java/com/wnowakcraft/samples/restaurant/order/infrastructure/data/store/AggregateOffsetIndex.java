@@ -0,0 +1,27 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+
+/**
+ * Tells where in a shard the records of a given aggregate start, so reading an aggregate from a shard shared by many
+ * aggregates doesn't need to go through the whole shard from its very beginning.
+ */
+public interface AggregateOffsetIndex {
+    AggregateOffsetIndex NONE = new AggregateOffsetIndex() {
+        @Override
+        public long getReadStartOffsetFor(ShardRef shardRef, String aggregateId) {
+            return 0;
+        }
+
+        @Override
+        public void recordAppended(ShardRef shardRef, String aggregateId, long offset) {
+        }
+    };
+
+    /**
+     * @return the offset no record of the given aggregate precedes in the given shard
+     */
+    long getReadStartOffsetFor(ShardRef shardRef, String aggregateId);
+
+    void recordAppended(ShardRef shardRef, String aggregateId, long offset);
+}
@@ -0,0 +1,54 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import lombok.Value;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.inject.Inject;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonEmpty;
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+@Value
+public class AggregateOffsetIndexConfig {
+    private final boolean enabled;
+    private final Path indexFile;
+    private final Duration scanInterval;
+    private final Duration persistInterval;
+    private final long maxIndexedShards;
+    private final Duration indexedShardIdleTimeout;
+    private final int maxShardsScannedPerCycle;
+
+    @Inject
+    public AggregateOffsetIndexConfig(
+            @ConfigProperty(name = "service.infrastructure.kafka.offsetIndex.enabled", defaultValue = "true")
+                    boolean enabled,
+            @ConfigProperty(name = "service.infrastructure.kafka.offsetIndex.file", defaultValue = "kafka-aggregate-offset-index.bin")
+                    String indexFile,
+            @ConfigProperty(name = "service.infrastructure.kafka.offsetIndex.scanIntervalMillis", defaultValue = "5000")
+                    long scanIntervalMillis,
+            @ConfigProperty(name = "service.infrastructure.kafka.offsetIndex.persistIntervalMillis", defaultValue = "30000")
+                    long persistIntervalMillis,
+            @ConfigProperty(name = "service.infrastructure.kafka.offsetIndex.maxIndexedShards", defaultValue = "10000")
+                    long maxIndexedShards,
+            @ConfigProperty(name = "service.infrastructure.kafka.offsetIndex.indexedShardIdleTimeoutMillis", defaultValue = "3600000")
+                    long indexedShardIdleTimeoutMillis,
+            @ConfigProperty(name = "service.infrastructure.kafka.offsetIndex.maxShardsScannedPerCycle", defaultValue = "100")
+                    int maxShardsScannedPerCycle) {
+        requireNonEmpty(indexFile, "indexFile");
+        requireThat(scanIntervalMillis > 0, "scanIntervalMillis needs to be positive");
+        requireThat(persistIntervalMillis > 0, "persistIntervalMillis needs to be positive");
+        requireThat(maxIndexedShards >= 0, "maxIndexedShards cannot be negative");
+        requireThat(indexedShardIdleTimeoutMillis > 0, "indexedShardIdleTimeoutMillis needs to be positive");
+        requireThat(maxShardsScannedPerCycle > 0, "maxShardsScannedPerCycle needs to be positive");
+
+        this.enabled = enabled;
+        this.indexFile = Path.of(indexFile);
+        this.scanInterval = Duration.ofMillis(scanIntervalMillis);
+        this.persistInterval = Duration.ofMillis(persistIntervalMillis);
+        this.maxIndexedShards = maxIndexedShards;
+        this.indexedShardIdleTimeout = Duration.ofMillis(indexedShardIdleTimeoutMillis);
+        this.maxShardsScannedPerCycle = maxShardsScannedPerCycle;
+    }
+}
@@ -0,0 +1,144 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static com.wnowakcraft.preconditions.Preconditions.requireStateThat;
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Collects items submitted by many threads and hands them over to the batch handler in groups. A batch is handed over
+ * once it reaches the max batch size, or once the max wait elapses since its first item was taken from the queue.
+ * <p>
+ * Batches are handled one at a time by a single flusher thread, so items submitted while a batch is being handled
+ * simply join the next one - the busier the queue, the larger the batches rather than the more of them. The batch
+ * handler is expected to deal with its own failures - anything it throws is handed to the item failure handler along
+ * with every item of the batch. Items which are never going to be handed over, as the flusher got interrupted, are
+ * handed to the item failure handler as well, so no submitter is left waiting for them.
+ */
+@Slf4j
+public class GroupCommitQueue<T> implements AutoCloseable {
+    private static final long IDLE_CHECK_INTERVAL_MILLIS = 100;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Consumer<List<T>> batchHandler;
+    private final BiConsumer<T, RuntimeException> itemFailureHandler;
+    private final BlockingQueue<T> pendingItems = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    public GroupCommitQueue(String name, int maxBatchSize, Duration maxWait,
+                            Consumer<List<T>> batchHandler, BiConsumer<T, RuntimeException> itemFailureHandler) {
+        requireNonNull(name, "name");
+        requireThat(maxBatchSize > 0, "maxBatchSize needs to be positive");
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = requireNonNull(maxWait, "maxWait").toNanos();
+        this.batchHandler = requireNonNull(batchHandler, "batchHandler");
+        this.itemFailureHandler = requireNonNull(itemFailureHandler, "itemFailureHandler");
+
+        this.flusher = new Thread(this::flushContinuously, name + "-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public synchronized void submit(T item) {
+        requireNonNull(item, "item");
+        requireStateThat(!closed, "The group commit queue has already been closed");
+
+        pendingItems.add(item);
+    }
+
+    private void flushContinuously() {
+        var batch = new ArrayList<T>(maxBatchSize);
+
+        try {
+            while (!closed || !pendingItems.isEmpty()) {
+                var firstItem = pendingItems.poll(IDLE_CHECK_INTERVAL_MILLIS, MILLISECONDS);
+                if (firstItem != null) {
+                    batch.add(firstItem);
+                    collectBatch(batch);
+                    handle(batch);
+                    batch = new ArrayList<>(maxBatchSize);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failItemsLeftBehind(batch);
+        }
+    }
+
+    private void failItemsLeftBehind(List<T> collectedItems) {
+        synchronized (this) {
+            closed = true;
+        }
+        pendingItems.drainTo(collectedItems);
+
+        log.warn("Group commit flusher interrupted, {} pending items won't be handed over", collectedItems.size());
+        failAll(collectedItems, new IllegalStateException("The group commit queue was interrupted before the item was handed over"));
+    }
+
+    private void collectBatch(List<T> batch) throws InterruptedException {
+        var deadline = System.nanoTime() + maxWaitNanos;
+
+        while (batch.size() < maxBatchSize) {
+            pendingItems.drainTo(batch, maxBatchSize - batch.size());
+            var remainingWaitNanos = deadline - System.nanoTime();
+
+            if (batch.size() == maxBatchSize || remainingWaitNanos <= 0 || closed) {
+                break;
+            }
+
+            var nextItem = pendingItems.poll(Math.min(remainingWaitNanos, MILLISECONDS.toNanos(IDLE_CHECK_INTERVAL_MILLIS)), NANOSECONDS);
+            if (nextItem != null) {
+                batch.add(nextItem);
+            }
+        }
+    }
+
+    private void handle(List<T> batch) {
+        try {
+            batchHandler.accept(batch);
+        } catch (RuntimeException ex) {
+            log.error("Handling a group commit batch of {} items failed. Reason: {}", batch.size(), ex.getMessage(), ex);
+            failAll(batch, ex);
+        }
+    }
+
+    private void failAll(List<T> items, RuntimeException failure) {
+        for (var item : items) {
+            try {
+                itemFailureHandler.accept(item, failure);
+            } catch (RuntimeException ex) {
+                log.error("Handling a failure of a group commit item failed. Reason: {}", ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting new items and waits for the items submitted so far to be handed over. Once the waiting gets
+     * interrupted, the flusher is interrupted as well, failing the items it hasn't handed over yet.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException ex) {
+            flusher.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
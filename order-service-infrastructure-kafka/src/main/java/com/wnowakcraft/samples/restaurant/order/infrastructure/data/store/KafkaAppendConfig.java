@@ -0,0 +1,32 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import lombok.Value;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.inject.Inject;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+
+@Value
+public class KafkaAppendConfig {
+    private final ConcurrencyCheck concurrencyCheck;
+
+    @Inject
+    public KafkaAppendConfig(
+            @ConfigProperty(name = "service.infrastructure.kafka.append.concurrencyCheck", defaultValue = "BROKER_LOOKUP")
+                    ConcurrencyCheck concurrencyCheck) {
+        this.concurrencyCheck = requireNonNull(concurrencyCheck, "concurrencyCheck");
+    }
+
+    public enum ConcurrencyCheck {
+        /**
+         * Every append is preceded by reading the shard's end offset from the broker.
+         */
+        BROKER_LOOKUP,
+        /**
+         * Appends are checked against the offsets tracked by {@link ShardOffsetTable}. Requires all appends to a shard
+         * to be routed to a single instance of the service.
+         */
+        LAST_KNOWN_OFFSET
+    }
+}
@@ -0,0 +1,261 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.google.protobuf.Message;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Event;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Snapshot;
+import com.wnowakcraft.samples.restaurant.core.domain.model.SnapshotRepository;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion.MessageConverter;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.KafkaPartition;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * {@link SnapshotRepository} keeping the latest snapshot of every aggregate in a log-compacted topic keyed by aggregate
+ * id, next to the full history of snapshots kept by the underlying repository. Shards of the compacted topic are read
+ * into memory from their beginning and then tailed by a background consumer, so once a shard is caught up the latest
+ * snapshots of its aggregates are looked up in memory.
+ * <p>
+ * A shard is read for the first time when the latest snapshot of any of its aggregates is asked for. Until the shard is
+ * caught up, and for all other lookups, the underlying repository is asked instead. The memory needed grows with the
+ * number of aggregates living in the shards read so far.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class KafkaCompactedSnapshotRepository<S extends Snapshot<? extends Snapshot.Id, AID>, AID extends Aggregate.Id>
+        implements SnapshotRepository<S, AID> {
+    private static final long IDLE_CHECK_INTERVAL_MILLIS = 100;
+    private static final long RESTART_DELAY_MILLIS = 1000;
+
+    @NonNull private final SnapshotRepository<S, AID> snapshotRepository;
+    @NonNull private final KafkaConsumerFactory consumerFactory;
+    @NonNull private final KafkaProducerFactory producerFactory;
+    @NonNull private final ShardManager shardManager;
+    @NonNull private final MessageConverter<S, Message> snapshotMessageConverter;
+    @NonNull private final KafkaReadConfig readConfig;
+    private final ConcurrentMap<String, S> latestSnapshots = new ConcurrentHashMap<>();
+    private final Set<ShardRef> requestedShards = ConcurrentHashMap.newKeySet();
+    private final Set<ShardRef> caughtUpShards = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<ShardRef> shardsToTail = new LinkedBlockingQueue<>();
+    private Producer<String, Message> producer;
+    private Thread tailer;
+    private volatile Consumer<String, Message> tailingConsumer;
+    private volatile boolean closed;
+
+    @PostConstruct
+    public void startTailing() {
+        producer = producerFactory.createProducer();
+        tailer = new Thread(this::tailShardsUntilClosed, "kafka-compacted-snapshot-tailer");
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    @PreDestroy
+    public void stopTailing() {
+        closed = true;
+
+        var consumer = tailingConsumer;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+        if (tailer != null) {
+            try {
+                tailer.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (producer != null) {
+            producer.close();
+        }
+    }
+
+    private void tailShardsUntilClosed() {
+        while (!closed) {
+            try {
+                tailShards();
+            } catch (WakeupException ex) {
+                log.debug("Tailing of compacted snapshot shards has been woken up");
+            } catch (RuntimeException ex) {
+                log.error("Tailing of compacted snapshot shards failed, restarting it. Reason: {}", ex.getMessage(), ex);
+                restartTailingOfRequestedShards();
+            }
+        }
+    }
+
+    private void restartTailingOfRequestedShards() {
+        caughtUpShards.clear();
+        shardsToTail.clear();
+        shardsToTail.addAll(requestedShards);
+
+        try {
+            Thread.sleep(RESTART_DELAY_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    private void tailShards() {
+        Map<TopicPartition, ShardRef> tailedShards = new HashMap<>();
+        Map<TopicPartition, Long> catchUpOffsets = new HashMap<>();
+
+        try (Consumer<String, Message> consumer = consumerFactory.createConsumer()) {
+            tailingConsumer = consumer;
+
+            while (!closed) {
+                if (!assignRequestedShards(consumer, tailedShards, catchUpOffsets)) {
+                    continue;
+                }
+
+                consumer.poll(readConfig.getPollTimeout()).forEach(this::applySnapshotRecord);
+                markCaughtUpShards(consumer, tailedShards, catchUpOffsets);
+            }
+        } finally {
+            tailingConsumer = null;
+        }
+    }
+
+    private boolean assignRequestedShards(Consumer<String, Message> consumer, Map<TopicPartition, ShardRef> tailedShards,
+                                          Map<TopicPartition, Long> catchUpOffsets) {
+        var requestedShards = new ArrayList<ShardRef>();
+        shardsToTail.drainTo(requestedShards);
+
+        if (requestedShards.isEmpty() && tailedShards.isEmpty()) {
+            awaitRequestedShard(requestedShards);
+        }
+        if (requestedShards.isEmpty()) {
+            return !tailedShards.isEmpty();
+        }
+
+        var newPartitions = new ArrayList<TopicPartition>();
+        requestedShards.forEach(shardRef -> {
+            var partition = KafkaPartition.of(shardRef);
+            if (tailedShards.putIfAbsent(partition, shardRef) == null) {
+                newPartitions.add(partition);
+            }
+        });
+
+        consumer.assign(tailedShards.keySet());
+        consumer.seekToBeginning(newPartitions);
+        consumer.endOffsets(newPartitions).forEach((partition, endOffset) -> catchUpOffsets.put(partition, endOffset == null ? 0 : endOffset));
+        return true;
+    }
+
+    private void awaitRequestedShard(Collection<ShardRef> requestedShards) {
+        try {
+            var requestedShard = shardsToTail.poll(IDLE_CHECK_INTERVAL_MILLIS, MILLISECONDS);
+            if (requestedShard != null) {
+                requestedShards.add(requestedShard);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    private void applySnapshotRecord(ConsumerRecord<String, Message> record) {
+        if (record.value() == null) {
+            latestSnapshots.remove(record.key());
+            return;
+        }
+
+        putIfNewer(record.key(), snapshotMessageConverter.convert(record.value(), record.offset()));
+    }
+
+    private void putIfNewer(String aggregateId, S snapshot) {
+        latestSnapshots.merge(aggregateId, snapshot, (latestSnapshot, newSnapshot) ->
+                newSnapshot.getAggregateVersion().number >= latestSnapshot.getAggregateVersion().number ? newSnapshot : latestSnapshot
+        );
+    }
+
+    private void markCaughtUpShards(Consumer<String, Message> consumer, Map<TopicPartition, ShardRef> tailedShards,
+                                    Map<TopicPartition, Long> catchUpOffsets) {
+        var catchingUpShards = catchUpOffsets.entrySet().iterator();
+
+        while (catchingUpShards.hasNext()) {
+            var catchingUpShard = catchingUpShards.next();
+
+            if (consumer.position(catchingUpShard.getKey()) >= catchingUpShard.getValue()) {
+                var shardRef = tailedShards.get(catchingUpShard.getKey());
+                caughtUpShards.add(shardRef);
+                catchingUpShards.remove();
+                log.debug("Latest snapshots of topic: {}, shardId: {} are now served from memory", shardRef.topicName, shardRef.shardId);
+            }
+        }
+    }
+
+    boolean hasCaughtUpWith(ShardRef shardRef) {
+        return caughtUpShards.contains(shardRef);
+    }
+
+    @Override
+    public Optional<S> findLatestSnapshotFor(AID aggregateId) {
+        requireNonNull(aggregateId, "aggregateId");
+        var shardRef = shardManager.getShardForBusinessIdOf(aggregateId);
+
+        if (caughtUpShards.contains(shardRef)) {
+            return Optional.ofNullable(latestSnapshots.get(aggregateId.getValue()));
+        }
+
+        if (requestedShards.add(shardRef)) {
+            shardsToTail.add(shardRef);
+        }
+        return snapshotRepository.findLatestSnapshotFor(aggregateId);
+    }
+
+    @Override
+    public Optional<S> findLatestSnapshotFor(AID aggregateId, Event.SequenceNumber beforeGivenEventSequenceNumber) {
+        return snapshotRepository.findLatestSnapshotFor(aggregateId, beforeGivenEventSequenceNumber);
+    }
+
+    @Override
+    public Optional<S> findLatestSnapshotFor(AID aggregateId, Instant beforeGivenPointInTime) {
+        return snapshotRepository.findLatestSnapshotFor(aggregateId, beforeGivenPointInTime);
+    }
+
+    @Override
+    public Optional<S> findFirstSnapshotFor(AID aggregateId, Instant afterOrEqualGivenPointInTime) {
+        return snapshotRepository.findFirstSnapshotFor(aggregateId, afterOrEqualGivenPointInTime);
+    }
+
+    /**
+     * Adds the snapshot to the underlying repository and to the compacted topic. The snapshot is visible to lookups of
+     * the latest snapshot right away, even before the compacted topic acknowledges it.
+     */
+    @Override
+    public void addNewSnapshot(S snapshot) {
+        requireNonNull(snapshot, "snapshot");
+        var aggregateId = snapshot.getAggregateId();
+        var shardRef = shardManager.getShardForBusinessIdOf(aggregateId);
+
+        snapshotRepository.addNewSnapshot(snapshot);
+
+        var record = new ProducerRecord<>(
+                shardRef.topicName, shardRef.shardId, aggregateId.getValue(), snapshotMessageConverter.convert(snapshot)
+        );
+        producer.send(record, RecordAppendingLoggingHandler.getHandlerFor(record));
+        putIfNewer(aggregateId.getValue(), snapshot);
+    }
+}
@@ -2,47 +2,118 @@ package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
 
 import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.KafkaPartition;
 import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
-import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
 import static java.util.Collections.singleton;
 
-@RequiredArgsConstructor(onConstructor_ = { @Inject})
 public class KafkaConsumerFactory {
-    @NonNull private final KafkaBrokerConfig kafkaBrokerConfig;
+    private final KafkaBrokerConfig kafkaBrokerConfig;
+    private final KafkaConsumerPool consumerPool;
+    private final KafkaConsumerPool rawConsumerPool;
+    private final Executor consumerReadExecutor;
 
+    @Inject
+    public KafkaConsumerFactory(KafkaBrokerConfig kafkaBrokerConfig, KafkaConsumerPoolConfig consumerPoolConfig, KafkaExecutors kafkaExecutors) {
+        this.kafkaBrokerConfig = requireNonNull(kafkaBrokerConfig, "kafkaBrokerConfig");
+        this.consumerReadExecutor = requireNonNull(kafkaExecutors, "kafkaExecutors").getConsumerReadExecutor();
+        this.consumerPool = new KafkaConsumerPool(requireNonNull(consumerPoolConfig, "consumerPoolConfig"), this::createConsumerFor);
+        this.rawConsumerPool = new KafkaConsumerPool(consumerPoolConfig, this::createRawConsumerFor);
+    }
+
+    @PreDestroy
+    private void destroyConsumerPool() {
+        consumerPool.close();
+        rawConsumerPool.close();
+    }
+
+    /**
+     * Creates a consumer which isn't assigned to any shard yet.
+     */
     public <V> Consumer<String, V> createConsumer() {
-        Properties consumerProperties = new Properties();
-        return new KafkaConsumer<>(consumerProperties);
+        return new KafkaConsumer<>(createConsumerProperties());
     }
 
-    public <V> Consumer<String, V> createConsumerFor(ShardRef shardRef) {
+    private Properties createConsumerProperties() {
         Properties consumerProperties = new Properties();
         consumerProperties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBrokerConfig.getBootstrapServers());
         //consumerProperties.put(ConsumerConfig.GROUP_ID_CONFIG, "myGroup");
         consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         consumerProperties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
         consumerProperties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "com.wnowakcraft.samples.restaurant.order.infrastructure.kafka.ProtobuffDeserializer");
+        return consumerProperties;
+    }
+
+    /**
+     * Creates a consumer assigned to the given shard, which leaves record values as read, so they can be deserialized
+     * only when needed.
+     */
+    public Consumer<String, byte[]> createRawConsumerFor(ShardRef shardRef) {
+        Properties consumerProperties = createConsumerProperties();
+        consumerProperties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+
+        Consumer<String, byte[]> kafkaConsumer = new KafkaConsumer<>(consumerProperties);
+        kafkaConsumer.assign(singleton(KafkaPartition.of(shardRef)));
+
+        return kafkaConsumer;
+    }
 
-        var kafkaConsumer = new KafkaConsumer<String, V>(consumerProperties);
+    public <V> Consumer<String, V> createConsumerFor(ShardRef shardRef) {
+        Consumer<String, V> kafkaConsumer = createConsumer();
         kafkaConsumer.assign(singleton(KafkaPartition.of(shardRef)));
 
         return kafkaConsumer;
     }
 
     public <V, R> CompletableFuture<R> doConsumerRead(ShardRef shardRef, Function<Consumer<String, V>, R> readFunction) {
-        Consumer<String, V> kafkaConsumer = createConsumerFor(shardRef);
+        return CompletableFuture.supplyAsync(() -> doPooledConsumerRead(shardRef, readFunction), consumerReadExecutor);
+    }
+
+    /**
+     * Runs given read function with a consumer borrowed from the pool and assigned to the given shard. The consumer is
+     * handed back to the pool once the function completes, or discarded when the function fails. The function must not
+     * rely on the consumer's current position - it's the position left by a previous borrower.
+     */
+    public <V, R> R doPooledConsumerRead(ShardRef shardRef, Function<Consumer<String, V>, R> readFunction) {
+        return doPooledConsumerRead(consumerPool, shardRef, readFunction);
+    }
+
+    public <R> CompletableFuture<R> doRawConsumerRead(ShardRef shardRef, Function<Consumer<String, byte[]>, R> readFunction) {
+        return CompletableFuture.supplyAsync(() -> doPooledRawConsumerRead(shardRef, readFunction), consumerReadExecutor);
+    }
+
+    /**
+     * Same as {@link #doPooledConsumerRead(ShardRef, Function)}, but with a consumer created by
+     * {@link #createRawConsumerFor(ShardRef)}. Such consumers are pooled apart from the others.
+     */
+    public <R> R doPooledRawConsumerRead(ShardRef shardRef, Function<Consumer<String, byte[]>, R> readFunction) {
+        return doPooledConsumerRead(rawConsumerPool, shardRef, readFunction);
+    }
+
+    private static <V, R> R doPooledConsumerRead(KafkaConsumerPool pool, ShardRef shardRef, Function<Consumer<String, V>, R> readFunction) {
+        requireNonNull(readFunction, "readFunction");
+        var pooledConsumer = pool.borrowConsumerFor(shardRef);
+        var readCompleted = false;
 
-        return CompletableFuture
-                .supplyAsync(() -> readFunction.apply(kafkaConsumer))
-                .whenCompleteAsync((r, e) -> kafkaConsumer.close());
+        try {
+            R readResult = readFunction.apply(pooledConsumer.getConsumer());
+            readCompleted = true;
+            return readResult;
+        } finally {
+            if (readCompleted) {
+                pooledConsumer.release();
+            } else {
+                pooledConsumer.invalidate();
+            }
+        }
     }
 }
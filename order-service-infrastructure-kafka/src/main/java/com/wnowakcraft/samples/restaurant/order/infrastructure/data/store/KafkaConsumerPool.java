@@ -0,0 +1,267 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.KafkaPartition;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static com.wnowakcraft.preconditions.Preconditions.requireStateThat;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Keeps already created and assigned Kafka consumers around, so subsequent reads of the same shard don't need to pay
+ * for bootstrapping a brand new consumer. A borrowed consumer is owned exclusively by the borrower until it's either
+ * released back to the pool or invalidated.
+ * <p>
+ * The pool retains at most {@link KafkaConsumerPoolConfig#getMaxIdleConsumersPerShard()} idle consumers per shard and
+ * {@link KafkaConsumerPoolConfig#getMaxIdleConsumers()} idle consumers in total - the least recently used ones are closed
+ * first. Consumers idle for longer than {@link KafkaConsumerPoolConfig#getMaxIdleTime()} are closed in the background.
+ * <p>
+ * At most {@link KafkaConsumerPoolConfig#getMaxActiveConsumers()} consumers can be borrowed at a time, borrowers above
+ * the limit wait for a consumer to be handed back for up to {@link KafkaConsumerPoolConfig#getMaxBorrowWait()}.
+ */
+@Slf4j
+public class KafkaConsumerPool implements AutoCloseable {
+    private final KafkaConsumerPoolConfig poolConfig;
+    private final Function<ShardRef, Consumer<String, ?>> consumerCreator;
+    private final Map<ShardRef, Deque<IdleConsumer>> idleConsumersByShard = new HashMap<>();
+    private final ScheduledExecutorService idleConsumersEvictor;
+    private final Semaphore activeConsumerPermits;
+    private int idleConsumersCount;
+    private boolean closed;
+
+    public KafkaConsumerPool(KafkaConsumerPoolConfig poolConfig, Function<ShardRef, Consumer<String, ?>> consumerCreator) {
+        this.poolConfig = requireNonNull(poolConfig, "poolConfig");
+        this.consumerCreator = requireNonNull(consumerCreator, "consumerCreator");
+        this.activeConsumerPermits = new Semaphore(poolConfig.getMaxActiveConsumers(), true);
+
+        var evictionIntervalMillis = poolConfig.getIdleEvictionInterval().toMillis();
+        this.idleConsumersEvictor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("kafka-consumer-pool-evictor-%d").setDaemon(true).build()
+        );
+        this.idleConsumersEvictor.scheduleWithFixedDelay(
+                this::evictIdleConsumers, evictionIntervalMillis, evictionIntervalMillis, MILLISECONDS
+        );
+    }
+
+    public PooledConsumer borrowConsumerFor(ShardRef shardRef) {
+        requireNonNull(shardRef, "shardRef");
+
+        acquireActiveConsumerPermit();
+        try {
+            return takeOrCreateConsumerFor(shardRef);
+        } catch (RuntimeException | Error ex) {
+            activeConsumerPermits.release();
+            throw ex;
+        }
+    }
+
+    private void acquireActiveConsumerPermit() {
+        try {
+            var maxBorrowWaitMillis = poolConfig.getMaxBorrowWait().toMillis();
+            requireStateThat(
+                    activeConsumerPermits.tryAcquire(maxBorrowWaitMillis, MILLISECONDS),
+                    "No consumer has been handed back to the pool within " + maxBorrowWaitMillis + "ms"
+            );
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a consumer to be handed back to the pool", ex);
+        }
+    }
+
+    private PooledConsumer takeOrCreateConsumerFor(ShardRef shardRef) {
+        IdleConsumer idleConsumer;
+        while ((idleConsumer = takeIdleConsumerFor(shardRef)) != null) {
+            if (isHealthy(idleConsumer.consumer, shardRef)) {
+                return new PooledConsumer(shardRef, idleConsumer.consumer);
+            }
+
+            log.debug("Discarding unhealthy pooled consumer of topic: {}, shardId: {}", shardRef.topicName, shardRef.shardId);
+            closeQuietly(idleConsumer.consumer);
+        }
+
+        return new PooledConsumer(shardRef, consumerCreator.apply(shardRef));
+    }
+
+    private synchronized IdleConsumer takeIdleConsumerFor(ShardRef shardRef) {
+        requireStateThat(!closed, "The consumer pool has already been closed");
+
+        var idleConsumers = idleConsumersByShard.get(shardRef);
+        if (idleConsumers == null) {
+            return null;
+        }
+
+        var idleConsumer = idleConsumers.pollFirst();
+        if (idleConsumers.isEmpty()) {
+            idleConsumersByShard.remove(shardRef);
+        }
+        if (idleConsumer != null) {
+            idleConsumersCount--;
+        }
+
+        return idleConsumer;
+    }
+
+    private static boolean isHealthy(Consumer<String, ?> consumer, ShardRef shardRef) {
+        try {
+            return consumer.assignment().contains(KafkaPartition.of(shardRef));
+        } catch (RuntimeException ex) {
+            return false;
+        }
+    }
+
+    private void returnConsumer(ShardRef shardRef, Consumer<String, ?> consumer) {
+        closeQuietly(putBackOrGetConsumersToClose(shardRef, consumer));
+    }
+
+    private synchronized Collection<Consumer<String, ?>> putBackOrGetConsumersToClose(ShardRef shardRef, Consumer<String, ?> consumer) {
+        var shardIdleConsumers = idleConsumersByShard.getOrDefault(shardRef, new ArrayDeque<>());
+
+        if (closed || poolConfig.getMaxIdleConsumers() == 0 ||
+                shardIdleConsumers.size() >= poolConfig.getMaxIdleConsumersPerShard()) {
+            return List.of(consumer);
+        }
+
+        var consumersToClose = new ArrayList<Consumer<String, ?>>();
+        while (idleConsumersCount >= poolConfig.getMaxIdleConsumers()) {
+            consumersToClose.add(removeLeastRecentlyUsedIdleConsumer());
+        }
+
+        shardIdleConsumers.addFirst(new IdleConsumer(consumer, System.nanoTime()));
+        idleConsumersByShard.putIfAbsent(shardRef, shardIdleConsumers);
+        idleConsumersCount++;
+
+        return consumersToClose;
+    }
+
+    private Consumer<String, ?> removeLeastRecentlyUsedIdleConsumer() {
+        Map.Entry<ShardRef, Deque<IdleConsumer>> leastRecentlyUsed = null;
+
+        for (var shardIdleConsumers : idleConsumersByShard.entrySet()) {
+            if (leastRecentlyUsed == null ||
+                    shardIdleConsumers.getValue().getLast().idleSince < leastRecentlyUsed.getValue().getLast().idleSince) {
+                leastRecentlyUsed = shardIdleConsumers;
+            }
+        }
+
+        var evictedConsumer = requireNonNull(leastRecentlyUsed, "leastRecentlyUsed").getValue().pollLast();
+        if (leastRecentlyUsed.getValue().isEmpty()) {
+            idleConsumersByShard.remove(leastRecentlyUsed.getKey());
+        }
+        idleConsumersCount--;
+
+        return evictedConsumer.consumer;
+    }
+
+    void evictIdleConsumers() {
+        closeQuietly(removeExpiredIdleConsumers(System.nanoTime()));
+    }
+
+    private synchronized Collection<Consumer<String, ?>> removeExpiredIdleConsumers(long now) {
+        var maxIdleNanos = poolConfig.getMaxIdleTime().toNanos();
+        var expiredConsumers = new ArrayList<Consumer<String, ?>>();
+        var shardsIterator = idleConsumersByShard.values().iterator();
+
+        while (shardsIterator.hasNext()) {
+            var shardIdleConsumers = shardsIterator.next();
+
+            while (!shardIdleConsumers.isEmpty() && now - shardIdleConsumers.getLast().idleSince >= maxIdleNanos) {
+                expiredConsumers.add(shardIdleConsumers.pollLast().consumer);
+                idleConsumersCount--;
+            }
+
+            if (shardIdleConsumers.isEmpty()) {
+                shardsIterator.remove();
+            }
+        }
+
+        return expiredConsumers;
+    }
+
+    public synchronized int getIdleConsumersCount() {
+        return idleConsumersCount;
+    }
+
+    public int getActiveConsumersCount() {
+        return poolConfig.getMaxActiveConsumers() - activeConsumerPermits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        idleConsumersEvictor.shutdownNow();
+        closeQuietly(removeAllIdleConsumers());
+    }
+
+    private synchronized Collection<Consumer<String, ?>> removeAllIdleConsumers() {
+        closed = true;
+
+        var idleConsumers = new ArrayList<Consumer<String, ?>>();
+        idleConsumersByShard.values().forEach(shardIdleConsumers ->
+                shardIdleConsumers.forEach(idleConsumer -> idleConsumers.add(idleConsumer.consumer))
+        );
+        idleConsumersByShard.clear();
+        idleConsumersCount = 0;
+
+        return idleConsumers;
+    }
+
+    private static void closeQuietly(Collection<Consumer<String, ?>> consumers) {
+        consumers.forEach(KafkaConsumerPool::closeQuietly);
+    }
+
+    private static void closeQuietly(Consumer<String, ?> consumer) {
+        try {
+            consumer.close();
+        } catch (RuntimeException ex) {
+            log.warn("Couldn't close a pooled consumer. Reason: {}", ex.getMessage(), ex);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class IdleConsumer {
+        private final Consumer<String, ?> consumer;
+        private final long idleSince;
+    }
+
+    public class PooledConsumer {
+        private final ShardRef shardRef;
+        private final Consumer<String, ?> consumer;
+        private boolean handedBack;
+
+        private PooledConsumer(ShardRef shardRef, Consumer<String, ?> consumer) {
+            this.shardRef = shardRef;
+            this.consumer = consumer;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <V> Consumer<String, V> getConsumer() {
+            requireStateThat(!handedBack, "The consumer has already been handed back to the pool");
+            return (Consumer<String, V>) consumer;
+        }
+
+        public void release() {
+            if (!handedBack) {
+                handedBack = true;
+                activeConsumerPermits.release();
+                returnConsumer(shardRef, consumer);
+            }
+        }
+
+        public void invalidate() {
+            if (!handedBack) {
+                handedBack = true;
+                activeConsumerPermits.release();
+                closeQuietly(consumer);
+            }
+        }
+    }
+}
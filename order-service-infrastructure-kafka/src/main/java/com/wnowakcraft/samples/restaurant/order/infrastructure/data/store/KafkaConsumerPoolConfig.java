@@ -0,0 +1,48 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import lombok.Value;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.inject.Inject;
+import java.time.Duration;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+@Value
+public class KafkaConsumerPoolConfig {
+    private final int maxIdleConsumersPerShard;
+    private final int maxIdleConsumers;
+    private final Duration maxIdleTime;
+    private final Duration idleEvictionInterval;
+    private final int maxActiveConsumers;
+    private final Duration maxBorrowWait;
+
+    @Inject
+    public KafkaConsumerPoolConfig(
+            @ConfigProperty(name = "service.infrastructure.kafka.consumerPool.maxIdleConsumersPerShard", defaultValue = "2")
+                    int maxIdleConsumersPerShard,
+            @ConfigProperty(name = "service.infrastructure.kafka.consumerPool.maxIdleConsumers", defaultValue = "64")
+                    int maxIdleConsumers,
+            @ConfigProperty(name = "service.infrastructure.kafka.consumerPool.maxIdleTimeMillis", defaultValue = "60000")
+                    long maxIdleTimeMillis,
+            @ConfigProperty(name = "service.infrastructure.kafka.consumerPool.idleEvictionIntervalMillis", defaultValue = "10000")
+                    long idleEvictionIntervalMillis,
+            @ConfigProperty(name = "service.infrastructure.kafka.consumerPool.maxActiveConsumers", defaultValue = "64")
+                    int maxActiveConsumers,
+            @ConfigProperty(name = "service.infrastructure.kafka.consumerPool.maxBorrowWaitMillis", defaultValue = "30000")
+                    long maxBorrowWaitMillis) {
+        requireThat(maxIdleConsumersPerShard >= 0, "maxIdleConsumersPerShard cannot be negative");
+        requireThat(maxIdleConsumers >= 0, "maxIdleConsumers cannot be negative");
+        requireThat(maxIdleTimeMillis >= 0, "maxIdleTimeMillis cannot be negative");
+        requireThat(idleEvictionIntervalMillis > 0, "idleEvictionIntervalMillis needs to be positive");
+        requireThat(maxActiveConsumers > 0, "maxActiveConsumers needs to be positive");
+        requireThat(maxBorrowWaitMillis >= 0, "maxBorrowWaitMillis cannot be negative");
+
+        this.maxIdleConsumersPerShard = maxIdleConsumersPerShard;
+        this.maxIdleConsumers = maxIdleConsumers;
+        this.maxIdleTime = Duration.ofMillis(maxIdleTimeMillis);
+        this.idleEvictionInterval = Duration.ofMillis(idleEvictionIntervalMillis);
+        this.maxActiveConsumers = maxActiveConsumers;
+        this.maxBorrowWait = Duration.ofMillis(maxBorrowWaitMillis);
+    }
+}
@@ -7,28 +7,22 @@ import com.wnowakcraft.samples.restaurant.core.domain.model.EventStore;
 import com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion.MessageConverter;
 import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager;
 import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardMetadataProvider;
-import lombok.Getter;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.kafka.ProtobuffDeserializer;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.Consumer;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.Deserializer;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import java.time.Duration;
-import java.util.Collection;
-import java.util.LinkedHashSet;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
-
-import static com.google.common.collect.Iterables.getLast;
-import static java.util.List.copyOf;
-import static lombok.AccessLevel.PRIVATE;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -36,19 +30,39 @@ public class KafkaEventStore<E extends Event<?>, A extends Aggregate<ID, E>, ID
     private static final long DEFAULT_SHARD_OFFSET = 0;
     @NonNull private final MessageConverter<E, Message> eventMessageConverter;
     @NonNull private final KafkaConsumerFactory consumerFactory;
+    @NonNull private final KafkaRecordPoller recordPoller;
     @NonNull private final KafkaProducerFactory producerFactory;
     @NonNull private final ShardMetadataProvider shardMetadataProvider;
     @NonNull private final ShardManager shardManager;
+    @NonNull private final AggregateOffsetIndex aggregateOffsetIndex;
+    @NonNull private final ShardOffsetTable shardOffsetTable;
+    @NonNull private final KafkaAppendConfig appendConfig;
+    @NonNull private final KafkaGroupCommitConfig groupCommitConfig;
+    private final Deserializer<Message> eventDeserializer = new ProtobuffDeserializer();
     private Producer<String, Message> producer;
+    private GroupCommitQueue<PendingAppend> groupCommitQueue;
 
     @PostConstruct
     public void initializeKafkaProducer() {
-        producer = producerFactory.createProducer();
+        if(groupCommitConfig.isEnabled()) {
+            producer = producerFactory.createBatchingProducer(
+                    groupCommitConfig.getProducerLinger(), groupCommitConfig.getProducerBatchSizeBytes()
+            );
+            groupCommitQueue = new GroupCommitQueue<>(
+                    "kafka-event-store-group-commit", groupCommitConfig.getMaxBatchSize(), groupCommitConfig.getMaxWait(),
+                    this::commitAppends, PendingAppend::fail
+            );
+        } else {
+            producer = producerFactory.createProducer();
+        }
         //producer.initTransactions();
     }
 
     @PreDestroy
     private void destroyKafkaProducer() {
+        if(groupCommitQueue != null) {
+            groupCommitQueue.close();
+        }
         if(producer != null) {
             producer.close();
         }
@@ -57,25 +71,93 @@ public class KafkaEventStore<E extends Event<?>, A extends Aggregate<ID, E>, ID
     @Override
     public EventStream<E> loadAllEventsFor(ID businessId) {
         var shardRef = shardManager.getShardForBusinessIdOf(businessId);
-        try(Consumer<String, Message> kafkaConsumer = consumerFactory.createConsumerFor(shardRef)) {
-            kafkaConsumer.seekToBeginning(kafkaConsumer.assignment());
 
-            Collection<E> readEvents = readEventsFrom(kafkaConsumer, businessId);
-            return KafkaEventStream.of(readEvents);
+        var startOffset = aggregateOffsetIndex.getReadStartOffsetFor(shardRef, businessId.getValue());
+
+        return consumerFactory.doPooledRawConsumerRead(shardRef, kafkaConsumer -> {
+            seekToStartOffset(kafkaConsumer, startOffset);
+
+            var readRecords = readRecordsFrom(kafkaConsumer, businessId);
+            return eventStreamOf(readRecords);
+        });
+    }
+
+    private static void seekToStartOffset(Consumer<String, byte[]> consumer, long startOffset) {
+        if(startOffset == 0) {
+            consumer.seekToBeginning(consumer.assignment());
+        } else {
+            consumer.assignment().forEach(assignment -> consumer.seek(assignment, startOffset));
         }
     }
 
-    private Collection<E> readEventsFrom(Consumer<String, Message> consumer, ID businessId) {
-        Collection<E> readEvents = new LinkedHashSet<>();
-        ConsumerRecords<String, Message> readRecords;
+    private List<ConsumerRecord<String, byte[]>> readRecordsFrom(Consumer<String, byte[]> consumer, ID businessId) {
+        return readRecordsFrom(consumer, Set.of(businessId.getValue())).getOrDefault(businessId.getValue(), List.of());
+    }
 
-        while(!(readRecords = consumer.poll(Duration.ofSeconds(1))).isEmpty()) {
-            StreamSupport.stream(readRecords.spliterator(), false)
-                    .filter(record -> businessId.getValue().equals(record.key()))
-                    .map(record -> eventMessageConverter.convert(record.value(), record.offset()))
-                    .forEachOrdered(readEvents::add);
-        }
-        return readEvents;
+    /**
+     * Keeps the records of the given aggregates as read, their events are decoded only once their event streams are
+     * iterated.
+     */
+    private Map<String, List<ConsumerRecord<String, byte[]>>> readRecordsFrom(Consumer<String, byte[]> consumer, Set<String> businessIds) {
+        Map<String, List<ConsumerRecord<String, byte[]>>> readRecords = new HashMap<>();
+
+        recordPoller.pollRecords(consumer, polledRecords -> {
+            for (var record : polledRecords) {
+                if (businessIds.contains(record.key())) {
+                    readRecords.computeIfAbsent(record.key(), businessId -> new ArrayList<>()).add(record);
+                }
+            }
+            return true;
+        });
+        return readRecords;
+    }
+
+    private EventStream<E> eventStreamOf(List<ConsumerRecord<String, byte[]>> records) {
+        return LazyKafkaEventStream.of(records, eventDeserializer, eventMessageConverter);
+    }
+
+    /**
+     * Reads every shard the given aggregates live in just once, starting from the lowest offset any of them needs, and
+     * hands the records out to the event streams of their aggregates on the way. Shards are read concurrently.
+     */
+    @Override
+    public Map<ID, EventStream<E>> loadAllEventsFor(Collection<ID> businessIds) {
+        Map<ShardManager.ShardRef, Set<ID>> businessIdsByShard = new LinkedHashMap<>();
+        businessIds.forEach(businessId -> businessIdsByShard
+                .computeIfAbsent(shardManager.getShardForBusinessIdOf(businessId), shardRef -> new LinkedHashSet<>())
+                .add(businessId)
+        );
+
+        var shardReads = businessIdsByShard.entrySet().stream()
+                .map(shardBusinessIds -> loadAllEventsFromShard(shardBusinessIds.getKey(), shardBusinessIds.getValue()))
+                .collect(Collectors.toUnmodifiableList());
+
+        Map<ID, EventStream<E>> eventStreams = new HashMap<>();
+        shardReads.forEach(shardRead -> eventStreams.putAll(shardRead.join()));
+
+        Map<ID, EventStream<E>> orderedEventStreams = new LinkedHashMap<>();
+        businessIds.forEach(businessId -> orderedEventStreams.put(businessId, eventStreams.get(businessId)));
+        return orderedEventStreams;
+    }
+
+    private CompletableFuture<Map<ID, EventStream<E>>> loadAllEventsFromShard(ShardManager.ShardRef shardRef, Set<ID> businessIds) {
+        var startOffset = businessIds.stream()
+                .mapToLong(businessId -> aggregateOffsetIndex.getReadStartOffsetFor(shardRef, businessId.getValue()))
+                .min()
+                .orElse(0);
+        var businessIdValues = businessIds.stream().map(ID::getValue).collect(Collectors.toUnmodifiableSet());
+
+        return consumerFactory.doRawConsumerRead(shardRef, kafkaConsumer -> {
+            seekToStartOffset(kafkaConsumer, startOffset);
+
+            var readRecords = readRecordsFrom(kafkaConsumer, businessIdValues);
+
+            Map<ID, EventStream<E>> eventStreams = new HashMap<>();
+            businessIds.forEach(businessId ->
+                    eventStreams.put(businessId, eventStreamOf(readRecords.getOrDefault(businessId.getValue(), List.of())))
+            );
+            return eventStreams;
+        });
     }
 
     @Override
@@ -85,12 +167,14 @@ public class KafkaEventStore<E extends Event<?>, A extends Aggregate<ID, E>, ID
 
     private EventStream<E> readEventsStartingFrom(long offset, ID businessId) {
         var shardRef = shardManager.getShardForBusinessIdOf(businessId);
-        try(Consumer<String, Message> consumer = consumerFactory.createConsumerFor(shardRef)) {
-            consumer.assignment().forEach(assignment -> consumer.seek(assignment, offset));
+        var startOffset = Math.max(offset, aggregateOffsetIndex.getReadStartOffsetFor(shardRef, businessId.getValue()));
 
-            var readEvents = readEventsFrom(consumer, businessId);
-            return KafkaEventStream.of(readEvents);
-        }
+        return consumerFactory.doPooledRawConsumerRead(shardRef, consumer -> {
+            consumer.assignment().forEach(assignment -> consumer.seek(assignment, startOffset));
+
+            var readRecords = readRecordsFrom(consumer, businessId);
+            return eventStreamOf(readRecords);
+        });
     }
 
     @Override
@@ -101,29 +185,119 @@ public class KafkaEventStore<E extends Event<?>, A extends Aggregate<ID, E>, ID
     @Override
     public CompletableFuture<Aggregate.Version> append(ID businessId, Aggregate.Version aggregateVersion, Collection<E> events) {
         var shardRef = shardManager.getShardForBusinessIdOf(businessId);
-        var shardCurrentOffsetFuture = shardMetadataProvider.getLastRecordOffsetForShard(shardRef);
         var outgoingRecords = createKafkaRecordsFor(events, shardRef, businessId);
-
         var expectedOffset = aggregateVersion.number;
-        long currentOffset = ShardMetadataProvider.offsetOf(shardCurrentOffsetFuture, DEFAULT_SHARD_OFFSET);
 
+        if(groupCommitQueue != null) {
+            var pendingAppend = new PendingAppend(shardRef, aggregateVersion, outgoingRecords);
+            groupCommitQueue.submit(pendingAppend);
+            return pendingAppend.appendedVersion;
+        }
+
+        if(appendConfig.getConcurrencyCheck() == KafkaAppendConfig.ConcurrencyCheck.LAST_KNOWN_OFFSET) {
+            shardOffsetTable.reserveOffsetsFor(shardRef, expectedOffset, outgoingRecords.size());
+        } else {
+            verifyShardOffsetWithBroker(shardRef, expectedOffset);
+        }
+
+        return sendAsync(outgoingRecords, shardRef, aggregateVersion);
+    }
+
+    private void verifyShardOffsetWithBroker(ShardManager.ShardRef shardRef, long expectedOffset) {
+        verifyShardOffset(shardRef, getShardOffsetFromBroker(shardRef), expectedOffset);
+    }
+
+    private long getShardOffsetFromBroker(ShardManager.ShardRef shardRef) {
+        var shardCurrentOffsetFuture = shardMetadataProvider.getLastRecordOffsetForShard(shardRef);
+        return ShardMetadataProvider.offsetOf(shardCurrentOffsetFuture, DEFAULT_SHARD_OFFSET);
+    }
+
+    private void verifyShardOffset(ShardManager.ShardRef shardRef, long currentOffset, long expectedOffset) {
         if(currentOffset > expectedOffset) {
+            shardMetadataProvider.invalidate(shardRef);
             throw new ConcurrentLogAppendingException(shardRef, currentOffset, expectedOffset);
         }
+    }
+
+    /**
+     * Commits appends collected by the group commit stage shard by shard. With {@link KafkaAppendConfig.ConcurrencyCheck#BROKER_LOOKUP}
+     * the broker is asked for the offset of each shard once per batch, and the appends of the batch are checked against
+     * that offset moved forward by the records of the appends accepted before them. The producer is flushed at the end,
+     * so the next batch is checked against offsets which already include this one.
+     */
+    private void commitAppends(List<PendingAppend> pendingAppends) {
+        Map<ShardManager.ShardRef, List<PendingAppend>> pendingAppendsByShard = pendingAppends.stream()
+                .collect(Collectors.groupingBy(pendingAppend -> pendingAppend.shardRef, LinkedHashMap::new, Collectors.toList()));
+
+        pendingAppendsByShard.forEach(this::commitShardAppends);
 
-        return sendAsync(outgoingRecords);
+        try {
+            producer.flush();
+        } catch (RuntimeException ex) {
+            log.warn("Flushing appends of {} aggregates failed. Reason: {}", pendingAppends.size(), ex.getMessage(), ex);
+        }
     }
 
-    private CompletableFuture<Aggregate.Version> sendAsync(List<ProducerRecord<String, Message>> outgoingRecords) {
-        return CompletableFuture.supplyAsync(() -> {
-            RecordAppendingOffsetTrackerHandler recordOffsetTrackerHandler = new RecordAppendingOffsetTrackerHandler();
-            outgoingRecords.forEach(record -> producer.send(
-                    record,
-                    recordOffsetTrackerHandler.getHandlerComposedWith(RecordAppendingLoggingHandler.getHandlerFor(record)))
-            );
+    private void commitShardAppends(ShardManager.ShardRef shardRef, List<PendingAppend> shardAppends) {
+        Long shardOffset = null;
 
-            return Aggregate.Version.of(recordOffsetTrackerHandler.getOffsetOfLatestAppendedRecord());
-        });
+        for(var pendingAppend : shardAppends) {
+            var expectedOffset = pendingAppend.aggregateVersion.number;
+            var recordsCount = pendingAppend.outgoingRecords.size();
+
+            try {
+                if(appendConfig.getConcurrencyCheck() == KafkaAppendConfig.ConcurrencyCheck.LAST_KNOWN_OFFSET) {
+                    shardOffsetTable.reserveOffsetsFor(shardRef, expectedOffset, recordsCount);
+                } else {
+                    shardOffset = shardOffset == null ? getShardOffsetFromBroker(shardRef) : shardOffset;
+                    verifyShardOffset(shardRef, shardOffset, expectedOffset);
+                    shardOffset += recordsCount;
+                }
+
+                sendAsync(pendingAppend.outgoingRecords, shardRef, pendingAppend.aggregateVersion)
+                        .whenComplete(pendingAppend::complete);
+            } catch (RuntimeException ex) {
+                pendingAppend.fail(ex);
+            }
+        }
+    }
+
+    private CompletableFuture<Aggregate.Version> sendAsync(List<ProducerRecord<String, Message>> outgoingRecords,
+                                                           ShardManager.ShardRef shardRef, Aggregate.Version aggregateVersion) {
+        if(outgoingRecords.isEmpty()) {
+            return CompletableFuture.completedFuture(aggregateVersion);
+        }
+
+        var recordOffsetTrackerHandler = new RecordAppendingOffsetTrackerHandler(outgoingRecords.size());
+
+        for(var record : outgoingRecords) {
+            try {
+                producer.send(record, recordOffsetTrackerHandler.getHandlerComposedWith(getAppendedRecordHandlerFor(record, shardRef)));
+            } catch (RuntimeException ex) {
+                shardOffsetTable.invalidate(shardRef);
+                shardMetadataProvider.invalidate(shardRef);
+                recordOffsetTrackerHandler.failWith(ex);
+                break;
+            }
+        }
+
+        return recordOffsetTrackerHandler.getOffsetOfLatestAppendedRecord().thenApply(Aggregate.Version::of);
+    }
+
+    private Callback getAppendedRecordHandlerFor(ProducerRecord<String, Message> record, ShardManager.ShardRef shardRef) {
+        var loggingHandler = RecordAppendingLoggingHandler.getHandlerFor(record);
+
+        return (recordMetadata, exception) -> {
+            if(exception == null) {
+                aggregateOffsetIndex.recordAppended(shardRef, record.key(), recordMetadata.offset());
+                shardOffsetTable.recordAppended(shardRef, recordMetadata.offset());
+                shardMetadataProvider.recordAppended(shardRef, recordMetadata.offset());
+            } else {
+                shardOffsetTable.invalidate(shardRef);
+                shardMetadataProvider.invalidate(shardRef);
+            }
+            loggingHandler.onCompletion(recordMetadata, exception);
+        };
     }
 
     private List<ProducerRecord<String, Message>> createKafkaRecordsFor(Collection<E> events, ShardManager.ShardRef shardRef, ID businessId) {
@@ -133,25 +307,23 @@ public class KafkaEventStore<E extends Event<?>, A extends Aggregate<ID, E>, ID
                 .collect(Collectors.toUnmodifiableList());
     }
 
-    @Getter
-    @RequiredArgsConstructor(access = PRIVATE)
-    private static class KafkaEventStream<E extends Event<?>> implements EventStream<E> {
-        private final Collection<E> events;
-        private final Aggregate.Version version;
+    @RequiredArgsConstructor
+    private static class PendingAppend {
+        private final ShardManager.ShardRef shardRef;
+        private final Aggregate.Version aggregateVersion;
+        private final List<ProducerRecord<String, Message>> outgoingRecords;
+        private final CompletableFuture<Aggregate.Version> appendedVersion = new CompletableFuture<>();
 
-
-        static <E extends Event<?>> EventStream<E> of(Collection<E> events) {
-            if(events.isEmpty()) {
-                return emptyEventStream();
+        void complete(Aggregate.Version version, Throwable exception) {
+            if(exception == null) {
+                appendedVersion.complete(version);
+            } else {
+                fail(exception);
             }
-
-            long offset = getLast(events).getSequenceNumber().number;
-            return new KafkaEventStream<>(copyOf(events), Aggregate.Version.of(offset));
         }
 
-        @SuppressWarnings("unchecked")
-        private static <E extends Event<?>> EventStream<E> emptyEventStream() {
-            return (EventStream<E>)EMPTY;
+        void fail(Throwable exception) {
+            appendedVersion.completeExceptionally(exception);
         }
     }
 }
@@ -0,0 +1,54 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.wnowakcraft.samples.restaurant.core.infrastructure.concurrent.ManagedExecutor;
+import com.wnowakcraft.samples.restaurant.core.infrastructure.concurrent.ManagedExecutor.ExecutorStats;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+
+/**
+ * Executors blocking Kafka calls and the work following them are run on, instead of the common fork-join pool. Reads
+ * done with pooled consumers get an executor of their own, so a burst of slow reads can't hold saving aggregates up.
+ */
+@Singleton
+public class KafkaExecutors {
+    private final ManagedExecutor consumerReadExecutor;
+    private final ManagedExecutor aggregateSaveExecutor;
+
+    @Inject
+    public KafkaExecutors(KafkaExecutorsConfig executorsConfig) {
+        requireNonNull(executorsConfig, "executorsConfig");
+
+        this.consumerReadExecutor = ManagedExecutor.create("kafka-consumer-read", executorsConfig.getConsumerReadSettings());
+        this.aggregateSaveExecutor = ManagedExecutor.create("aggregate-save", executorsConfig.getAggregateSaveSettings());
+    }
+
+    public Executor getConsumerReadExecutor() {
+        return consumerReadExecutor;
+    }
+
+    /**
+     * The executor {@link com.wnowakcraft.samples.restaurant.core.domain.model.AggregateRepository} continues saving
+     * aggregates on once their changes are appended.
+     */
+    @Produces
+    public Executor getAggregateSaveExecutor() {
+        return aggregateSaveExecutor;
+    }
+
+    public List<ExecutorStats> getStats() {
+        return List.of(consumerReadExecutor.getStats(), aggregateSaveExecutor.getStats());
+    }
+
+    @PreDestroy
+    public void close() {
+        consumerReadExecutor.close();
+        aggregateSaveExecutor.close();
+    }
+}
@@ -0,0 +1,30 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.wnowakcraft.samples.restaurant.core.infrastructure.concurrent.ManagedExecutor.Settings;
+import com.wnowakcraft.samples.restaurant.core.infrastructure.concurrent.ManagedExecutor.ThreadModel;
+import lombok.Value;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.inject.Inject;
+
+@Value
+public class KafkaExecutorsConfig {
+    private final Settings consumerReadSettings;
+    private final Settings aggregateSaveSettings;
+
+    @Inject
+    public KafkaExecutorsConfig(
+            @ConfigProperty(name = "service.infrastructure.kafka.executors.threadModel", defaultValue = "VIRTUAL_THREAD_PER_TASK_WHEN_SUPPORTED")
+                    ThreadModel threadModel,
+            @ConfigProperty(name = "service.infrastructure.kafka.executors.consumerRead.maxThreads", defaultValue = "32")
+                    int consumerReadMaxThreads,
+            @ConfigProperty(name = "service.infrastructure.kafka.executors.consumerRead.queueCapacity", defaultValue = "1024")
+                    int consumerReadQueueCapacity,
+            @ConfigProperty(name = "service.infrastructure.kafka.executors.aggregateSave.maxThreads", defaultValue = "8")
+                    int aggregateSaveMaxThreads,
+            @ConfigProperty(name = "service.infrastructure.kafka.executors.aggregateSave.queueCapacity", defaultValue = "1024")
+                    int aggregateSaveQueueCapacity) {
+        this.consumerReadSettings = new Settings(threadModel, consumerReadMaxThreads, consumerReadQueueCapacity);
+        this.aggregateSaveSettings = new Settings(threadModel, aggregateSaveMaxThreads, aggregateSaveQueueCapacity);
+    }
+}
@@ -0,0 +1,42 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import lombok.Value;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.inject.Inject;
+import java.time.Duration;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+@Value
+public class KafkaGroupCommitConfig {
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final Duration maxWait;
+    private final Duration producerLinger;
+    private final int producerBatchSizeBytes;
+
+    @Inject
+    public KafkaGroupCommitConfig(
+            @ConfigProperty(name = "service.infrastructure.kafka.groupCommit.enabled", defaultValue = "false")
+                    boolean enabled,
+            @ConfigProperty(name = "service.infrastructure.kafka.groupCommit.maxBatchSize", defaultValue = "256")
+                    int maxBatchSize,
+            @ConfigProperty(name = "service.infrastructure.kafka.groupCommit.maxWaitMillis", defaultValue = "5")
+                    long maxWaitMillis,
+            @ConfigProperty(name = "service.infrastructure.kafka.groupCommit.producerLingerMillis", defaultValue = "5")
+                    long producerLingerMillis,
+            @ConfigProperty(name = "service.infrastructure.kafka.groupCommit.producerBatchSizeBytes", defaultValue = "131072")
+                    int producerBatchSizeBytes) {
+        requireThat(maxBatchSize > 0, "maxBatchSize needs to be positive");
+        requireThat(maxWaitMillis >= 0, "maxWaitMillis cannot be negative");
+        requireThat(producerLingerMillis >= 0, "producerLingerMillis cannot be negative");
+        requireThat(producerBatchSizeBytes > 0, "producerBatchSizeBytes needs to be positive");
+
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWait = Duration.ofMillis(maxWaitMillis);
+        this.producerLinger = Duration.ofMillis(producerLingerMillis);
+        this.producerBatchSizeBytes = producerBatchSizeBytes;
+    }
+}
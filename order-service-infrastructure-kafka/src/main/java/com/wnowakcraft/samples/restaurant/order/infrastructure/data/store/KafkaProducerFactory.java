@@ -1,5 +1,6 @@
 package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
 
+import com.wnowakcraft.samples.restaurant.order.infrastructure.kafka.ProtobuffSerializer;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
@@ -8,18 +9,43 @@ import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 
 import javax.inject.Inject;
+import java.time.Duration;
 import java.util.Properties;
 
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
 @RequiredArgsConstructor(onConstructor_ = { @Inject})
 public class KafkaProducerFactory {
     @NonNull private final KafkaBrokerConfig kafkaBrokerConfig;
+    @NonNull private final KafkaSerializationConfig serializationConfig;
 
     public <V> Producer<String, V> createProducer() {
+        return new KafkaProducer<>(createProducerProperties());
+    }
+
+    /**
+     * Creates a producer which keeps records in its buffer for up to the given linger time, so records of many appends
+     * going to the same shard can be sent to the broker within a single request of up to the given batch size.
+     */
+    public <V> Producer<String, V> createBatchingProducer(Duration linger, int batchSizeBytes) {
+        requireNonNull(linger, "linger");
+        requireThat(batchSizeBytes > 0, "batchSizeBytes needs to be positive");
+
+        Properties producerProperties = createProducerProperties();
+        producerProperties.put(ProducerConfig.LINGER_MS_CONFIG, (int) linger.toMillis());
+        producerProperties.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSizeBytes);
+        return new KafkaProducer<>(producerProperties);
+    }
+
+    private Properties createProducerProperties() {
         Properties producerProperties = new Properties();
         producerProperties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBrokerConfig.getBootstrapServers());
         producerProperties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringSerializer");
         producerProperties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, "com.wnowakcraft.samples.restaurant.order.infrastructure.kafka.ProtobuffSerializer");
+        producerProperties.put(ProtobuffSerializer.ENVELOPE_VERSION_CONFIG, String.valueOf(serializationConfig.getEnvelopeVersion()));
+        producerProperties.put(ProtobuffSerializer.TYPE_HEADERS_ENABLED_CONFIG, String.valueOf(serializationConfig.isTypeHeadersEnabled()));
         //producerProperties.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, "orderServiceInstance1");
-        return new KafkaProducer<>(producerProperties);
+        return producerProperties;
     }
 }
@@ -0,0 +1,32 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import lombok.Value;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.inject.Inject;
+import java.time.Duration;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+@Value
+public class KafkaReadConfig {
+    private final boolean boundedByEndOffset;
+    private final Duration pollTimeout;
+    private final int maxConsecutiveEmptyPolls;
+
+    @Inject
+    public KafkaReadConfig(
+            @ConfigProperty(name = "service.infrastructure.kafka.read.boundedByEndOffset", defaultValue = "true")
+                    boolean boundedByEndOffset,
+            @ConfigProperty(name = "service.infrastructure.kafka.read.pollTimeoutMillis", defaultValue = "1000")
+                    long pollTimeoutMillis,
+            @ConfigProperty(name = "service.infrastructure.kafka.read.maxConsecutiveEmptyPolls", defaultValue = "3")
+                    int maxConsecutiveEmptyPolls) {
+        requireThat(pollTimeoutMillis > 0, "pollTimeoutMillis needs to be positive");
+        requireThat(maxConsecutiveEmptyPolls > 0, "maxConsecutiveEmptyPolls needs to be positive");
+
+        this.boundedByEndOffset = boundedByEndOffset;
+        this.pollTimeout = Duration.ofMillis(pollTimeoutMillis);
+        this.maxConsecutiveEmptyPolls = maxConsecutiveEmptyPolls;
+    }
+}
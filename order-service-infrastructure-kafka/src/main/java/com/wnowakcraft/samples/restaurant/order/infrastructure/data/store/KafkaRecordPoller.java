@@ -0,0 +1,79 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+
+/**
+ * Polls records from the partitions a consumer is assigned to, starting at the consumer's current position.
+ * <p>
+ * In the bounded mode the end offsets of the partitions are captured up front and polling stops as soon as the consumer's
+ * position reaches them, so a read takes as long as fetching the data takes. Otherwise polling goes on until a poll
+ * returns no records, which always costs one full poll timeout at the end of a read.
+ */
+@Slf4j
+@RequiredArgsConstructor(onConstructor_ = { @Inject})
+public class KafkaRecordPoller {
+    @NonNull private final KafkaReadConfig readConfig;
+
+    /**
+     * @param recordsHandler handles every polled batch of records and returns whether polling should continue
+     */
+    public <V> void pollRecords(Consumer<String, V> recordConsumer, Predicate<ConsumerRecords<String, V>> recordsHandler) {
+        requireNonNull(recordConsumer, "recordConsumer");
+        requireNonNull(recordsHandler, "recordsHandler");
+
+        if (readConfig.isBoundedByEndOffset()) {
+            pollRecordsUpToEndOffsets(recordConsumer, recordsHandler);
+        } else {
+            pollRecordsUntilNoneReturned(recordConsumer, recordsHandler);
+        }
+    }
+
+    private <V> void pollRecordsUpToEndOffsets(Consumer<String, V> recordConsumer, Predicate<ConsumerRecords<String, V>> recordsHandler) {
+        var endOffsets = recordConsumer.endOffsets(recordConsumer.assignment());
+        var consecutiveEmptyPolls = 0;
+
+        while (!hasReachedEndOffsets(recordConsumer, endOffsets)) {
+            var readRecords = recordConsumer.poll(readConfig.getPollTimeout());
+
+            if (readRecords.isEmpty()) {
+                if (++consecutiveEmptyPolls >= readConfig.getMaxConsecutiveEmptyPolls()) {
+                    log.warn("Stopped reading before reaching end offsets {} as {} consecutive polls returned no records",
+                            endOffsets, consecutiveEmptyPolls);
+                    return;
+                }
+                continue;
+            }
+
+            consecutiveEmptyPolls = 0;
+            if (!recordsHandler.test(readRecords)) {
+                return;
+            }
+        }
+    }
+
+    private static boolean hasReachedEndOffsets(Consumer<String, ?> recordConsumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .allMatch(endOffset -> recordConsumer.position(endOffset.getKey()) >= endOffset.getValue());
+    }
+
+    private <V> void pollRecordsUntilNoneReturned(Consumer<String, V> recordConsumer, Predicate<ConsumerRecords<String, V>> recordsHandler) {
+        ConsumerRecords<String, V> readRecords;
+
+        while (!(readRecords = recordConsumer.poll(readConfig.getPollTimeout())).isEmpty()) {
+            if (!recordsHandler.test(readRecords)) {
+                return;
+            }
+        }
+    }
+}
@@ -6,10 +6,8 @@ import com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion.M
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.Consumer;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
 
 import javax.inject.Inject;
-import java.time.Duration;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -19,8 +17,8 @@ import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
 
 @RequiredArgsConstructor(onConstructor_ = { @Inject})
 public class KafkaRecordReader<R> {
-    private static final Duration FOR_ONE_SECOND = Duration.ofSeconds(1);
     @NonNull private final MessageConverter<R, Message> snapshotMessageConverter;
+    @NonNull private final KafkaRecordPoller recordPoller;
 
     public Collection<R> readRecordsFrom(Consumer<String, Message> recordConsumer, DomainBoundBusinessId byBusinessId) {
         requireNonNull(recordConsumer, "recordConsumer");
@@ -43,19 +41,21 @@ public class KafkaRecordReader<R> {
                                           int recordsLimit) {
 
         Collection<R> records = new LinkedHashSet<>();
-        ConsumerRecords<String, Message> readRecords;
-        var remainingRecordsLimit = recordsLimit;
 
-        while(!(readRecords = recordConsumer.poll(FOR_ONE_SECOND)).isEmpty() && remainingRecordsLimit > 0) {
+        if(recordsLimit <= 0) {
+            return List.of();
+        }
+
+        recordPoller.pollRecords(recordConsumer, readRecords -> {
             StreamSupport.stream(readRecords.spliterator(), false)
                     //TODO Consider passing buisness object id explicitly
                     //.filter(record -> businessId.getValue().equals(record.key()))
                     .map(record -> snapshotMessageConverter.convert(record.value(), record.offset()))
-                    .limit(remainingRecordsLimit)
+                    .limit(recordsLimit - records.size())
                     .forEachOrdered(records::add);
 
-            remainingRecordsLimit = recordsLimit - records.size();
-        }
+            return records.size() < recordsLimit;
+        });
         return List.copyOf(records);
     }
 }
@@ -0,0 +1,27 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import lombok.Value;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.inject.Inject;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+@Value
+public class KafkaSerializationConfig {
+    private final int envelopeVersion;
+    private final boolean typeHeadersEnabled;
+
+    @Inject
+    public KafkaSerializationConfig(
+            @ConfigProperty(name = "service.infrastructure.kafka.serialization.envelopeVersion", defaultValue = "1")
+                    int envelopeVersion,
+            @ConfigProperty(name = "service.infrastructure.kafka.serialization.typeHeadersEnabled", defaultValue = "false")
+                    boolean typeHeadersEnabled) {
+        requireThat(envelopeVersion == 1 || envelopeVersion == 2, "envelopeVersion needs to be either 1 or 2");
+        requireThat(!typeHeadersEnabled || envelopeVersion == 2, "typeHeadersEnabled requires envelopeVersion of 2");
+
+        this.envelopeVersion = envelopeVersion;
+        this.typeHeadersEnabled = typeHeadersEnabled;
+    }
+}
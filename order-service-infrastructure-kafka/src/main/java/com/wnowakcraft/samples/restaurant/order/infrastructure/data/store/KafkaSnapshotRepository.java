@@ -15,15 +15,21 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import static com.google.common.collect.Iterables.getFirst;
 
@@ -41,6 +47,20 @@ public class KafkaSnapshotRepository<S extends Snapshot<? extends Snapshot.Id, A
     @NonNull private final KafkaRecordReader<S> kafkaRecordReader;
     @NonNull private final RecordSearchStrategyFactory recordSearchStrategyFactory;
     @NonNull private final MessageConverter<S, Message> snapshotMessageConverter;
+    @NonNull private final SnapshotVersionOffsetIndex versionOffsetIndex;
+    private Producer<String, Message> producer;
+
+    @PostConstruct
+    public void initializeKafkaProducer() {
+        producer = producerFactory.createProducer();
+    }
+
+    @PreDestroy
+    private void destroyKafkaProducer() {
+        if(producer != null) {
+            producer.close();
+        }
+    }
 
     @Override
     public Optional<S> findLatestSnapshotFor(AID aggregateId) {
@@ -61,7 +81,9 @@ public class KafkaSnapshotRepository<S extends Snapshot<? extends Snapshot.Id, A
         try(Consumer<String, Message> consumer = consumerFactory.createConsumerFor(shardRef)) {
             consumer.assignment().forEach(assignment -> consumer.seek(assignment, shardOffset));
 
-            lastSnapshot = snapshotExtractor.apply(kafkaRecordReader.readRecordsFrom(consumer, aggregateId), defaultSnapshotWhenNotFound);
+            var snapshots = kafkaRecordReader.readRecordsFrom(consumer, aggregateId);
+            getFirstAndIndexIt(snapshots, shardRef, shardOffset);
+            lastSnapshot = snapshotExtractor.apply(snapshots, defaultSnapshotWhenNotFound);
         }
 
         return Optional.ofNullable(lastSnapshot);
@@ -72,10 +94,14 @@ public class KafkaSnapshotRepository<S extends Snapshot<? extends Snapshot.Id, A
         Predicate<S> snapshotBeforeGivenSequenceNumberPredicate =
                 (snapshot) -> snapshot.getAggregateVersion().number < beforeGivenEventSequenceNumber.number;
 
-        return findLatestSnapshotWhichSatisfies(aggregateId, snapshotBeforeGivenSequenceNumberPredicate);
+        return findLatestSnapshotWhichSatisfies(aggregateId, snapshotBeforeGivenSequenceNumberPredicate, beforeGivenEventSequenceNumber.number);
     }
 
-    private Optional<S> findLatestSnapshotWhichSatisfies(AID aggregateId, Predicate<S> snapshotCriteria) {
+    /**
+     * @param targetVersion the lowest aggregate version not satisfying the criteria, which search strategies may use to
+     *                      interpolate the offset of the snapshot searched for
+     */
+    private Optional<S> findLatestSnapshotWhichSatisfies(AID aggregateId, Predicate<S> snapshotCriteria, long targetVersion) {
         var shardRef = shardManager.getShardForBusinessIdOf(aggregateId);
         var shardEndOffsetFuture = shardMetadataProvider.getLastRecordOffsetForShard(shardRef);
         var shardEndOffset = ShardMetadataProvider.offsetOf(shardEndOffsetFuture, DEFAULT_SHARD_OFFSET);
@@ -84,44 +110,96 @@ public class KafkaSnapshotRepository<S extends Snapshot<? extends Snapshot.Id, A
             return Optional.empty();
         }
 
+        var indexedBounds = versionOffsetIndex.getBoundsOf(shardRef, targetVersion);
+
         S latestFoundSnapshotFulfillingCriteria = null;
         try(Consumer<String, Message> consumer = consumerFactory.createConsumerFor(shardRef)) {
+            long searchEndOffset;
+            long searchEndVersion;
 
-            consumer.assignment().forEach(assignment -> consumer.seek(assignment, shardEndOffset));
-            var lastSnapshot = getFirst(kafkaRecordReader.readLimitedNumberOfRecordsFrom(consumer, aggregateId, READ_ONE_RECORD), nullWhenEmpty);
-
-            if(lastSnapshot != null && snapshotCriteria.test(lastSnapshot)) {
-                return Optional.of(lastSnapshot);
-            }
+            if (indexedBounds.hasCeiling() && indexedBounds.getCeilingOffset() <= shardEndOffset) {
+                searchEndOffset = indexedBounds.getCeilingOffset();
+                searchEndVersion = indexedBounds.getCeilingVersion();
+            } else {
+                var lastSnapshot = readSnapshotAt(consumer, shardRef, aggregateId, shardEndOffset).orElse(nullWhenEmpty);
 
-            SearchStrategy searchStrategy = recordSearchStrategyFactory.getSearchStrategyFor(0, shardEndOffset);
-            var nextOffsetToTry = searchStrategy.getNextOffsetToTry();
+                if(lastSnapshot != null && snapshotCriteria.test(lastSnapshot)) {
+                    return Optional.of(lastSnapshot);
+                }
 
-            while (nextOffsetToTry != SearchStrategy.NO_FURTHER_OFFSET_AVAILABLE) {
-                final var currentOffset = nextOffsetToTry;
-                consumer.assignment().forEach(assignment -> consumer.seek(assignment, currentOffset));
-                var foundSnapshots = kafkaRecordReader.readLimitedNumberOfRecordsFrom(consumer, aggregateId, READ_ONE_RECORD);
+                searchEndOffset = shardEndOffset;
+                searchEndVersion = lastSnapshot != null ? lastSnapshot.getAggregateVersion().number : SearchStrategy.KEY_UNKNOWN;
+            }
 
-                nextOffsetToTry = SearchStrategy.NO_FURTHER_OFFSET_AVAILABLE;
+            var searchStartOffset = indexedBounds.hasFloor() && indexedBounds.getFloorOffset() < searchEndOffset ? indexedBounds.getFloorOffset() : 0;
+            SearchStrategy searchStrategy = recordSearchStrategyFactory.getSearchStrategyFor(searchStartOffset, searchEndOffset, targetVersion, searchEndVersion);
+            var offsetsToTry = searchStrategy.getNextOffsetsToTry();
 
-                if(!foundSnapshots.isEmpty()) {
-                    var foundSnapshot = foundSnapshots.iterator().next();
+            while (!offsetsToTry.isEmpty()) {
+                var foundSnapshots = probeOffsets(consumer, shardRef, aggregateId, offsetsToTry);
+                var satisfyingProbesCount = 0;
+                var anyProbeFoundNothing = false;
+                var observedVersions = new ArrayList<Long>(foundSnapshots.size());
 
-                    if(snapshotCriteria.test(foundSnapshot)) {
-                        latestFoundSnapshotFulfillingCriteria = foundSnapshot;
-                        searchStrategy = searchStrategy.searchUpper();
-                    } else {
-                        searchStrategy = searchStrategy.searchLower();
+                for (var foundSnapshot : foundSnapshots) {
+                    if (foundSnapshot.isEmpty()) {
+                        anyProbeFoundNothing = true;
+                        break;
+                    }
+                    if (satisfyingProbesCount == observedVersions.size() && snapshotCriteria.test(foundSnapshot.get())) {
+                        latestFoundSnapshotFulfillingCriteria = foundSnapshot.get();
+                        satisfyingProbesCount++;
                     }
 
-                    nextOffsetToTry = searchStrategy.getNextOffsetToTry();
+                    observedVersions.add(foundSnapshot.get().getAggregateVersion().number);
                 }
+
+                if (anyProbeFoundNothing) {
+                    break;
+                }
+
+                searchStrategy = searchStrategy.narrowDown(satisfyingProbesCount, observedVersions);
+                offsetsToTry = searchStrategy.getNextOffsetsToTry();
             }
         }
 
         return Optional.ofNullable(latestFoundSnapshotFulfillingCriteria);
     }
 
+    /**
+     * A single offset is probed with the given consumer, several offsets are probed in parallel with pooled consumers.
+     */
+    private List<Optional<S>> probeOffsets(Consumer<String, Message> consumer, ShardRef shardRef, AID aggregateId, List<Long> offsetsToTry) {
+        if (offsetsToTry.size() == 1) {
+            return List.of(readSnapshotAt(consumer, shardRef, aggregateId, offsetsToTry.get(0)));
+        }
+
+        var probes = offsetsToTry.stream()
+                .map(offset -> consumerFactory.<Message, Optional<S>>doConsumerRead(
+                        shardRef, probeConsumer -> readSnapshotAt(probeConsumer, shardRef, aggregateId, offset)
+                ))
+                .collect(Collectors.toUnmodifiableList());
+
+        return probes.stream().map(CompletableFuture::join).collect(Collectors.toUnmodifiableList());
+    }
+
+    private Optional<S> readSnapshotAt(Consumer<String, Message> consumer, ShardRef shardRef, AID aggregateId, long offset) {
+        consumer.assignment().forEach(assignment -> consumer.seek(assignment, offset));
+        var snapshots = kafkaRecordReader.readLimitedNumberOfRecordsFrom(consumer, aggregateId, READ_ONE_RECORD);
+        return Optional.ofNullable(getFirstAndIndexIt(snapshots, shardRef, offset));
+    }
+
+    /**
+     * The first of the snapshots read is the one at the offset the consumer was positioned at.
+     */
+    private S getFirstAndIndexIt(Collection<S> snapshots, ShardRef shardRef, long readStartOffset) {
+        var firstSnapshot = getFirst(snapshots, nullWhenEmpty);
+        if (firstSnapshot != null) {
+            versionOffsetIndex.recordSnapshotAt(shardRef, firstSnapshot.getAggregateVersion().number, readStartOffset);
+        }
+        return firstSnapshot;
+    }
+
     @Override
     public Optional<S> findLatestSnapshotFor(AID aggregateId, Instant beforeGivenPointInTime) {
         Function<ShardRef, CompletableFuture<Long>> latestOffsetBeforeGivenPointInTimeProvider =
@@ -140,14 +218,31 @@ public class KafkaSnapshotRepository<S extends Snapshot<? extends Snapshot.Id, A
 
     @Override
     public void addNewSnapshot(S snapshot) {
-        var shardRef = shardManager.getShardForBusinessIdOf(snapshot.getAggregateId());
-
-        try(var recordProducer = producerFactory.<Message>createProducer()) {
-            var record =  new ProducerRecord<>(
-                    shardRef.topicName, shardRef.shardId, snapshot.getSnapshotId().getValue(), snapshotMessageConverter.convert(snapshot)
-            );
+        addNewSnapshotAsync(snapshot);
+    }
 
-            recordProducer.send(record, RecordAppendingLoggingHandler.getHandlerFor(record));
+    /**
+     * Sends the snapshot with the shared producer without waiting for the broker. The returned future is completed with
+     * the offset of the written snapshot record once the broker acknowledges it.
+     */
+    public CompletableFuture<Long> addNewSnapshotAsync(S snapshot) {
+        var shardRef = shardManager.getShardForBusinessIdOf(snapshot.getAggregateId());
+        var record =  new ProducerRecord<>(
+                shardRef.topicName, shardRef.shardId, snapshot.getSnapshotId().getValue(), snapshotMessageConverter.convert(snapshot)
+        );
+        var recordOffsetTrackerHandler = new RecordAppendingOffsetTrackerHandler(1);
+
+        try {
+            producer.send(record, recordOffsetTrackerHandler.getHandlerComposedWith(RecordAppendingLoggingHandler.getHandlerFor(record)));
+        } catch (RuntimeException ex) {
+            recordOffsetTrackerHandler.failWith(ex);
         }
+
+        return recordOffsetTrackerHandler.getOffsetOfLatestAppendedRecord().whenComplete((offset, failure) -> {
+            if (failure == null) {
+                shardMetadataProvider.recordAppended(shardRef, offset);
+                versionOffsetIndex.recordSnapshotAt(shardRef, snapshot.getAggregateVersion().number, offset);
+            }
+        });
     }
 }
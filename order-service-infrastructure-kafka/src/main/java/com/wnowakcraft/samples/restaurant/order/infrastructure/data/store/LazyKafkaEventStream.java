@@ -0,0 +1,94 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.google.protobuf.Message;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Event;
+import com.wnowakcraft.samples.restaurant.core.domain.model.EventStore.EventStream;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion.MessageConverter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+
+/**
+ * Event stream holding the raw records read from a shard, which decodes events only as they're iterated. Decoded events
+ * aren't retained, so an aggregate restored from the stream holds a single decoded event at a time - at the cost of
+ * decoding the events once more whenever they're iterated again. The first event is the one exception, as restoring an
+ * aggregate looks it up on its own before applying all the events, so it's decoded just once. The version is the offset
+ * of the last record, so it's known without decoding any event.
+ */
+class LazyKafkaEventStream<E extends Event<?>> implements EventStream<E> {
+    private final List<ConsumerRecord<String, byte[]>> records;
+    private final Deserializer<Message> messageDeserializer;
+    private final MessageConverter<E, Message> eventMessageConverter;
+    private final Aggregate.Version version;
+    private final Collection<E> events;
+
+    private LazyKafkaEventStream(List<ConsumerRecord<String, byte[]>> records,
+                                 Deserializer<Message> messageDeserializer,
+                                 MessageConverter<E, Message> eventMessageConverter) {
+        this.records = records;
+        this.messageDeserializer = messageDeserializer;
+        this.eventMessageConverter = eventMessageConverter;
+        this.version = Aggregate.Version.of(records.get(records.size() - 1).offset());
+        this.events = new DecodedOnAccessEvents();
+    }
+
+    /**
+     * @param records records of a single aggregate, in the order of their offsets
+     */
+    static <E extends Event<?>> EventStream<E> of(List<ConsumerRecord<String, byte[]>> records,
+                                                  Deserializer<Message> messageDeserializer,
+                                                  MessageConverter<E, Message> eventMessageConverter) {
+        requireNonNull(records, "records");
+        requireNonNull(messageDeserializer, "messageDeserializer");
+        requireNonNull(eventMessageConverter, "eventMessageConverter");
+
+        return records.isEmpty() ? emptyEventStream() : new LazyKafkaEventStream<>(records, messageDeserializer, eventMessageConverter);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Event<?>> EventStream<E> emptyEventStream() {
+        return (EventStream<E>) EMPTY;
+    }
+
+    @Override
+    public Aggregate.Version getVersion() {
+        return version;
+    }
+
+    @Override
+    public Collection<E> getEvents() {
+        return events;
+    }
+
+    private class DecodedOnAccessEvents extends AbstractList<E> {
+        private E firstEvent;
+
+        @Override
+        public E get(int index) {
+            if (index == 0) {
+                if (firstEvent == null) {
+                    firstEvent = decode(records.get(0));
+                }
+                return firstEvent;
+            }
+
+            return decode(records.get(index));
+        }
+
+        private E decode(ConsumerRecord<String, byte[]> record) {
+            var message = messageDeserializer.deserialize(record.topic(), record.headers(), record.value());
+            return eventMessageConverter.convert(message, record.offset());
+        }
+
+        @Override
+        public int size() {
+            return records.size();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.KafkaPartition;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Keeps the first known offset of every aggregate per shard, persisted to a local file.
+ * <p>
+ * Each shard's index covers the shard up to an offset the background scan has already gone through - appends done by
+ * this service are indexed straight away, but only the scan moves that offset forward, so records appended by anyone
+ * else are never missed. Reads of an aggregate start at its first indexed offset or right past the covered part of the
+ * shard, whichever is lower. Removing the index file simply makes the index rebuild itself from scratch, and so does
+ * loading the index of a shard which no longer holds the records it covers, e.g. as its topic has been recreated.
+ * <p>
+ * The scan reads record keys only, the values are never parsed.
+ * <p>
+ * Only the recently used shards are indexed, and a scan cycle goes through no more than a configured number of the
+ * shards read from or appended to since they were last scanned.
+ */
+@Slf4j
+public class LocalFileAggregateOffsetIndex implements AggregateOffsetIndex {
+    private static final int INDEX_FILE_FORMAT_VERSION = 1;
+    private final AggregateOffsetIndexConfig indexConfig;
+    private final KafkaConsumerFactory consumerFactory;
+    private final KafkaRecordPoller recordPoller;
+    private final Cache<ShardRef, ShardIndex> shardIndexes;
+    private final Set<ShardRef> shardsAwaitingScan = ConcurrentHashMap.newKeySet();
+    private final Queue<ShardRef> shardsToScan = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService indexMaintainer;
+
+    @Inject
+    public LocalFileAggregateOffsetIndex(AggregateOffsetIndexConfig indexConfig,
+                                         KafkaConsumerFactory consumerFactory,
+                                         KafkaRecordPoller recordPoller) {
+        this.indexConfig = requireNonNull(indexConfig, "indexConfig");
+        this.consumerFactory = requireNonNull(consumerFactory, "consumerFactory");
+        this.recordPoller = requireNonNull(recordPoller, "recordPoller");
+        this.shardIndexes = CacheBuilder.newBuilder()
+                .maximumSize(indexConfig.getMaxIndexedShards())
+                .expireAfterAccess(indexConfig.getIndexedShardIdleTimeout())
+                .build();
+    }
+
+    @PostConstruct
+    public void startIndexMaintenance() {
+        if (!indexConfig.isEnabled()) {
+            return;
+        }
+
+        loadIndexFile();
+
+        var scanIntervalMillis = indexConfig.getScanInterval().toMillis();
+        var persistIntervalMillis = indexConfig.getPersistInterval().toMillis();
+        indexMaintainer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("kafka-aggregate-offset-index-%d").setDaemon(true).build()
+        );
+        indexMaintainer.scheduleWithFixedDelay(this::scanShards, 0, scanIntervalMillis, MILLISECONDS);
+        indexMaintainer.scheduleWithFixedDelay(this::persistIndexFile, persistIntervalMillis, persistIntervalMillis, MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void stopIndexMaintenance() {
+        if (indexMaintainer != null) {
+            indexMaintainer.shutdownNow();
+            persistIndexFile();
+        }
+    }
+
+    @Override
+    public long getReadStartOffsetFor(ShardRef shardRef, String aggregateId) {
+        requireNonNull(shardRef, "shardRef");
+        requireNonNull(aggregateId, "aggregateId");
+
+        if (!indexConfig.isEnabled()) {
+            return 0;
+        }
+
+        return shardIndexOf(shardRef).getReadStartOffsetFor(aggregateId);
+    }
+
+    @Override
+    public void recordAppended(ShardRef shardRef, String aggregateId, long offset) {
+        requireNonNull(shardRef, "shardRef");
+        requireNonNull(aggregateId, "aggregateId");
+
+        if (indexConfig.isEnabled()) {
+            shardIndexOf(shardRef).add(aggregateId, offset);
+        }
+    }
+
+    private ShardIndex shardIndexOf(ShardRef shardRef) {
+        if (shardsAwaitingScan.add(shardRef)) {
+            shardsToScan.add(shardRef);
+        }
+        return shardIndexes.asMap().computeIfAbsent(shardRef, anyShardRef -> new ShardIndex());
+    }
+
+    void scanShards() {
+        for (var scannedShards = 0; scannedShards < indexConfig.getMaxShardsScannedPerCycle(); scannedShards++) {
+            var shardRef = shardsToScan.poll();
+            if (shardRef == null) {
+                return;
+            }
+            shardsAwaitingScan.remove(shardRef);
+
+            var shardIndex = shardIndexes.getIfPresent(shardRef);
+            if (shardIndex != null) {
+                scanShardLoggingFailure(shardRef, shardIndex);
+            }
+        }
+    }
+
+    private void scanShardLoggingFailure(ShardRef shardRef, ShardIndex shardIndex) {
+        try {
+            scanShard(shardRef, shardIndex);
+        } catch (RuntimeException ex) {
+            log.warn("Couldn't scan topic: {}, shardId: {} for the aggregate offset index. Reason: {}",
+                    shardRef.topicName, shardRef.shardId, ex.getMessage(), ex);
+        }
+    }
+
+    private void scanShard(ShardRef shardRef, ShardIndex shardIndex) {
+        consumerFactory.<Void>doPooledRawConsumerRead(shardRef, consumer -> {
+            var partition = KafkaPartition.of(shardRef);
+            consumer.seek(partition, shardIndex.getFirstUncoveredOffset());
+
+            recordPoller.pollRecords(consumer, readRecords -> {
+                readRecords.forEach(record -> {
+                    if (record.key() != null) {
+                        shardIndex.add(record.key(), record.offset());
+                    }
+                });
+                shardIndex.markCoveredUpTo(consumer.position(partition) - 1);
+                return true;
+            });
+            return null;
+        });
+    }
+
+    private void loadIndexFile() {
+        var indexFile = indexConfig.getIndexFile();
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+
+        var loadedShardIndexes = new HashMap<ShardRef, ShardIndex>();
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (input.readInt() != INDEX_FILE_FORMAT_VERSION) {
+                log.warn("Ignoring the aggregate offset index file {} of an unsupported format", indexFile);
+                return;
+            }
+
+            var shardsCount = input.readInt();
+            for (var i = 0; i < shardsCount; i++) {
+                var shardRef = new ShardRef(input.readUTF(), input.readInt());
+                loadedShardIndexes.put(shardRef, ShardIndex.readFrom(input));
+            }
+        } catch (IOException ex) {
+            log.warn("Couldn't load the aggregate offset index file {}, the index is going to be rebuilt. Reason: {}",
+                    indexFile, ex.getMessage(), ex);
+            return;
+        }
+
+        shardIndexes.putAll(matchingCurrentShardBounds(loadedShardIndexes));
+    }
+
+    private Map<ShardRef, ShardIndex> matchingCurrentShardBounds(Map<ShardRef, ShardIndex> loadedShardIndexes) {
+        if (loadedShardIndexes.isEmpty()) {
+            return loadedShardIndexes;
+        }
+
+        var partitions = loadedShardIndexes.keySet().stream().map(KafkaPartition::of).collect(Collectors.toUnmodifiableSet());
+
+        try (Consumer<String, byte[]> consumer = consumerFactory.createConsumer()) {
+            var logStartOffsets = consumer.beginningOffsets(partitions);
+            var endOffsets = consumer.endOffsets(partitions);
+            var matchingShardIndexes = new HashMap<ShardRef, ShardIndex>();
+
+            loadedShardIndexes.forEach((shardRef, shardIndex) -> {
+                var partition = KafkaPartition.of(shardRef);
+                if (shardIndex.isCoveredPartWithin(logStartOffsets.get(partition), endOffsets.get(partition))) {
+                    matchingShardIndexes.put(shardRef, shardIndex);
+                } else {
+                    log.warn("Index of topic: {}, shardId: {} doesn't match the records the shard holds, it's going to be rebuilt",
+                            shardRef.topicName, shardRef.shardId);
+                }
+            });
+            return matchingShardIndexes;
+        } catch (RuntimeException ex) {
+            log.warn("Couldn't check the aggregate offset index file {} against the shards, the index is going to be rebuilt. Reason: {}",
+                    indexConfig.getIndexFile(), ex.getMessage(), ex);
+            return Map.of();
+        }
+    }
+
+    void persistIndexFile() {
+        var indexFile = indexConfig.getIndexFile().toAbsolutePath();
+        var temporaryIndexFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+
+        try {
+            Files.createDirectories(indexFile.getParent());
+            writeIndexTo(temporaryIndexFile);
+            Files.move(temporaryIndexFile, indexFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Couldn't persist the aggregate offset index file {}. Reason: {}", indexFile, ex.getMessage(), ex);
+        }
+    }
+
+    private void writeIndexTo(Path file) throws IOException {
+        var shardIndexesToWrite = Map.copyOf(shardIndexes.asMap());
+
+        try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(INDEX_FILE_FORMAT_VERSION);
+            output.writeInt(shardIndexesToWrite.size());
+
+            for (var shardIndex : shardIndexesToWrite.entrySet()) {
+                output.writeUTF(shardIndex.getKey().topicName);
+                output.writeInt(shardIndex.getKey().shardId);
+                shardIndex.getValue().writeTo(output);
+            }
+        }
+    }
+
+    private static class ShardIndex {
+        private final Map<String, Long> firstOffsetsByAggregateId = new HashMap<>();
+        private long coveredUpToOffset = -1;
+
+        synchronized long getReadStartOffsetFor(String aggregateId) {
+            var firstOffset = firstOffsetsByAggregateId.get(aggregateId);
+            var firstUncoveredOffset = getFirstUncoveredOffset();
+
+            return firstOffset == null ? firstUncoveredOffset : Math.min(firstOffset, firstUncoveredOffset);
+        }
+
+        synchronized long getFirstUncoveredOffset() {
+            return coveredUpToOffset + 1;
+        }
+
+        synchronized void add(String aggregateId, long offset) {
+            firstOffsetsByAggregateId.merge(aggregateId, offset, Math::min);
+        }
+
+        synchronized boolean isCoveredPartWithin(Long logStartOffset, Long endOffset) {
+            return logStartOffset != null && endOffset != null
+                    && coveredUpToOffset >= logStartOffset - 1 && coveredUpToOffset < endOffset;
+        }
+
+        synchronized void markCoveredUpTo(long offset) {
+            coveredUpToOffset = Math.max(coveredUpToOffset, offset);
+        }
+
+        synchronized void writeTo(DataOutput output) throws IOException {
+            output.writeLong(coveredUpToOffset);
+            output.writeInt(firstOffsetsByAggregateId.size());
+
+            for (var firstOffset : firstOffsetsByAggregateId.entrySet()) {
+                output.writeUTF(firstOffset.getKey());
+                output.writeLong(firstOffset.getValue());
+            }
+        }
+
+        static ShardIndex readFrom(DataInput input) throws IOException {
+            var shardIndex = new ShardIndex();
+            shardIndex.coveredUpToOffset = input.readLong();
+
+            var aggregatesCount = input.readInt();
+            for (var i = 0; i < aggregatesCount; i++) {
+                shardIndex.firstOffsetsByAggregateId.put(input.readUTF(), input.readLong());
+            }
+            return shardIndex;
+        }
+    }
+}
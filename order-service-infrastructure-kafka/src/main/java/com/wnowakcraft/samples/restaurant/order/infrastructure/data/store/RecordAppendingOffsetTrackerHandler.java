@@ -2,22 +2,63 @@ package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
 
 import org.apache.kafka.clients.producer.Callback;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+/**
+ * Tracks acknowledgements of a batch of records being appended. The offset of the latest appended record is completed
+ * from the producer callback acknowledging the last record of the batch, or completed exceptionally as soon as appending
+ * any of the records fails.
+ */
 public class RecordAppendingOffsetTrackerHandler {
     private static final Callback NO_COMPOSED_HANDLER = (metadata, exception) -> { };
-    private long offsetOfLatestAppendedRecord;
+    private final CompletableFuture<Long> offsetOfLatestAppendedRecord = new CompletableFuture<>();
+    private final AtomicInteger pendingRecordsCount;
+    private final AtomicLong latestAppendedOffset = new AtomicLong(Long.MIN_VALUE);
+
+    public RecordAppendingOffsetTrackerHandler(int recordsCount) {
+        requireThat(recordsCount > 0, "recordsCount needs to be positive");
+
+        this.pendingRecordsCount = new AtomicInteger(recordsCount);
+    }
 
     public Callback getHandler() {
         return getHandlerComposedWith(NO_COMPOSED_HANDLER);
     }
 
     public Callback getHandlerComposedWith(Callback composedHandler) {
+        requireNonNull(composedHandler, "composedHandler");
+
         return (recordMetadata, exception) -> {
-            offsetOfLatestAppendedRecord = recordMetadata.offset();
-            composedHandler.onCompletion(recordMetadata, exception);
+            try {
+                composedHandler.onCompletion(recordMetadata, exception);
+            } finally {
+                if (exception == null) {
+                    recordAppended(recordMetadata.offset());
+                } else {
+                    failWith(exception);
+                }
+            }
         };
     }
 
-    long getOffsetOfLatestAppendedRecord() {
+    private void recordAppended(long offset) {
+        latestAppendedOffset.accumulateAndGet(offset, Math::max);
+
+        if (pendingRecordsCount.decrementAndGet() == 0) {
+            offsetOfLatestAppendedRecord.complete(latestAppendedOffset.get());
+        }
+    }
+
+    public void failWith(Throwable exception) {
+        offsetOfLatestAppendedRecord.completeExceptionally(exception);
+    }
+
+    public CompletableFuture<Long> getOffsetOfLatestAppendedRecord() {
         return offsetOfLatestAppendedRecord;
     }
 }
@@ -0,0 +1,110 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import javax.enterprise.inject.Alternative;
+import java.util.List;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+/**
+ * Searches the offset range probing the offset where the target key is expected, interpolated between the keys observed
+ * around the range. Snapshots are taken every fixed number of versions, so their versions grow at a nearly constant rate
+ * and the search usually ends after a few probes instead of log2(n).
+ * <p>
+ * Falls back to probing the middle of the range while the keys around it aren't known, and for a single round whenever
+ * interpolation failed to halve the range twice in a row, so uneven keys never take more than about 3 * log2(n) probes.
+ * Keys are expected to be non-negative, the key before the range start is taken as 0 until observed. The range searched
+ * excludes its end offset, which is expected to have been checked beforehand.
+ */
+@Alternative
+public class RecordInterpolationSearchStrategyFactory implements RecordSearchStrategyFactory {
+    private static final int MAX_NON_HALVING_ROUNDS = 2;
+
+    @Override
+    public SearchStrategy getSearchStrategyFor(long offsetRangeStart, long offsetRangeEnd) {
+        return getSearchStrategyFor(offsetRangeStart, offsetRangeEnd, SearchStrategy.KEY_UNKNOWN, SearchStrategy.KEY_UNKNOWN);
+    }
+
+    @Override
+    public SearchStrategy getSearchStrategyFor(long offsetRangeStart, long offsetRangeEnd, long targetKey, long offsetRangeEndKey) {
+        return new InterpolationSearchStrategy(
+                offsetRangeStart, SearchStrategy.KEY_UNKNOWN, offsetRangeEnd, offsetRangeEndKey, targetKey, 0
+        );
+    }
+
+    /**
+     * Offsets below {@code lowOffset} are known to satisfy the criteria - or weren't probed when it's the range start,
+     * offsets from {@code highOffset} onwards are known not to. {@code lowKey} is the key observed right below
+     * {@code lowOffset} and {@code highKey} the one observed at {@code highOffset}.
+     */
+    private static class InterpolationSearchStrategy implements SearchStrategy {
+        private final long lowOffset;
+        private final long lowKey;
+        private final long highOffset;
+        private final long highKey;
+        private final long targetKey;
+        private final int nonHalvingRounds;
+        private final boolean interpolated;
+        private final long nextOffset;
+
+        private InterpolationSearchStrategy(long lowOffset, long lowKey, long highOffset, long highKey, long targetKey,
+                                            int nonHalvingRounds) {
+            this.lowOffset = lowOffset;
+            this.lowKey = lowKey;
+            this.highOffset = highOffset;
+            this.highKey = highKey;
+            this.targetKey = targetKey;
+            this.nonHalvingRounds = nonHalvingRounds;
+            this.interpolated = canInterpolate();
+            this.nextOffset = interpolated ? interpolatedOffset() : lowOffset + (highOffset - lowOffset) / 2;
+        }
+
+        private boolean canInterpolate() {
+            return nonHalvingRounds < MAX_NON_HALVING_ROUNDS
+                    && targetKey != KEY_UNKNOWN && highKey != KEY_UNKNOWN && highKey > lowKeyOrZero();
+        }
+
+        private long lowKeyOrZero() {
+            return lowKey == KEY_UNKNOWN ? 0 : lowKey;
+        }
+
+        private long interpolatedOffset() {
+            var anchorOffset = lowOffset - 1;
+            var anchorKey = lowKeyOrZero();
+            var targetKeyOffset = anchorOffset + (double) (targetKey - anchorKey) * (highOffset - anchorOffset) / (highKey - anchorKey);
+            var offset = (long) Math.ceil(targetKeyOffset) - 1;
+
+            return Math.max(lowOffset, Math.min(offset, highOffset - 1));
+        }
+
+        @Override
+        public long getNextOffsetToTry() {
+            return lowOffset < highOffset ? nextOffset : NO_FURTHER_OFFSET_AVAILABLE;
+        }
+
+        @Override
+        public SearchStrategy narrowDown(int satisfyingProbesCount, List<Long> observedKeys) {
+            requireThat(satisfyingProbesCount == 0 || satisfyingProbesCount == 1, "A single offset is probed per round");
+
+            var observedKey = observedKeys.isEmpty() ? KEY_UNKNOWN : observedKeys.get(0);
+            var satisfied = satisfyingProbesCount == 1;
+            var newLowOffset = satisfied ? nextOffset + 1 : lowOffset;
+            var newHighOffset = satisfied ? highOffset : nextOffset;
+            var halved = (newHighOffset - newLowOffset) * 2 <= highOffset - lowOffset;
+            var newNonHalvingRounds = interpolated && !halved ? nonHalvingRounds + 1 : 0;
+
+            return satisfied
+                    ? new InterpolationSearchStrategy(newLowOffset, observedKey, newHighOffset, highKey, targetKey, newNonHalvingRounds)
+                    : new InterpolationSearchStrategy(newLowOffset, lowKey, newHighOffset, observedKey, targetKey, newNonHalvingRounds);
+        }
+
+        @Override
+        public SearchStrategy searchLower() {
+            return narrowDown(0, List.of());
+        }
+
+        @Override
+        public SearchStrategy searchUpper() {
+            return narrowDown(1, List.of());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.inject.Alternative;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+/**
+ * Searches the offset range probing several evenly spread offsets per round, so a range of n offsets takes about
+ * log(n) / log(probesPerRound + 1) rounds instead of log2(n). Worth it only when the probes of a round are fetched in
+ * parallel. The range searched excludes its end offset, which is expected to have been checked beforehand.
+ */
+@Alternative
+public class RecordKarySearchStrategyFactory implements RecordSearchStrategyFactory {
+    private final int probesPerRound;
+
+    @Inject
+    public RecordKarySearchStrategyFactory(
+            @ConfigProperty(name = "service.infrastructure.kafka.snapshotSearch.probesPerRound", defaultValue = "4")
+                    int probesPerRound) {
+        requireThat(probesPerRound > 0, "probesPerRound needs to be positive");
+
+        this.probesPerRound = probesPerRound;
+    }
+
+    @Override
+    public SearchStrategy getSearchStrategyFor(long offsetRangeStart, long offsetRangeEnd) {
+        return new KarySearchStrategy(offsetRangeStart, offsetRangeEnd, probesPerRound);
+    }
+
+    /**
+     * Offsets below {@code lowOffset} are known to satisfy the criteria - or weren't probed when it's the range start,
+     * offsets from {@code highOffset} onwards are known not to.
+     */
+    private static class KarySearchStrategy implements SearchStrategy {
+        private final long lowOffset;
+        private final long highOffset;
+        private final int probesPerRound;
+        private final List<Long> offsetsToTry;
+
+        private KarySearchStrategy(long lowOffset, long highOffset, int probesPerRound) {
+            this.lowOffset = lowOffset;
+            this.highOffset = highOffset;
+            this.probesPerRound = probesPerRound;
+            this.offsetsToTry = spreadProbesOver(lowOffset, highOffset, probesPerRound);
+        }
+
+        private static List<Long> spreadProbesOver(long lowOffset, long highOffset, int probesCount) {
+            var rangeLength = highOffset - lowOffset;
+            var offsets = new ArrayList<Long>(probesCount);
+
+            for (int i = 1; i <= probesCount && rangeLength > 0; i++) {
+                var offset = lowOffset + (rangeLength * i) / (probesCount + 1);
+                if (offsets.isEmpty() || offsets.get(offsets.size() - 1) < offset) {
+                    offsets.add(offset);
+                }
+            }
+
+            return List.copyOf(offsets);
+        }
+
+        @Override
+        public List<Long> getNextOffsetsToTry() {
+            return offsetsToTry;
+        }
+
+        @Override
+        public SearchStrategy narrowDown(int satisfyingProbesCount) {
+            requireThat(satisfyingProbesCount >= 0 && satisfyingProbesCount <= offsetsToTry.size(),
+                    "satisfyingProbesCount needs to be within the number of probed offsets");
+
+            var newLowOffset = satisfyingProbesCount > 0 ? offsetsToTry.get(satisfyingProbesCount - 1) + 1 : lowOffset;
+            var newHighOffset = satisfyingProbesCount < offsetsToTry.size() ? offsetsToTry.get(satisfyingProbesCount) : highOffset;
+            return new KarySearchStrategy(newLowOffset, newHighOffset, probesPerRound);
+        }
+
+        @Override
+        public long getNextOffsetToTry() {
+            var middleOffset = middleOffset();
+            return middleOffset < highOffset ? middleOffset : NO_FURTHER_OFFSET_AVAILABLE;
+        }
+
+        @Override
+        public SearchStrategy searchLower() {
+            return new KarySearchStrategy(lowOffset, middleOffset(), probesPerRound);
+        }
+
+        @Override
+        public SearchStrategy searchUpper() {
+            return new KarySearchStrategy(middleOffset() + 1, highOffset, probesPerRound);
+        }
+
+        private long middleOffset() {
+            return lowOffset + (highOffset - lowOffset) / 2;
+        }
+    }
+}
@@ -1,13 +1,53 @@
 package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
 
+import java.util.List;
+
 public interface RecordSearchStrategyFactory {
     SearchStrategy getSearchStrategyFor(long offsetRangeStart, long offsetRangeEnd);
 
+    /**
+     * Search strategy for the latest offset holding a key lower than {@code targetKey}, where keys never decrease with
+     * offsets. Strategies making no use of keys search the offset range alone, as they do by default.
+     *
+     * @param offsetRangeEndKey key held at the range end offset, or {@link SearchStrategy#KEY_UNKNOWN}
+     */
+    default SearchStrategy getSearchStrategyFor(long offsetRangeStart, long offsetRangeEnd, long targetKey, long offsetRangeEndKey) {
+        return getSearchStrategyFor(offsetRangeStart, offsetRangeEnd);
+    }
+
     interface SearchStrategy {
         long NO_FURTHER_OFFSET_AVAILABLE = -1;
+        long KEY_UNKNOWN = Long.MIN_VALUE;
 
         SearchStrategy searchLower();
         SearchStrategy searchUpper();
         long getNextOffsetToTry();
+
+        /**
+         * @return offsets to be probed within one round of the search, in ascending order, or an empty list when the
+         * search is over. A single offset per round by default.
+         */
+        default List<Long> getNextOffsetsToTry() {
+            var nextOffsetToTry = getNextOffsetToTry();
+            return nextOffsetToTry == NO_FURTHER_OFFSET_AVAILABLE ? List.of() : List.of(nextOffsetToTry);
+        }
+
+        /**
+         * Narrows the search down after a round of probing the offsets returned by {@link #getNextOffsetsToTry()}.
+         *
+         * @param satisfyingProbesCount how many of the probed offsets, counting from the lowest one, turned out to
+         *                              satisfy the search criteria
+         */
+        default SearchStrategy narrowDown(int satisfyingProbesCount) {
+            return satisfyingProbesCount > 0 ? searchUpper() : searchLower();
+        }
+
+        /**
+         * Same as {@link #narrowDown(int)}, but also reports the keys observed by the probes, in the order of the probed
+         * offsets. Strategies making no use of keys ignore them by default.
+         */
+        default SearchStrategy narrowDown(int satisfyingProbesCount, List<Long> observedKeys) {
+            return narrowDown(satisfyingProbesCount);
+        }
     }
 }
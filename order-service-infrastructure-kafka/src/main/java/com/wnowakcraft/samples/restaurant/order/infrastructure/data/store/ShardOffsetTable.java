@@ -0,0 +1,117 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardMetadataProvider;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+import static com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardMetadataProvider.SHARD_OFFSET_UNKNOWN;
+import static java.lang.String.format;
+
+/**
+ * Tracks the offset of the last record appended to each shard, so appends can be checked for concurrent modifications
+ * without asking the broker first. The broker is asked only when a shard isn't tracked yet.
+ * <p>
+ * A tracked offset is never lowered, as it covers the reservations the broker hasn't acknowledged yet - appends which
+ * failed drop the tracked offset of their shard instead, so it's asked for again.
+ * <p>
+ * An empty shard is tracked like any other, with the last record offset of {@link ShardMetadataProvider#SHARD_OFFSET_UNKNOWN}.
+ * When the offset of a shard can't be looked up, appends to it are rejected instead of going unchecked.
+ * <p>
+ * Checking and reserving offsets for an append is atomic per shard, hence two concurrent appends expecting the same
+ * offset can't both pass. The offsets are only as accurate as the assumption that this service is the single writer of
+ * the shard - records appended by anyone else are noticed no sooner than the next broker lookup.
+ */
+@Slf4j
+@RequiredArgsConstructor(onConstructor_ = { @Inject})
+public class ShardOffsetTable {
+    @NonNull private final ShardMetadataProvider shardMetadataProvider;
+    private final ConcurrentMap<ShardRef, Long> lastKnownOffsets = new ConcurrentHashMap<>();
+
+    /**
+     * @throws ConcurrentLogAppendingException when the shard has already moved past the expected offset
+     * @throws IllegalStateException when the shard isn't tracked and its offset can't be looked up
+     */
+    public void reserveOffsetsFor(ShardRef shardRef, long expectedOffset, int recordsCount) {
+        requireNonNull(shardRef, "shardRef");
+        requireThat(recordsCount >= 0, "recordsCount cannot be negative");
+
+        var reservation = tryReserveOffsetsFor(shardRef, expectedOffset, recordsCount);
+
+        if (reservation == Reservation.UNKNOWN_OFFSET) {
+            refreshFromBroker(shardRef);
+            reservation = tryReserveOffsetsFor(shardRef, expectedOffset, recordsCount);
+        }
+
+        if (reservation == Reservation.UNKNOWN_OFFSET) {
+            throw new IllegalStateException(format("Offset of topic: %s, shardId: %d is unknown", shardRef.topicName, shardRef.shardId));
+        }
+
+        if (reservation == Reservation.CONFLICT) {
+            shardMetadataProvider.invalidate(shardRef);
+            throw new ConcurrentLogAppendingException(shardRef, lastKnownOffsets.getOrDefault(shardRef, SHARD_OFFSET_UNKNOWN), expectedOffset);
+        }
+    }
+
+    private Reservation tryReserveOffsetsFor(ShardRef shardRef, long expectedOffset, int recordsCount) {
+        var reservation = new AtomicReference<>(Reservation.UNKNOWN_OFFSET);
+
+        lastKnownOffsets.computeIfPresent(shardRef, (anyShardRef, lastKnownOffset) -> {
+            if (lastKnownOffset > expectedOffset) {
+                reservation.set(Reservation.CONFLICT);
+                return lastKnownOffset;
+            }
+
+            reservation.set(Reservation.RESERVED);
+            return lastKnownOffset + recordsCount;
+        });
+
+        return reservation.get();
+    }
+
+    /**
+     * Lookups of the last record offset which fail complete exceptionally, so the offset found is recorded even when it's
+     * {@link ShardMetadataProvider#SHARD_OFFSET_UNKNOWN}, which stands for an empty shard then.
+     */
+    private void refreshFromBroker(ShardRef shardRef) {
+        try {
+            var lastRecordOffset = shardMetadataProvider.getLastRecordOffsetForShard(shardRef).get();
+            lastKnownOffsets.merge(shardRef, lastRecordOffset, Math::max);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Looking offset of topic: {}, shardId: {} up has been interrupted", shardRef.topicName, shardRef.shardId);
+        } catch (ExecutionException ex) {
+            log.warn("Couldn't obtain an offset for a topic: {}, shardId: {}. Reason: {}",
+                    shardRef.topicName, shardRef.shardId, ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
+    public void recordAppended(ShardRef shardRef, long offset) {
+        requireNonNull(shardRef, "shardRef");
+
+        lastKnownOffsets.merge(shardRef, offset, Math::max);
+    }
+
+    public void invalidate(ShardRef shardRef) {
+        requireNonNull(shardRef, "shardRef");
+
+        if (lastKnownOffsets.remove(shardRef) != null) {
+            log.debug("Offset of topic: {}, shardId: {} is no longer known", shardRef.topicName, shardRef.shardId);
+        }
+    }
+
+    private enum Reservation {
+        RESERVED,
+        CONFLICT,
+        UNKNOWN_OFFSET
+    }
+}
@@ -0,0 +1,142 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.store.RecordSearchStrategyFactory.SearchStrategy;
+import lombok.Value;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+/**
+ * Remembers at which offsets snapshots of given aggregate versions were seen in snapshot shards, so looking for the
+ * latest snapshot before a given version can start from the offsets known to surround it instead of the whole shard.
+ * <p>
+ * The index of a shard is sparse - once it's full, every other entry is forgotten, keeping the remembered versions
+ * spread over the whole shard. Versions of snapshots never decrease with their offsets, hence the entries are kept in
+ * two sorted primitive arrays. Only the recently used shards are indexed.
+ */
+public class SnapshotVersionOffsetIndex {
+    public static final long OFFSET_UNKNOWN = -1;
+
+    private final Cache<ShardRef, ShardIndex> shardIndexes;
+    private final int maxEntriesPerShard;
+
+    @Inject
+    public SnapshotVersionOffsetIndex(
+            @ConfigProperty(name = "service.infrastructure.kafka.snapshotIndex.maxIndexedShards", defaultValue = "10000")
+                    long maxIndexedShards,
+            @ConfigProperty(name = "service.infrastructure.kafka.snapshotIndex.maxEntriesPerShard", defaultValue = "64")
+                    int maxEntriesPerShard) {
+        requireThat(maxIndexedShards >= 0, "maxIndexedShards cannot be negative");
+        requireThat(maxEntriesPerShard >= 2, "maxEntriesPerShard needs to be at least 2");
+
+        this.shardIndexes = CacheBuilder.newBuilder().maximumSize(maxIndexedShards).build();
+        this.maxEntriesPerShard = maxEntriesPerShard;
+    }
+
+    public void recordSnapshotAt(ShardRef shardRef, long aggregateVersion, long offset) {
+        requireNonNull(shardRef, "shardRef");
+        requireThat(offset >= 0, "offset cannot be negative");
+
+        shardIndexes.asMap()
+                .computeIfAbsent(shardRef, anyShardRef -> new ShardIndex(maxEntriesPerShard))
+                .record(aggregateVersion, offset);
+    }
+
+    /**
+     * @return offsets of the latest snapshot known to be of a version lower than the given one, and of the first one
+     * known to be of the given version or higher, together with its version; either offset is {@link #OFFSET_UNKNOWN}
+     * when no such snapshot is known
+     */
+    public VersionBounds getBoundsOf(ShardRef shardRef, long aggregateVersion) {
+        requireNonNull(shardRef, "shardRef");
+
+        var shardIndex = shardIndexes.getIfPresent(shardRef);
+        return shardIndex != null ? shardIndex.getBoundsOf(aggregateVersion) : VersionBounds.UNKNOWN;
+    }
+
+    public void invalidate(ShardRef shardRef) {
+        requireNonNull(shardRef, "shardRef");
+
+        shardIndexes.invalidate(shardRef);
+    }
+
+    @Value
+    public static class VersionBounds {
+        static final VersionBounds UNKNOWN = new VersionBounds(OFFSET_UNKNOWN, OFFSET_UNKNOWN, SearchStrategy.KEY_UNKNOWN);
+
+        private final long floorOffset;
+        private final long ceilingOffset;
+        private final long ceilingVersion;
+
+        public boolean hasFloor() {
+            return floorOffset != OFFSET_UNKNOWN;
+        }
+
+        public boolean hasCeiling() {
+            return ceilingOffset != OFFSET_UNKNOWN;
+        }
+    }
+
+    private static class ShardIndex {
+        private final long[] versions;
+        private final long[] offsets;
+        private int size;
+
+        private ShardIndex(int capacity) {
+            this.versions = new long[capacity];
+            this.offsets = new long[capacity];
+        }
+
+        private synchronized void record(long version, long offset) {
+            var index = Arrays.binarySearch(versions, 0, size, version);
+            if (index >= 0) {
+                offsets[index] = Math.min(offsets[index], offset);
+                return;
+            }
+
+            if (size == versions.length) {
+                thinOut();
+                index = Arrays.binarySearch(versions, 0, size, version);
+            }
+
+            var insertionPoint = -index - 1;
+            System.arraycopy(versions, insertionPoint, versions, insertionPoint + 1, size - insertionPoint);
+            System.arraycopy(offsets, insertionPoint, offsets, insertionPoint + 1, size - insertionPoint);
+            versions[insertionPoint] = version;
+            offsets[insertionPoint] = offset;
+            size++;
+        }
+
+        /**
+         * Keeps every other entry, counting from the latest one so the latest known snapshot is never forgotten.
+         */
+        private void thinOut() {
+            var keptCount = 0;
+            for (int i = (size - 1) % 2; i < size; i += 2) {
+                versions[keptCount] = versions[i];
+                offsets[keptCount] = offsets[i];
+                keptCount++;
+            }
+            size = keptCount;
+        }
+
+        private synchronized VersionBounds getBoundsOf(long version) {
+            var index = Arrays.binarySearch(versions, 0, size, version);
+            var ceilingIndex = index >= 0 ? index : -index - 1;
+            var floorIndex = ceilingIndex - 1;
+
+            return new VersionBounds(
+                    floorIndex >= 0 ? offsets[floorIndex] : OFFSET_UNKNOWN,
+                    ceilingIndex < size ? offsets[ceilingIndex] : OFFSET_UNKNOWN,
+                    ceilingIndex < size ? versions[ceilingIndex] : SearchStrategy.KEY_UNKNOWN
+            );
+        }
+    }
+}
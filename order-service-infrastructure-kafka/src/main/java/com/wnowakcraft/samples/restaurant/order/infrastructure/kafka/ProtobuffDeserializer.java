@@ -1,23 +1,56 @@
 package com.wnowakcraft.samples.restaurant.order.infrastructure.kafka;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import com.google.protobuf.WireFormat;
 import com.wnowakcraft.samples.restaurant.common.infrastructure.data.message.MessageEnvelope;
+import com.wnowakcraft.samples.restaurant.common.infrastructure.data.message.MessageEnvelopeV2;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.kafka.ProtobuffMessageTypeRegistry.TypeId;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.Deserializer;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static java.lang.String.format;
 
+/**
+ * Reads messages written in any of the ways {@link ProtobuffSerializer} writes them - bare messages typed by the record
+ * headers, or messages within either of the envelopes, told apart by the magic byte only the compact one starts with.
+ * <p>
+ * With {@link #ACCEPTED_TYPES_CONFIG} set to comma separated names of message classes, records of other types are
+ * deserialized to {@code null} without their payload being parsed.
+ */
 @Slf4j
 public class ProtobuffDeserializer implements Deserializer<Message> {
-    private static final String PARSE_FROM_METHOD_NAME = "parseFrom";
+    public static final String ACCEPTED_TYPES_CONFIG = "protobuff.acceptedTypes";
+    private static final int NO_PAYLOAD = -1;
+
+    private Set<String> acceptedTypeNames;
+    private Set<Integer> acceptedTypeIds;
 
     @Override
     public void configure(Map<String, ?> configs, boolean isKey) {
+        var acceptedTypes = configs.get(ACCEPTED_TYPES_CONFIG);
+        if (acceptedTypes == null) {
+            return;
+        }
+
+        acceptedTypeNames = Arrays.stream(acceptedTypes.toString().split(","))
+                .map(String::trim)
+                .filter(typeName -> !typeName.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        acceptedTypeIds = acceptedTypeNames.stream()
+                .flatMap(typeName -> ProtobuffMessageTypeRegistry.getTypeIdOf(typeName).stream())
+                .map(TypeId::getId)
+                .collect(Collectors.toUnmodifiableSet());
     }
 
     @Override
@@ -27,38 +60,104 @@ public class ProtobuffDeserializer implements Deserializer<Message> {
 
     private Message tryDeserializeMessage(byte[] bytes) {
         try {
-            return deserializeMessage(bytes);
-        } catch (InvalidProtocolBufferException ex) {
+            return bytes.length > 0 && bytes[0] == ProtobuffSerializer.ENVELOPE_V2_MAGIC_BYTE
+                    ? deserializeMessageFromEnvelopeV2(bytes)
+                    : deserializeMessage(bytes);
+        } catch (IOException ex) {
             throw new MessageDeserializationException(
                     format("Couldn't deserialize data. Data buffer may be corrupted. Details: %s", ex.getMessage()),
                     ex
             );
-        } catch (ClassNotFoundException | NoSuchMethodException ex) {
+        }
+    }
+
+    private Message deserializeMessage(byte[] bytes) throws InvalidProtocolBufferException {
+        var messageEnvelope = MessageEnvelope.parseFrom(bytes);
+        if (!isAccepted(messageEnvelope.getPayloadTypeQualifiedName())) {
+            return null;
+        }
+
+        var parser = ProtobuffMessageTypeRegistry.getParserFor(messageEnvelope.getPayloadTypeQualifiedName());
+        return parser.parseFrom(messageEnvelope.getPayload().getValue());
+    }
+
+    /**
+     * Only finds where the payload is within the envelope, so it's parsed straight from the record bytes instead of
+     * being copied out of them first.
+     */
+    private Message deserializeMessageFromEnvelopeV2(byte[] bytes) throws IOException {
+        var input = CodedInputStream.newInstance(bytes, 1, bytes.length - 1);
+        var payloadTypeId = 0;
+        var payloadOffset = NO_PAYLOAD;
+        var payloadLength = 0;
+
+        for (var tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case MessageEnvelopeV2.PAYLOAD_TYPE_ID_FIELD_NUMBER:
+                    payloadTypeId = input.readUInt32();
+                    break;
+                case MessageEnvelopeV2.PAYLOAD_FIELD_NUMBER:
+                    payloadLength = input.readRawVarint32();
+                    payloadOffset = 1 + input.getTotalBytesRead();
+                    input.skipRawBytes(payloadLength);
+                    break;
+                default:
+                    input.skipField(tag);
+            }
+        }
+
+        if (!isAccepted(payloadTypeId)) {
+            return null;
+        }
+
+        var parser = ProtobuffMessageTypeRegistry.getParserFor(payloadTypeId);
+        return payloadOffset != NO_PAYLOAD
+                ? parser.parseFrom(bytes, payloadOffset, payloadLength)
+                : parser.parseFrom(bytes, 0, 0);
+    }
+
+    @Override
+    public Message deserialize(String topic, Headers headers, byte[] data) {
+        var payloadTypeIdHeader = headers != null ? headers.lastHeader(ProtobuffSerializer.PAYLOAD_TYPE_ID_HEADER) : null;
+
+        return payloadTypeIdHeader != null
+                ? tryDeserializeBareMessage(payloadTypeIdOf(payloadTypeIdHeader), data)
+                : tryDeserializeMessage(data);
+    }
+
+    private Message tryDeserializeBareMessage(int payloadTypeId, byte[] bytes) {
+        if (!isAccepted(payloadTypeId)) {
+            return null;
+        }
+
+        try {
+            return ProtobuffMessageTypeRegistry.getParserFor(payloadTypeId).parseFrom(bytes);
+        } catch (InvalidProtocolBufferException ex) {
             throw new MessageDeserializationException(
-                    format("Invalid configuration of Protobuff object messages. Missing Protobuff classes on the classpath? " +
-                            "Not the Protobuff serialization? Details: %s", ex.getMessage()),
+                    format("Couldn't deserialize data. Data buffer may be corrupted. Details: %s", ex.getMessage()),
                     ex
             );
-        } catch (IllegalAccessException |InvocationTargetException ex) {
+        }
+    }
+
+    private static int payloadTypeIdOf(Header payloadTypeIdHeader) {
+        var headerValue = payloadTypeIdHeader.value();
+        if (headerValue == null || headerValue.length != Integer.BYTES) {
             throw new MessageDeserializationException(
-                    format("Not allowed access to %s method of Protobuff class. Details: %s", PARSE_FROM_METHOD_NAME, ex.getMessage()),
-                    ex
+                    format("Invalid %s record header. Header may be corrupted.", ProtobuffSerializer.PAYLOAD_TYPE_ID_HEADER),
+                    null
             );
         }
-    }
 
-    private Message deserializeMessage(byte[] bytes) throws InvalidProtocolBufferException, ClassNotFoundException, NoSuchMethodException, IllegalAccessException, InvocationTargetException {
-        var messageEnvelope = MessageEnvelope.parseFrom(bytes);
-        var parseMethod =
-                Class.forName(messageEnvelope.getPayloadTypeQualifiedName())
-                .getMethod(PARSE_FROM_METHOD_NAME, byte[].class);
+        return ByteBuffer.wrap(headerValue).getInt();
+    }
 
-        return (Message) parseMethod.invoke(null, new Object[]{ messageEnvelope.getPayload().getValue().toByteArray()  });
+    private boolean isAccepted(int payloadTypeId) {
+        return acceptedTypeIds == null || acceptedTypeIds.contains(payloadTypeId);
     }
 
-    @Override
-    public Message deserialize(String topic, Headers headers, byte[] data) {
-        return tryDeserializeMessage(data);
+    private boolean isAccepted(String payloadTypeName) {
+        return acceptedTypeNames == null || acceptedTypeNames.contains(payloadTypeName);
     }
 
     @Override
@@ -0,0 +1,120 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.kafka;
+
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.message.OrderApprovedEventMessage;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.message.OrderCreatedEventMessage;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.message.OrderSnapshotMessage;
+import lombok.Value;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+import static java.lang.String.format;
+
+/**
+ * Maps payload type names carried by message envelopes to parsers of their Protobuff messages. The messages of this
+ * service are registered up front, any other message type is resolved reflectively the first time it's encountered.
+ * <p>
+ * Message types registered with a type id can be sent within the compact envelope, which carries the id instead of the
+ * type name. Ids are stored along with the messages, so they can never be changed nor reused once assigned.
+ */
+public final class ProtobuffMessageTypeRegistry {
+    private static final String GET_DEFAULT_INSTANCE_METHOD_NAME = "getDefaultInstance";
+    private static final ConcurrentMap<String, Parser<? extends Message>> PARSERS_BY_TYPE_NAME = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Integer, Parser<? extends Message>> PARSERS_BY_TYPE_ID = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, TypeId> TYPE_IDS_BY_TYPE_NAME = new ConcurrentHashMap<>();
+
+    static {
+        register(1, OrderCreatedEventMessage.getDefaultInstance());
+        register(2, OrderApprovedEventMessage.getDefaultInstance());
+        register(3, OrderSnapshotMessage.getDefaultInstance());
+    }
+
+    private ProtobuffMessageTypeRegistry() {
+    }
+
+    public static void register(Message defaultInstance) {
+        requireNonNull(defaultInstance, "defaultInstance");
+
+        PARSERS_BY_TYPE_NAME.put(defaultInstance.getClass().getName(), defaultInstance.getParserForType());
+    }
+
+    public static void register(int typeId, Message defaultInstance) {
+        register(typeId, 0, defaultInstance);
+    }
+
+    public static void register(int typeId, int schemaVersion, Message defaultInstance) {
+        requireThat(typeId > 0, "typeId needs to be positive");
+        requireThat(schemaVersion >= 0, "schemaVersion cannot be negative");
+        requireNonNull(defaultInstance, "defaultInstance");
+
+        var alreadyRegisteredParser = PARSERS_BY_TYPE_ID.putIfAbsent(typeId, defaultInstance.getParserForType());
+        requireThat(
+                alreadyRegisteredParser == null || alreadyRegisteredParser == defaultInstance.getParserForType(),
+                format("Type id %d is already assigned to another message type", typeId)
+        );
+
+        register(defaultInstance);
+        TYPE_IDS_BY_TYPE_NAME.put(defaultInstance.getClass().getName(), new TypeId(typeId, schemaVersion));
+    }
+
+    public static Optional<TypeId> getTypeIdOf(Message message) {
+        requireNonNull(message, "message");
+
+        return getTypeIdOf(message.getClass().getName());
+    }
+
+    public static Optional<TypeId> getTypeIdOf(String payloadTypeName) {
+        requireNonNull(payloadTypeName, "payloadTypeName");
+
+        return Optional.ofNullable(TYPE_IDS_BY_TYPE_NAME.get(payloadTypeName));
+    }
+
+    public static Parser<? extends Message> getParserFor(String payloadTypeName) {
+        requireNonNull(payloadTypeName, "payloadTypeName");
+
+        var parser = PARSERS_BY_TYPE_NAME.get(payloadTypeName);
+        return parser != null ? parser : PARSERS_BY_TYPE_NAME.computeIfAbsent(payloadTypeName, ProtobuffMessageTypeRegistry::resolveParserFor);
+    }
+
+    public static Parser<? extends Message> getParserFor(int payloadTypeId) {
+        var parser = PARSERS_BY_TYPE_ID.get(payloadTypeId);
+        if (parser == null) {
+            throw new MessageDeserializationException(
+                    format("No Protobuff message type is registered with type id %d. Message produced by a newer service version?", payloadTypeId),
+                    null
+            );
+        }
+
+        return parser;
+    }
+
+    private static Parser<? extends Message> resolveParserFor(String payloadTypeName) {
+        try {
+            var defaultInstance = Class.forName(payloadTypeName).getMethod(GET_DEFAULT_INSTANCE_METHOD_NAME).invoke(null);
+            return ((Message) defaultInstance).getParserForType();
+        } catch (ClassNotFoundException | NoSuchMethodException | ClassCastException ex) {
+            throw new MessageDeserializationException(
+                    format("Invalid configuration of Protobuff object messages. Missing Protobuff classes on the classpath? " +
+                            "Not the Protobuff serialization? Details: %s", ex.getMessage()),
+                    ex
+            );
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            throw new MessageDeserializationException(
+                    format("Not allowed access to %s method of Protobuff class. Details: %s", GET_DEFAULT_INSTANCE_METHOD_NAME, ex.getMessage()),
+                    ex
+            );
+        }
+    }
+
+    @Value
+    public static class TypeId {
+        private final int id;
+        private final int schemaVersion;
+    }
+}
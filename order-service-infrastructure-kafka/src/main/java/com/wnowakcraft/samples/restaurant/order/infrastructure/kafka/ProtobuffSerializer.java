@@ -1,16 +1,50 @@
 package com.wnowakcraft.samples.restaurant.order.infrastructure.kafka;
 
 import com.google.protobuf.Any;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Message;
 import com.wnowakcraft.samples.restaurant.common.infrastructure.data.message.MessageEnvelope;
+import com.wnowakcraft.samples.restaurant.common.infrastructure.data.message.MessageEnvelopeV2;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.kafka.ProtobuffMessageTypeRegistry.TypeId;
 import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.Serializer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.Optional;
 
+/**
+ * Writes messages within the {@link MessageEnvelope}. Setting {@link #ENVELOPE_VERSION_CONFIG} to 2 makes messages of
+ * types registered with a type id written within the compact {@link MessageEnvelopeV2} instead, preceded by
+ * {@link #ENVELOPE_V2_MAGIC_BYTE} - which is to be done only once no consumer unable to read the compact envelope is
+ * running anymore.
+ * <p>
+ * With {@link #TYPE_HEADERS_ENABLED_CONFIG} set as well, the type id and schema version of such messages go to the
+ * record headers instead, and the record value is the bare message, so readers learn its type without touching the
+ * value.
+ */
 public class ProtobuffSerializer implements Serializer<Message> {
+    public static final String ENVELOPE_VERSION_CONFIG = "protobuff.envelope.version";
+    public static final String TYPE_HEADERS_ENABLED_CONFIG = "protobuff.typeHeaders.enabled";
+    public static final String PAYLOAD_TYPE_ID_HEADER = "payload-type-id";
+    public static final String PAYLOAD_SCHEMA_VERSION_HEADER = "payload-schema-version";
+    /**
+     * A tag of field number 0, which no Protobuff message can start with.
+     */
+    static final byte ENVELOPE_V2_MAGIC_BYTE = 0x02;
+
+    private boolean compactEnvelopeEnabled = false;
+    private boolean typeHeadersEnabled = false;
+
     @Override
     public void configure(Map<String, ?> configs, boolean isKey) {
+        var envelopeVersion = configs.get(ENVELOPE_VERSION_CONFIG);
+        var typeHeadersEnabled = configs.get(TYPE_HEADERS_ENABLED_CONFIG);
+
+        this.compactEnvelopeEnabled = envelopeVersion != null && "2".equals(envelopeVersion.toString());
+        this.typeHeadersEnabled = compactEnvelopeEnabled && typeHeadersEnabled != null && Boolean.parseBoolean(typeHeadersEnabled.toString());
     }
 
     @Override
@@ -19,6 +53,12 @@ public class ProtobuffSerializer implements Serializer<Message> {
     }
 
     private byte[] serialize(Message message) {
+        var typeId = compactEnvelopeEnabled ? ProtobuffMessageTypeRegistry.getTypeIdOf(message) : Optional.<TypeId>empty();
+
+        return typeId.isPresent() ? serializeWithinEnvelopeV2(message, typeId.get()) : serializeWithinEnvelopeV1(message);
+    }
+
+    private static byte[] serializeWithinEnvelopeV1(Message message) {
         return MessageEnvelope.newBuilder()
                 .setPayloadTypeQualifiedName(message.getClass().getName())
                 .setPayload(Any.newBuilder().setValue(message.toByteString()).build())
@@ -26,9 +66,50 @@ public class ProtobuffSerializer implements Serializer<Message> {
                 .toByteArray();
     }
 
+    /**
+     * Writes the payload straight into the output buffer - an embedded message is encoded the same way as the bytes
+     * it serializes to, so the payload doesn't need to be serialized into a separate buffer first.
+     */
+    private static byte[] serializeWithinEnvelopeV2(Message message, TypeId typeId) {
+        var envelopeSize = CodedOutputStream.computeUInt32Size(MessageEnvelopeV2.PAYLOAD_TYPE_ID_FIELD_NUMBER, typeId.getId())
+                + (typeId.getSchemaVersion() != 0 ? CodedOutputStream.computeUInt32Size(MessageEnvelopeV2.PAYLOAD_SCHEMA_VERSION_FIELD_NUMBER, typeId.getSchemaVersion()) : 0)
+                + CodedOutputStream.computeMessageSize(MessageEnvelopeV2.PAYLOAD_FIELD_NUMBER, message);
+        var bytes = new byte[1 + envelopeSize];
+        bytes[0] = ENVELOPE_V2_MAGIC_BYTE;
+
+        try {
+            var output = CodedOutputStream.newInstance(bytes, 1, envelopeSize);
+            output.writeUInt32(MessageEnvelopeV2.PAYLOAD_TYPE_ID_FIELD_NUMBER, typeId.getId());
+            if (typeId.getSchemaVersion() != 0) {
+                output.writeUInt32(MessageEnvelopeV2.PAYLOAD_SCHEMA_VERSION_FIELD_NUMBER, typeId.getSchemaVersion());
+            }
+            output.writeMessage(MessageEnvelopeV2.PAYLOAD_FIELD_NUMBER, message);
+            output.checkNoSpaceLeft();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return bytes;
+    }
+
     @Override
     public byte[] serialize(String topic, Headers headers, Message data) {
-        return serialize(data);
+        var typeId = typeHeadersEnabled && headers != null ? ProtobuffMessageTypeRegistry.getTypeIdOf(data) : Optional.<TypeId>empty();
+        if (typeId.isEmpty()) {
+            return serialize(data);
+        }
+
+        headers.remove(PAYLOAD_TYPE_ID_HEADER).add(PAYLOAD_TYPE_ID_HEADER, toHeaderValue(typeId.get().getId()));
+        headers.remove(PAYLOAD_SCHEMA_VERSION_HEADER);
+        if (typeId.get().getSchemaVersion() != 0) {
+            headers.add(PAYLOAD_SCHEMA_VERSION_HEADER, toHeaderValue(typeId.get().getSchemaVersion()));
+        }
+
+        return data.toByteArray();
+    }
+
+    private static byte[] toHeaderValue(int value) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
     }
 
     @Override
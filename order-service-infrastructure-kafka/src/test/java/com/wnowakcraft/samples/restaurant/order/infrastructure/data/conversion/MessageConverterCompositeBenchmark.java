@@ -0,0 +1,109 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion;
+
+import com.google.protobuf.Message;
+import com.wnowakcraft.samples.restaurant.order.domain.model.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares converting events and messages through the type-keyed {@link MessageConverterComposite} with the linear scan
+ * over all converters it used to do. Run it with the main method, e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageConverterCompositeBenchmark {
+    private static final long OFFSET = 10;
+
+    private MessageConverter<OrderEvent, Message> typeKeyedComposite;
+    private MessageConverter<OrderEvent, Message> linearScanComposite;
+    private OrderEvent lastRegisteredEvent;
+    private Message lastRegisteredMessage;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        var converters = List.of(
+                (MessageConverter<OrderEvent, Message>) (MessageConverter<?, ?>) new OrderCreatedEventMessageConverter(),
+                (MessageConverter<OrderEvent, Message>) (MessageConverter<?, ?>) new OrderApprovedEventMessageConverter()
+        );
+        typeKeyedComposite = new MessageConverterComposite<>(converters);
+        linearScanComposite = new LinearScanMessageConverterComposite<>(converters);
+
+        var order = Order.newOrder(
+                CustomerId.of("CUSTOMER-CUSTOMER-A-3df56c04-0bf9-4caa"),
+                RestaurantId.of("RESTAURANT-RESTAURANT-A-3df56c04-0bf9-4caa"),
+                List.of(new OrderItem(3, "ORDER ITEM", MenuItemId.of("RESTAURANT-MENU_ITEM-A-3df56c04-0bf9-4caa")))
+        );
+        order.approve();
+        lastRegisteredEvent = List.copyOf(order.getChanges()).get(1);
+        lastRegisteredMessage = typeKeyedComposite.convert(lastRegisteredEvent);
+    }
+
+    @Benchmark
+    public Message typeKeyedEventToMessage() {
+        return typeKeyedComposite.convert(lastRegisteredEvent);
+    }
+
+    @Benchmark
+    public Message linearScanEventToMessage() {
+        return linearScanComposite.convert(lastRegisteredEvent);
+    }
+
+    @Benchmark
+    public OrderEvent typeKeyedMessageToEvent() {
+        return typeKeyedComposite.convert(lastRegisteredMessage, OFFSET);
+    }
+
+    @Benchmark
+    public OrderEvent linearScanMessageToEvent() {
+        return linearScanComposite.convert(lastRegisteredMessage, OFFSET);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MessageConverterCompositeBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static class LinearScanMessageConverterComposite<S> implements MessageConverter<S, Message> {
+        private final Collection<MessageConverter<S, Message>> messageConverters;
+
+        LinearScanMessageConverterComposite(Collection<MessageConverter<S, Message>> messageConverters) {
+            this.messageConverters = List.copyOf(messageConverters);
+        }
+
+        @Override
+        public S convert(Message message, long offset) {
+            return messageConverters.stream()
+                    .filter(dataConverter -> dataConverter.canConvert(message))
+                    .findFirst().orElseThrow()
+                    .convert(message, offset);
+        }
+
+        @Override
+        public Message convert(S source) {
+            return messageConverters.stream()
+                    .filter(dataConverter -> dataConverter.canConvert(source))
+                    .findFirst().orElseThrow()
+                    .convert(source);
+        }
+
+        @Override
+        public boolean canConvert(Message messageCandidate) {
+            return messageConverters.stream().anyMatch(messageConverter -> messageConverter.canConvert(messageCandidate));
+        }
+
+        @Override
+        public boolean canConvert(Object sourceCandidate) {
+            return messageConverters.stream().anyMatch(dataConverter -> dataConverter.canConvert(sourceCandidate));
+        }
+    }
+}
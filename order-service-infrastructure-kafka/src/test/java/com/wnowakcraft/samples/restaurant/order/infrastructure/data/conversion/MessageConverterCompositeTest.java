@@ -0,0 +1,109 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion;
+
+import com.google.protobuf.Message;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.message.OrderApprovedEventMessage;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.message.OrderCreatedEventMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+
+class MessageConverterCompositeTest {
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture();
+    }
+
+    @Test
+    void convertsMessage_withConverterRegisteredForItsExactType() {
+        fixture.givenCompositeOf(fixture.orderCreatedConverter, fixture.untypedConverter);
+
+        var convertedEvent = fixture.whenMessageIsConverted(Fixture.ORDER_CREATED_MESSAGE);
+
+        assertThat(convertedEvent).isSameAs(Fixture.ORDER_CREATED_EVENT);
+        then(fixture.untypedConverter).should(never()).canConvert(any(Message.class));
+    }
+
+    @Test
+    void convertsSource_withConverterRegisteredForItsExactType() {
+        fixture.givenCompositeOf(fixture.untypedConverter, fixture.orderCreatedConverter);
+
+        var convertedMessage = fixture.composite.convert(Fixture.ORDER_CREATED_EVENT);
+
+        assertThat(convertedMessage).isSameAs(Fixture.ORDER_CREATED_MESSAGE);
+        then(fixture.untypedConverter).should(never()).canConvert(any(Object.class));
+    }
+
+    @Test
+    void fallsBackToConvertersNotDeclaringTheirType_whenNoneIsRegisteredForExactType() {
+        fixture.givenCompositeOf(fixture.orderCreatedConverter, fixture.refusingUntypedConverter, fixture.untypedConverter);
+
+        var convertedEvent = fixture.whenMessageIsConverted(Fixture.ORDER_APPROVED_MESSAGE);
+
+        assertThat(convertedEvent).isSameAs(Fixture.ORDER_APPROVED_EVENT);
+        then(fixture.refusingUntypedConverter).should().canConvert(Fixture.ORDER_APPROVED_MESSAGE);
+        assertThat(fixture.composite.canConvert(Fixture.ORDER_APPROVED_MESSAGE)).isTrue();
+    }
+
+    @Test
+    void throwsIllegalArgumentException_whenNoConverterCanConvertMessage() {
+        fixture.givenCompositeOf(fixture.orderCreatedConverter, fixture.refusingUntypedConverter);
+
+        assertThat(fixture.composite.canConvert(Fixture.ORDER_APPROVED_MESSAGE)).isFalse();
+        assertThatThrownBy(() -> fixture.whenMessageIsConverted(Fixture.ORDER_APPROVED_MESSAGE))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(OrderApprovedEventMessage.class.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static class Fixture {
+        private static final long OFFSET = 10;
+        private static final Message ORDER_CREATED_MESSAGE = OrderCreatedEventMessage.getDefaultInstance();
+        private static final Message ORDER_APPROVED_MESSAGE = OrderApprovedEventMessage.getDefaultInstance();
+        private static final SourceEvent ORDER_CREATED_EVENT = new SourceEvent();
+        private static final SourceEvent ORDER_APPROVED_EVENT = new SourceEvent();
+
+        private final MessageConverter<SourceEvent, Message> orderCreatedConverter = mock(MessageConverter.class);
+        private final MessageConverter<SourceEvent, Message> untypedConverter = mock(MessageConverter.class);
+        private final MessageConverter<SourceEvent, Message> refusingUntypedConverter = mock(MessageConverter.class);
+        private MessageConverterComposite<SourceEvent> composite;
+
+        Fixture() {
+            given(orderCreatedConverter.getSupportedMessageType()).willReturn(Optional.<Class<? extends Message>>of(OrderCreatedEventMessage.class));
+            given(orderCreatedConverter.getSupportedSourceType()).willReturn(Optional.<Class<?>>of(SourceEvent.class));
+            given(orderCreatedConverter.convert(ORDER_CREATED_MESSAGE, OFFSET)).willReturn(ORDER_CREATED_EVENT);
+            given(orderCreatedConverter.convert(ORDER_CREATED_EVENT)).willReturn(ORDER_CREATED_MESSAGE);
+
+            given(untypedConverter.getSupportedMessageType()).willReturn(Optional.empty());
+            given(untypedConverter.getSupportedSourceType()).willReturn(Optional.empty());
+            given(untypedConverter.canConvert(any(Message.class))).willReturn(true);
+            given(untypedConverter.convert(ORDER_APPROVED_MESSAGE, OFFSET)).willReturn(ORDER_APPROVED_EVENT);
+
+            given(refusingUntypedConverter.getSupportedMessageType()).willReturn(Optional.empty());
+            given(refusingUntypedConverter.getSupportedSourceType()).willReturn(Optional.empty());
+            given(refusingUntypedConverter.canConvert(any(Message.class))).willReturn(false);
+        }
+
+        void givenCompositeOf(MessageConverter<SourceEvent, Message>... converters) {
+            composite = new MessageConverterComposite<>(List.of(converters));
+        }
+
+        SourceEvent whenMessageIsConverted(Message message) {
+            return composite.convert(message, OFFSET);
+        }
+    }
+
+    private static class SourceEvent {
+    }
+}
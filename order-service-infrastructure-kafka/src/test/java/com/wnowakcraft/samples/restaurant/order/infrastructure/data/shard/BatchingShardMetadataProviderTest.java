@@ -0,0 +1,96 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard;
+
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.store.KafkaConsumerFactory;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardMetadataProvider.SHARD_OFFSET_UNKNOWN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+class BatchingShardMetadataProviderTest {
+    private static final ShardRef FIRST_SHARD_REF = new ShardRef("first_topic", 0);
+    private static final ShardRef SECOND_SHARD_REF = new ShardRef("second_topic", 0);
+    private static final ShardRef EMPTY_SHARD_REF = new ShardRef("empty_topic", 0);
+
+    private static final ShardRef MISSING_SHARD_REF = new ShardRef("missing_topic", 0);
+
+    private final AtomicInteger endOffsetsRequestsCount = new AtomicInteger();
+    private final MockConsumer<String, Object> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST) {
+        @Override
+        public synchronized Map<TopicPartition, Long> endOffsets(Collection<TopicPartition> partitions) {
+            endOffsetsRequestsCount.incrementAndGet();
+            if (partitions.contains(KafkaPartition.of(MISSING_SHARD_REF))) {
+                throw new TimeoutException("Test missing topic");
+            }
+            return super.endOffsets(partitions);
+        }
+    };
+    private final KafkaConsumerFactory consumerFactory = mock(KafkaConsumerFactory.class);
+    private final BatchingShardMetadataProvider shardMetadataProvider = new BatchingShardMetadataProvider(consumerFactory, 1000, 50);
+
+    @BeforeEach
+    void setUp() {
+        given(consumerFactory.createConsumer()).willReturn(consumer);
+        shardMetadataProvider.startLookups();
+    }
+
+    @AfterEach
+    void tearDown() {
+        shardMetadataProvider.stopLookups();
+    }
+
+    @Test
+    void looksLastRecordOffsetsOfManyShardsUp_withSingleRequest_usingOneConsumer() {
+        consumer.updateEndOffsets(Map.of(KafkaPartition.of(FIRST_SHARD_REF), 10L, KafkaPartition.of(SECOND_SHARD_REF), 20L,
+                KafkaPartition.of(EMPTY_SHARD_REF), 0L));
+
+        var lastRecordOffsets = shardMetadataProvider
+                .getLastRecordOffsetsForShards(List.of(FIRST_SHARD_REF, SECOND_SHARD_REF, EMPTY_SHARD_REF))
+                .join();
+
+        assertThat(lastRecordOffsets).isEqualTo(Map.of(FIRST_SHARD_REF, 9L, SECOND_SHARD_REF, 19L, EMPTY_SHARD_REF, SHARD_OFFSET_UNKNOWN));
+        assertThat(endOffsetsRequestsCount).hasValue(1);
+        then(consumerFactory).should(times(1)).createConsumer();
+    }
+
+    @Test
+    void batchesSingleShardLookupsMadeAtAboutTheSameTime() {
+        consumer.updateEndOffsets(Map.of(KafkaPartition.of(FIRST_SHARD_REF), 10L, KafkaPartition.of(SECOND_SHARD_REF), 20L));
+
+        var firstOffset = shardMetadataProvider.getLastRecordOffsetForShard(FIRST_SHARD_REF);
+        var secondOffset = shardMetadataProvider.getLastRecordOffsetForShard(SECOND_SHARD_REF);
+
+        assertThat(firstOffset.join()).isEqualTo(9L);
+        assertThat(secondOffset.join()).isEqualTo(19L);
+        assertThat(endOffsetsRequestsCount).hasValue(1);
+    }
+
+    @Test
+    void failsOnlyLookupsOfShardsWhichCannotBeLookedUp_whenBatchRequestFails() {
+        consumer.updateEndOffsets(Map.of(KafkaPartition.of(FIRST_SHARD_REF), 10L, KafkaPartition.of(SECOND_SHARD_REF), 20L));
+
+        var firstOffset = shardMetadataProvider.getLastRecordOffsetForShard(FIRST_SHARD_REF);
+        var missingOffset = shardMetadataProvider.getLastRecordOffsetForShard(MISSING_SHARD_REF);
+        var secondOffset = shardMetadataProvider.getLastRecordOffsetForShard(SECOND_SHARD_REF);
+
+        assertThat(firstOffset.join()).isEqualTo(9L);
+        assertThat(secondOffset.join()).isEqualTo(19L);
+        assertThatThrownBy(missingOffset::join).hasCauseInstanceOf(TimeoutException.class);
+    }
+}
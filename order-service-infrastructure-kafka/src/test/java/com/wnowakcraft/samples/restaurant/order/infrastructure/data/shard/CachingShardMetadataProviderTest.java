@@ -0,0 +1,65 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard;
+
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardMetadataProvider.SHARD_OFFSET_UNKNOWN;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+class CachingShardMetadataProviderTest {
+    private static final ShardRef SHARD_REF = new ShardRef("test_topic", 0);
+    private static final Instant POINT_IN_TIME = Instant.parse("2020-03-01T10:15:30.100Z");
+
+    private final KafkaShardMetadataProvider kafkaShardMetadataProvider = mock(KafkaShardMetadataProvider.class);
+    private final CachingShardMetadataProvider shardMetadataProvider =
+            new CachingShardMetadataProvider(kafkaShardMetadataProvider, new ShardMetadataCacheConfig(60_000, 60_000, 100));
+
+    @Test
+    void looksLastRecordOffsetUpOnce_andMovesItForwardWithAcknowledgedAppends() {
+        given(kafkaShardMetadataProvider.getLastRecordOffsetForShard(SHARD_REF)).willReturn(completedFuture(10L));
+
+        var firstOffset = shardMetadataProvider.getLastRecordOffsetForShard(SHARD_REF).join();
+        shardMetadataProvider.recordAppended(SHARD_REF, 12);
+        var offsetAfterAppend = shardMetadataProvider.getLastRecordOffsetForShard(SHARD_REF).join();
+
+        assertThat(firstOffset).isEqualTo(10L);
+        assertThat(offsetAfterAppend).isEqualTo(12L);
+        then(kafkaShardMetadataProvider).should(times(1)).getLastRecordOffsetForShard(SHARD_REF);
+    }
+
+    @Test
+    void looksLastRecordOffsetUpAgain_afterInvalidation_orWhenItWasUnknown() {
+        given(kafkaShardMetadataProvider.getLastRecordOffsetForShard(SHARD_REF))
+                .willReturn(completedFuture(SHARD_OFFSET_UNKNOWN), completedFuture(10L), completedFuture(15L));
+
+        var unknownOffset = shardMetadataProvider.getLastRecordOffsetForShard(SHARD_REF).join();
+        var knownOffset = shardMetadataProvider.getLastRecordOffsetForShard(SHARD_REF).join();
+        shardMetadataProvider.invalidate(SHARD_REF);
+        var offsetAfterInvalidation = shardMetadataProvider.getLastRecordOffsetForShard(SHARD_REF).join();
+
+        assertThat(unknownOffset).isEqualTo(SHARD_OFFSET_UNKNOWN);
+        assertThat(knownOffset).isEqualTo(10L);
+        assertThat(offsetAfterInvalidation).isEqualTo(15L);
+    }
+
+    @Test
+    void remembersOffsetsForPointsInTime_perShardAndSecond() {
+        given(kafkaShardMetadataProvider.getLatestOffsetFor(SHARD_REF, POINT_IN_TIME)).willReturn(completedFuture(7L));
+        given(kafkaShardMetadataProvider.getFirstOffsetFor(SHARD_REF, POINT_IN_TIME)).willReturn(completedFuture(8L));
+
+        shardMetadataProvider.getLatestOffsetFor(SHARD_REF, POINT_IN_TIME).join();
+        var latestOffset = shardMetadataProvider.getLatestOffsetFor(SHARD_REF, POINT_IN_TIME.plusMillis(500)).join();
+        var firstOffset = shardMetadataProvider.getFirstOffsetFor(SHARD_REF, POINT_IN_TIME).join();
+
+        assertThat(latestOffset).isEqualTo(7L);
+        assertThat(firstOffset).isEqualTo(8L);
+        then(kafkaShardMetadataProvider).should(times(1)).getLatestOffsetFor(SHARD_REF, POINT_IN_TIME);
+    }
+}
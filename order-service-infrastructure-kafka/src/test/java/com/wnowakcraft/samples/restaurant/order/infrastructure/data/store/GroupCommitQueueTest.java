@@ -0,0 +1,174 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GroupCommitQueueTest {
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.closeQueue();
+    }
+
+    @Test
+    void handsOverItemsSubmittedWhileBatchIsBeingHandled_asOneBatch() throws InterruptedException {
+        fixture.givenQueueWith(10, Duration.ZERO);
+        fixture.givenFirstBatchIsBeingHandled();
+
+        fixture.whenItemsAreSubmitted("b", "c", "d");
+        fixture.whenFirstBatchHandlingCompletes();
+
+        fixture.thenBatchesHandedOverAre(List.of("a"), List.of("b", "c", "d"));
+    }
+
+    @Test
+    void splitsItemsIntoBatchesOfMaxBatchSize() throws InterruptedException {
+        fixture.givenQueueWith(2, Duration.ZERO);
+        fixture.givenFirstBatchIsBeingHandled();
+
+        fixture.whenItemsAreSubmitted("b", "c", "d");
+        fixture.whenFirstBatchHandlingCompletes();
+
+        fixture.thenBatchesHandedOverAre(List.of("a"), List.of("b", "c"), List.of("d"));
+    }
+
+    @Test
+    void handsOverPendingItemsWithoutWaitingForMaxWait_whenClosed() {
+        fixture.givenQueueWith(10, Duration.ofMinutes(1));
+
+        fixture.whenItemsAreSubmitted("a", "b");
+        fixture.closeQueue();
+
+        fixture.thenBatchesHandedOverAre(List.of("a", "b"));
+    }
+
+    @Test
+    void rejectsItems_whenClosed() {
+        fixture.givenQueueWith(10, Duration.ZERO);
+        fixture.closeQueue();
+
+        assertThatThrownBy(() -> fixture.queue.submit("a")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void failsItemsOfBatch_whenBatchHandlerThrows() {
+        fixture.givenQueueWith(10, Duration.ofMinutes(1));
+
+        fixture.whenItemsAreSubmitted("b", Fixture.FAILING_ITEM);
+        fixture.closeQueue();
+
+        fixture.thenFailedItemsAre("b", Fixture.FAILING_ITEM);
+    }
+
+    @Test
+    void failsItemsNotHandedOverYet_whenClosingIsInterrupted() throws InterruptedException {
+        fixture.givenQueueWith(10, Duration.ZERO);
+        fixture.givenFirstBatchIsBeingHandled();
+        fixture.whenItemsAreSubmitted("b", "c");
+
+        fixture.whenClosingIsInterrupted();
+
+        fixture.thenItemsFailEventually("b", "c");
+        assertThatThrownBy(() -> fixture.queue.submit("d")).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static class Fixture {
+        private static final String FAILING_ITEM = "failing";
+
+        private final List<List<String>> handedOverBatches = new CopyOnWriteArrayList<>();
+        private final List<String> failedItems = new CopyOnWriteArrayList<>();
+        private final CountDownLatch itemsFailed = new CountDownLatch(2);
+        private final CountDownLatch firstBatchHandlingStarted = new CountDownLatch(1);
+        private final CountDownLatch firstBatchHandlingReleased = new CountDownLatch(1);
+        private GroupCommitQueue<String> queue;
+
+        void givenQueueWith(int maxBatchSize, Duration maxWait) {
+            queue = new GroupCommitQueue<>("test", maxBatchSize, maxWait, this::handleBatch, this::handleItemFailure);
+        }
+
+        private void handleBatch(List<String> batch) {
+            handedOverBatches.add(List.copyOf(batch));
+
+            if (batch.contains(FAILING_ITEM)) {
+                throw new IllegalStateException("Test batch handling failure");
+            }
+
+            if (batch.contains("a")) {
+                firstBatchHandlingStarted.countDown();
+                awaitQuietly(firstBatchHandlingReleased);
+            }
+        }
+
+        private void handleItemFailure(String item, RuntimeException failure) {
+            failedItems.add(item);
+            itemsFailed.countDown();
+        }
+
+        private static void awaitQuietly(CountDownLatch latch) {
+            try {
+                latch.await(5, SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void givenFirstBatchIsBeingHandled() throws InterruptedException {
+            queue.submit("a");
+            assertThat(firstBatchHandlingStarted.await(5, SECONDS)).isTrue();
+        }
+
+        void whenItemsAreSubmitted(String... items) {
+            for (var item : items) {
+                queue.submit(item);
+            }
+        }
+
+        void whenFirstBatchHandlingCompletes() {
+            firstBatchHandlingReleased.countDown();
+            closeQueue();
+        }
+
+        void whenClosingIsInterrupted() {
+            Thread.currentThread().interrupt();
+            queue.close();
+            assertThat(Thread.interrupted()).isTrue();
+        }
+
+        void thenFailedItemsAre(String... expectedItems) {
+            assertThat(failedItems).containsExactly(expectedItems);
+        }
+
+        void thenItemsFailEventually(String... expectedItems) throws InterruptedException {
+            assertThat(itemsFailed.await(5, SECONDS)).isTrue();
+            thenFailedItemsAre(expectedItems);
+        }
+
+        @SafeVarargs
+        final void thenBatchesHandedOverAre(List<String>... expectedBatches) {
+            assertThat(handedOverBatches).containsExactly(expectedBatches);
+        }
+
+        void closeQueue() {
+            firstBatchHandlingReleased.countDown();
+            if (queue != null) {
+                queue.close();
+            }
+        }
+    }
+}
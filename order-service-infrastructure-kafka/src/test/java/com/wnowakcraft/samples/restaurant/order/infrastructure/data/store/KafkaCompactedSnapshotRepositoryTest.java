@@ -0,0 +1,150 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.google.protobuf.Message;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate;
+import com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData;
+import com.wnowakcraft.samples.restaurant.core.domain.model.SnapshotRepository;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion.MessageConverter;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.KafkaPartition;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+class KafkaCompactedSnapshotRepositoryTest {
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.repository.stopTailing();
+    }
+
+    @Test
+    void asksUnderlyingRepository_untilShardIsCaughtUp_andLooksLatestSnapshotUpInMemoryAfterwards() throws InterruptedException {
+        fixture.givenCompactedShardWithSnapshotsOfVersions(1, 2);
+        fixture.givenUnderlyingRepositoryHas(Fixture.SNAPSHOT_V1);
+
+        var snapshotBeforeCatchUp = fixture.repository.findLatestSnapshotFor(Fixture.AGGREGATE_ID);
+        fixture.whenShardIsCaughtUp();
+        var snapshotAfterCatchUp = fixture.repository.findLatestSnapshotFor(Fixture.AGGREGATE_ID);
+
+        assertThat(snapshotBeforeCatchUp).contains(Fixture.SNAPSHOT_V1);
+        assertThat(snapshotAfterCatchUp).contains(Fixture.SNAPSHOT_V2);
+        then(fixture.snapshotRepository).should().findLatestSnapshotFor(Fixture.AGGREGATE_ID);
+    }
+
+    @Test
+    void addsSnapshotToUnderlyingRepositoryAndCompactedTopic_andServesItRightAway() throws InterruptedException {
+        fixture.givenCompactedShardWithSnapshotsOfVersions(1);
+        fixture.givenUnderlyingRepositoryHas(Fixture.SNAPSHOT_V1);
+        fixture.repository.findLatestSnapshotFor(Fixture.AGGREGATE_ID);
+        fixture.whenShardIsCaughtUp();
+
+        fixture.repository.addNewSnapshot(Fixture.SNAPSHOT_V2);
+
+        then(fixture.snapshotRepository).should().addNewSnapshot(Fixture.SNAPSHOT_V2);
+        fixture.thenSnapshotIsSentToCompactedShardKeyedByAggregateId();
+        assertThat(fixture.repository.findLatestSnapshotFor(Fixture.AGGREGATE_ID)).contains(Fixture.SNAPSHOT_V2);
+    }
+
+    @Test
+    void alwaysAsksUnderlyingRepositoryForHistoricalSnapshots() {
+        var sequenceNumber = ModelTestData.BaseEvent.SEQUENCE_NUMBER;
+
+        fixture.repository.findLatestSnapshotFor(Fixture.AGGREGATE_ID, sequenceNumber);
+
+        then(fixture.snapshotRepository).should().findLatestSnapshotFor(Fixture.AGGREGATE_ID, sequenceNumber);
+        then(fixture.producer).should(never()).send(any(), any());
+    }
+
+    private static class Fixture {
+        private static final ModelTestData.AggregateId AGGREGATE_ID = ModelTestData.AggregateId.DEFAULT_ONE;
+        private static final ShardRef SHARD_REF = new ShardRef("test_topic-LATEST-SNAPSHOT", 0);
+        private static final TopicPartition PARTITION = KafkaPartition.of(SHARD_REF);
+        private static final ModelTestData.Snapshot SNAPSHOT_V1 = ModelTestData.Snapshot.of(AGGREGATE_ID, Aggregate.Version.of(1));
+        private static final ModelTestData.Snapshot SNAPSHOT_V2 = ModelTestData.Snapshot.of(AGGREGATE_ID, Aggregate.Version.of(2));
+        private static final Map<Long, ModelTestData.Snapshot> SNAPSHOTS_BY_VERSION = Map.of(1L, SNAPSHOT_V1, 2L, SNAPSHOT_V2);
+
+        @Mock private SnapshotRepository<ModelTestData.Snapshot, ModelTestData.AggregateId> snapshotRepository;
+        @Mock private KafkaConsumerFactory consumerFactory;
+        @Mock private KafkaProducerFactory producerFactory;
+        @Mock private Producer<String, Message> producer;
+        @Mock private ShardManager shardManager;
+        @Mock private MessageConverter<ModelTestData.Snapshot, Message> snapshotMessageConverter;
+        @Mock private Message snapshotMessage;
+        private final MockConsumer<String, Message> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        private final KafkaCompactedSnapshotRepository<ModelTestData.Snapshot, ModelTestData.AggregateId> repository;
+
+        Fixture() {
+            MockitoAnnotations.initMocks(this);
+            given(consumerFactory.<Message>createConsumer()).willReturn(consumer);
+            given(producerFactory.<Message>createProducer()).willReturn(producer);
+            given(shardManager.getShardForBusinessIdOf(AGGREGATE_ID)).willReturn(SHARD_REF);
+            given(snapshotMessageConverter.convert(any(ModelTestData.Snapshot.class))).willReturn(snapshotMessage);
+            given(snapshotMessageConverter.convert(any(Message.class), any(Long.class)))
+                    .willAnswer(invocation -> SNAPSHOTS_BY_VERSION.get(invocation.<Long>getArgument(1) + 1));
+
+            repository = new KafkaCompactedSnapshotRepository<>(snapshotRepository, consumerFactory, producerFactory,
+                    shardManager, snapshotMessageConverter, new KafkaReadConfig(true, 1, 1));
+            repository.startTailing();
+        }
+
+        void givenCompactedShardWithSnapshotsOfVersions(long... versions) {
+            consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+            consumer.updateEndOffsets(Map.of(PARTITION, (long) versions.length));
+            consumer.schedulePollTask(() -> {
+                for (var version : versions) {
+                    consumer.addRecord(new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), version - 1, AGGREGATE_ID.getValue(), snapshotMessage));
+                }
+            });
+        }
+
+        void givenUnderlyingRepositoryHas(ModelTestData.Snapshot snapshot) {
+            given(snapshotRepository.findLatestSnapshotFor(AGGREGATE_ID)).willReturn(Optional.of(snapshot));
+        }
+
+        void whenShardIsCaughtUp() throws InterruptedException {
+            for (int i = 0; i < 500 && !repository.hasCaughtUpWith(SHARD_REF); i++) {
+                Thread.sleep(10);
+            }
+            assertThat(repository.hasCaughtUpWith(SHARD_REF)).isTrue();
+        }
+
+        @SuppressWarnings("unchecked")
+        void thenSnapshotIsSentToCompactedShardKeyedByAggregateId() {
+            ArgumentCaptor<ProducerRecord<String, Message>> recordCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+            then(producer).should().send(recordCaptor.capture(), any(Callback.class));
+
+            var record = recordCaptor.getValue();
+            assertThat(record.topic()).isEqualTo(SHARD_REF.topicName);
+            assertThat(record.partition()).isEqualTo(SHARD_REF.shardId);
+            assertThat(record.key()).isEqualTo(AGGREGATE_ID.getValue());
+            assertThat(record.value()).isSameAs(snapshotMessage);
+        }
+    }
+}
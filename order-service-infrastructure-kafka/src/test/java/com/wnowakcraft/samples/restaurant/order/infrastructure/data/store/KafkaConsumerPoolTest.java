@@ -0,0 +1,198 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.KafkaPartition;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.store.KafkaConsumerPool.PooledConsumer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.BDDMockito.*;
+
+class KafkaConsumerPoolTest {
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.closePool();
+    }
+
+    @Test
+    void reusesReleasedConsumer_whenTheSameShardIsReadAgain() {
+        fixture.givenPoolWith(2, 10, Fixture.ONE_MINUTE);
+
+        var firstConsumer = fixture.whenConsumerIsBorrowedAndReleasedFor(Fixture.SHARD_REF);
+        var secondConsumer = fixture.whenConsumerIsBorrowedAndReleasedFor(Fixture.SHARD_REF);
+
+        assertThat(secondConsumer).isSameAs(firstConsumer);
+        fixture.thenNumberOfCreatedConsumersIs(1);
+        fixture.thenConsumerIsNotClosed(firstConsumer);
+    }
+
+    @Test
+    void doesNotShareConsumersBetweenDifferentShards() {
+        fixture.givenPoolWith(2, 10, Fixture.ONE_MINUTE);
+
+        var firstConsumer = fixture.whenConsumerIsBorrowedAndReleasedFor(Fixture.SHARD_REF);
+        var secondConsumer = fixture.whenConsumerIsBorrowedAndReleasedFor(Fixture.OTHER_SHARD_REF);
+
+        assertThat(secondConsumer).isNotSameAs(firstConsumer);
+        fixture.thenNumberOfCreatedConsumersIs(2);
+    }
+
+    @Test
+    void closesInvalidatedConsumer_andCreatesNewOneForNextBorrower() {
+        fixture.givenPoolWith(2, 10, Fixture.ONE_MINUTE);
+
+        var pooledConsumer = fixture.pool.borrowConsumerFor(Fixture.SHARD_REF);
+        Consumer<String, Object> invalidatedConsumer = pooledConsumer.getConsumer();
+        pooledConsumer.invalidate();
+        var nextConsumer = fixture.whenConsumerIsBorrowedAndReleasedFor(Fixture.SHARD_REF);
+
+        assertThat(nextConsumer).isNotSameAs(invalidatedConsumer);
+        fixture.thenConsumerIsClosed(invalidatedConsumer);
+    }
+
+    @Test
+    void closesReleasedConsumer_whenShardAlreadyHasMaxIdleConsumers() {
+        fixture.givenPoolWith(1, 10, Fixture.ONE_MINUTE);
+
+        var firstPooledConsumer = fixture.pool.borrowConsumerFor(Fixture.SHARD_REF);
+        var secondPooledConsumer = fixture.pool.borrowConsumerFor(Fixture.SHARD_REF);
+        Consumer<String, Object> secondConsumer = secondPooledConsumer.getConsumer();
+        firstPooledConsumer.release();
+        secondPooledConsumer.release();
+
+        fixture.thenConsumerIsClosed(secondConsumer);
+        assertThat(fixture.pool.getIdleConsumersCount()).isEqualTo(1);
+    }
+
+    @Test
+    void closesLeastRecentlyUsedIdleConsumer_whenPoolIsFull() {
+        fixture.givenPoolWith(2, 1, Fixture.ONE_MINUTE);
+
+        var firstConsumer = fixture.whenConsumerIsBorrowedAndReleasedFor(Fixture.SHARD_REF);
+        var secondConsumer = fixture.whenConsumerIsBorrowedAndReleasedFor(Fixture.OTHER_SHARD_REF);
+
+        fixture.thenConsumerIsClosed(firstConsumer);
+        fixture.thenConsumerIsNotClosed(secondConsumer);
+        assertThat(fixture.pool.getIdleConsumersCount()).isEqualTo(1);
+    }
+
+    @Test
+    void replacesIdleConsumer_whichIsNoLongerAssignedToTheShard() {
+        fixture.givenPoolWith(2, 10, Fixture.ONE_MINUTE);
+
+        var unhealthyConsumer = fixture.whenConsumerIsBorrowedAndReleasedFor(Fixture.SHARD_REF);
+        given(unhealthyConsumer.assignment()).willThrow(new IllegalStateException("This consumer has already been closed."));
+        var nextConsumer = fixture.whenConsumerIsBorrowedAndReleasedFor(Fixture.SHARD_REF);
+
+        assertThat(nextConsumer).isNotSameAs(unhealthyConsumer);
+        fixture.thenConsumerIsClosed(unhealthyConsumer);
+    }
+
+    @Test
+    void evictsConsumersIdleForLongerThanMaxIdleTime() {
+        fixture.givenPoolWith(2, 10, 0);
+
+        var idleConsumer = fixture.whenConsumerIsBorrowedAndReleasedFor(Fixture.SHARD_REF);
+        fixture.pool.evictIdleConsumers();
+
+        fixture.thenConsumerIsClosed(idleConsumer);
+        assertThat(fixture.pool.getIdleConsumersCount()).isZero();
+    }
+
+    @Test
+    void refusesToLendMoreThanMaxActiveConsumers_untilOneIsHandedBack() {
+        fixture.givenPoolWith(2, 10, Fixture.ONE_MINUTE, 1);
+
+        var borrowedConsumer = fixture.pool.borrowConsumerFor(Fixture.SHARD_REF);
+        var exception = catchThrowable(() -> fixture.pool.borrowConsumerFor(Fixture.OTHER_SHARD_REF));
+        borrowedConsumer.invalidate();
+        fixture.whenConsumerIsBorrowedAndReleasedFor(Fixture.OTHER_SHARD_REF);
+
+        assertThat(exception).isInstanceOf(IllegalStateException.class);
+        assertThat(fixture.pool.getActiveConsumersCount()).isZero();
+        fixture.thenNumberOfCreatedConsumersIs(2);
+    }
+
+    @Test
+    void closesAllIdleConsumers_andConsumersReleasedAfterwards_whenPoolIsClosed() {
+        fixture.givenPoolWith(2, 10, Fixture.ONE_MINUTE);
+
+        var idleConsumer = fixture.whenConsumerIsBorrowedAndReleasedFor(Fixture.SHARD_REF);
+        PooledConsumer borrowedConsumer = fixture.pool.borrowConsumerFor(Fixture.OTHER_SHARD_REF);
+        Consumer<String, Object> consumerReleasedAfterClose = borrowedConsumer.getConsumer();
+        fixture.pool.close();
+        borrowedConsumer.release();
+
+        fixture.thenConsumerIsClosed(idleConsumer);
+        fixture.thenConsumerIsClosed(consumerReleasedAfterClose);
+    }
+
+    private static class Fixture {
+        private static final ShardRef SHARD_REF = new ShardRef("test_topic", 0);
+        private static final ShardRef OTHER_SHARD_REF = new ShardRef("test_topic", 1);
+        private static final long ONE_MINUTE = 60_000;
+        private static final long EVICTION_INTERVAL = 60_000;
+
+        private final List<Consumer<String, Object>> createdConsumers = new ArrayList<>();
+        private KafkaConsumerPool pool;
+
+        void givenPoolWith(int maxIdleConsumersPerShard, int maxIdleConsumers, long maxIdleTimeMillis) {
+            givenPoolWith(maxIdleConsumersPerShard, maxIdleConsumers, maxIdleTimeMillis, 10);
+        }
+
+        void givenPoolWith(int maxIdleConsumersPerShard, int maxIdleConsumers, long maxIdleTimeMillis, int maxActiveConsumers) {
+            var poolConfig = new KafkaConsumerPoolConfig(
+                    maxIdleConsumersPerShard, maxIdleConsumers, maxIdleTimeMillis, EVICTION_INTERVAL, maxActiveConsumers, 0
+            );
+            pool = new KafkaConsumerPool(poolConfig, this::createConsumerFor);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Consumer<String, ?> createConsumerFor(ShardRef shardRef) {
+            Consumer<String, Object> consumer = mock(Consumer.class);
+            given(consumer.assignment()).willReturn(Set.of(KafkaPartition.of(shardRef)));
+            createdConsumers.add(consumer);
+            return consumer;
+        }
+
+        Consumer<String, Object> whenConsumerIsBorrowedAndReleasedFor(ShardRef shardRef) {
+            var pooledConsumer = pool.borrowConsumerFor(shardRef);
+            Consumer<String, Object> consumer = pooledConsumer.getConsumer();
+            pooledConsumer.release();
+            return consumer;
+        }
+
+        void thenNumberOfCreatedConsumersIs(int expectedNumberOfConsumers) {
+            assertThat(createdConsumers).hasSize(expectedNumberOfConsumers);
+        }
+
+        void thenConsumerIsClosed(Consumer<String, Object> consumer) {
+            then(consumer).should().close();
+        }
+
+        void thenConsumerIsNotClosed(Consumer<String, Object> consumer) {
+            then(consumer).should(never()).close();
+        }
+
+        void closePool() {
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+}
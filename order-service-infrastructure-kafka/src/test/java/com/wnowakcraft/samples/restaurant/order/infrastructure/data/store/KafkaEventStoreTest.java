@@ -0,0 +1,247 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.google.protobuf.Message;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate;
+import com.wnowakcraft.samples.restaurant.core.domain.model.EventStore.EventStream;
+import com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData;
+import com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.AggregateId;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion.MessageConverter;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.message.OrderCreatedEventMessage;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.KafkaPartition;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardMetadataProvider;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+
+class KafkaEventStoreTest {
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture();
+    }
+
+    @Test
+    void loadsEventStreamsOfManyAggregates_groupingRecordsOfSharedShardByAggregate() {
+        fixture.givenShardWithRecordsOf(Fixture.SHARD_REF, Fixture.FIRST_ID, Fixture.SECOND_ID, Fixture.FIRST_ID, Fixture.SECOND_ID, Fixture.SECOND_ID);
+
+        var eventStreams = fixture.whenEventsAreLoadedFor(Fixture.SECOND_ID, Fixture.FIRST_ID);
+
+        assertThat(eventStreams.keySet()).containsExactly(Fixture.SECOND_ID, Fixture.FIRST_ID);
+        fixture.thenEventStreamOf(eventStreams.get(Fixture.FIRST_ID)).hasEventsCountAndVersion(2, 2);
+        fixture.thenEventStreamOf(eventStreams.get(Fixture.SECOND_ID)).hasEventsCountAndVersion(3, 4);
+    }
+
+    @Test
+    void loadsEmptyEventStream_forAggregateWithNoRecords() {
+        fixture.givenShardWithRecordsOf(Fixture.SHARD_REF, Fixture.FIRST_ID);
+        fixture.givenShardWithRecordsOf(Fixture.OTHER_SHARD_REF);
+
+        var eventStreams = fixture.whenEventsAreLoadedFor(Fixture.FIRST_ID, Fixture.OTHER_SHARD_ID);
+
+        assertThat(eventStreams.get(Fixture.OTHER_SHARD_ID).isEmpty()).isTrue();
+        fixture.thenEventStreamOf(eventStreams.get(Fixture.FIRST_ID)).hasEventsCountAndVersion(1, 0);
+    }
+
+    @Test
+    void readsSharedShardOnce_startingFromTheLowestIndexedOffsetOfItsAggregates() {
+        fixture.givenShardWithRecordsOf(Fixture.SHARD_REF, Fixture.FIRST_ID, Fixture.SECOND_ID, Fixture.FIRST_ID, Fixture.SECOND_ID);
+        fixture.givenIndexedReadStartOffsetOf(Fixture.FIRST_ID, 2);
+        fixture.givenIndexedReadStartOffsetOf(Fixture.SECOND_ID, 1);
+
+        var eventStreams = fixture.whenEventsAreLoadedFor(Fixture.FIRST_ID, Fixture.SECOND_ID);
+
+        fixture.thenEventStreamOf(eventStreams.get(Fixture.FIRST_ID)).hasEventsCountAndVersion(1, 2);
+        fixture.thenEventStreamOf(eventStreams.get(Fixture.SECOND_ID)).hasEventsCountAndVersion(2, 3);
+    }
+
+    @Test
+    void commitsAppendsSubmittedTogether_asOneBatchCheckedAgainstBrokerOnce() throws Exception {
+        fixture.givenGroupCommitOfBatchesOf(3, fixture.autoCompletingProducer);
+        fixture.givenBrokerReportsShardOffset(0);
+
+        var firstAppend = fixture.whenAppendedExpectingVersion(0);
+        var secondAppend = fixture.whenAppendedExpectingVersion(1);
+        var thirdAppend = fixture.whenAppendedExpectingVersion(2);
+
+        assertThat(firstAppend.get(5, SECONDS)).isEqualTo(Aggregate.Version.of(0));
+        assertThat(secondAppend.get(5, SECONDS)).isEqualTo(Aggregate.Version.of(1));
+        assertThat(thirdAppend.get(5, SECONDS)).isEqualTo(Aggregate.Version.of(2));
+        then(fixture.shardMetadataProvider).should().getLastRecordOffsetForShard(Fixture.SHARD_REF);
+    }
+
+    @Test
+    void rejectsOnlyConflictingAppend_ofBatchOfTheSameShard() throws Exception {
+        fixture.givenGroupCommitOfBatchesOf(3, fixture.autoCompletingProducer);
+        fixture.givenBrokerReportsShardOffset(5);
+
+        var firstAppend = fixture.whenAppendedExpectingVersion(5);
+        var conflictingAppend = fixture.whenAppendedExpectingVersion(5);
+        var followingAppend = fixture.whenAppendedExpectingVersion(6);
+
+        assertThat(firstAppend.get(5, SECONDS)).isNotNull();
+        assertThatThrownBy(() -> conflictingAppend.get(5, SECONDS)).hasCauseInstanceOf(ConcurrentLogAppendingException.class);
+        assertThat(followingAppend.get(5, SECONDS)).isNotNull();
+        assertThat(fixture.autoCompletingProducer.history()).hasSize(2);
+    }
+
+    @Test
+    void completesAppendsByBrokerAcknowledgements_andGoesOnCommitting_whenFlushFails() throws Exception {
+        fixture.givenGroupCommitOfBatchesOf(1, fixture.flushFailingProducer);
+        fixture.givenBrokerReportsShardOffset(0);
+
+        var failedAppend = fixture.whenAppendedExpectingVersion(0);
+        fixture.thenProducerIsFlushed();
+        fixture.flushFailingProducer.errorNext(new KafkaException("Test append failure"));
+
+        assertThatThrownBy(() -> failedAppend.get(5, SECONDS)).hasCauseInstanceOf(KafkaException.class);
+
+        var nextAppend = fixture.whenAppendedExpectingVersion(0);
+        fixture.thenProducerIsFlushed();
+        fixture.flushFailingProducer.completeNext();
+
+        assertThat(nextAppend.get(5, SECONDS)).isNotNull();
+    }
+
+    private static class Fixture {
+        private static final ShardRef SHARD_REF = new ShardRef("test_topic", 0);
+        private static final ShardRef OTHER_SHARD_REF = new ShardRef("test_topic", 1);
+        private static final AggregateId FIRST_ID = AggregateId.any();
+        private static final AggregateId SECOND_ID = AggregateId.any();
+        private static final AggregateId OTHER_SHARD_ID = AggregateId.any();
+        private static final long ONE_MINUTE_MILLIS = 60_000;
+
+        @Mock private MessageConverter<ModelTestData.Event, Message> eventMessageConverter;
+        @Mock private KafkaConsumerFactory consumerFactory;
+        @Mock private KafkaProducerFactory producerFactory;
+        @Mock private ShardMetadataProvider shardMetadataProvider;
+        @Mock private ShardManager shardManager;
+        @Mock private AggregateOffsetIndex aggregateOffsetIndex;
+        @Mock private ModelTestData.Event event;
+        private final Map<ShardRef, MockConsumer<String, byte[]>> consumers = new HashMap<>();
+        private final MockProducer<String, Message> autoCompletingProducer = new MockProducer<>(true, new StringSerializer(), messageSerializer());
+        private final Semaphore producerFlushes = new Semaphore(0);
+        private final MockProducer<String, Message> flushFailingProducer = new MockProducer<>(false, new StringSerializer(), messageSerializer()) {
+            @Override
+            public synchronized void flush() {
+                producerFlushes.release();
+                throw new KafkaException("Test flush failure");
+            }
+        };
+        private KafkaEventStore<ModelTestData.Event, ModelTestData.Aggregate, AggregateId> eventStore;
+
+        @SuppressWarnings("unchecked")
+        Fixture() {
+            MockitoAnnotations.initMocks(this);
+            given(shardManager.getShardForBusinessIdOf(FIRST_ID)).willReturn(SHARD_REF);
+            given(shardManager.getShardForBusinessIdOf(SECOND_ID)).willReturn(SHARD_REF);
+            given(shardManager.getShardForBusinessIdOf(OTHER_SHARD_ID)).willReturn(OTHER_SHARD_REF);
+            given(consumerFactory.doRawConsumerRead(any(ShardRef.class), any())).willAnswer(invocation ->
+                    CompletableFuture.completedFuture(invocation.<Function<Consumer<String, byte[]>, ?>>getArgument(1)
+                            .apply(consumers.get(invocation.<ShardRef>getArgument(0))))
+            );
+
+            given(eventMessageConverter.convert(any(ModelTestData.Event.class))).willReturn(OrderCreatedEventMessage.getDefaultInstance());
+
+            eventStore = eventStoreWith(new KafkaGroupCommitConfig(false, 1, 0, 0, 1));
+        }
+
+        private static Serializer<Message> messageSerializer() {
+            return (topic, message) -> message.toByteArray();
+        }
+
+        private KafkaEventStore<ModelTestData.Event, ModelTestData.Aggregate, AggregateId> eventStoreWith(KafkaGroupCommitConfig groupCommitConfig) {
+            return new KafkaEventStore<>(
+                    eventMessageConverter, consumerFactory, new KafkaRecordPoller(new KafkaReadConfig(true, 1, 1)),
+                    producerFactory, shardMetadataProvider, shardManager, aggregateOffsetIndex,
+                    new ShardOffsetTable(shardMetadataProvider),
+                    new KafkaAppendConfig(KafkaAppendConfig.ConcurrencyCheck.BROKER_LOOKUP),
+                    groupCommitConfig
+            );
+        }
+
+        void givenGroupCommitOfBatchesOf(int maxBatchSize, MockProducer<String, Message> producer) {
+            given(producerFactory.<Message>createBatchingProducer(any(), anyInt())).willReturn(producer);
+
+            eventStore = eventStoreWith(new KafkaGroupCommitConfig(true, maxBatchSize, ONE_MINUTE_MILLIS, 0, 1));
+            eventStore.initializeKafkaProducer();
+        }
+
+        void givenBrokerReportsShardOffset(long offset) {
+            given(shardMetadataProvider.getLastRecordOffsetForShard(SHARD_REF)).willReturn(CompletableFuture.completedFuture(offset));
+        }
+
+        void givenShardWithRecordsOf(ShardRef shardRef, AggregateId... aggregateIds) {
+            var partition = KafkaPartition.of(shardRef);
+            var consumer = new MockConsumer<String, byte[]>(OffsetResetStrategy.EARLIEST);
+            consumer.assign(Set.of(partition));
+            consumer.updateBeginningOffsets(Map.of(partition, 0L));
+            consumer.updateEndOffsets(Map.of(partition, (long) aggregateIds.length));
+
+            for (var offset = 0; offset < aggregateIds.length; offset++) {
+                consumer.addRecord(new ConsumerRecord<>(shardRef.topicName, shardRef.shardId, offset, aggregateIds[offset].getValue(), new byte[0]));
+            }
+            consumers.put(shardRef, consumer);
+        }
+
+        void givenIndexedReadStartOffsetOf(AggregateId aggregateId, long offset) {
+            given(aggregateOffsetIndex.getReadStartOffsetFor(SHARD_REF, aggregateId.getValue())).willReturn(offset);
+        }
+
+        Map<AggregateId, EventStream<ModelTestData.Event>> whenEventsAreLoadedFor(AggregateId... aggregateIds) {
+            return eventStore.loadAllEventsFor(List.of(aggregateIds));
+        }
+
+        CompletableFuture<Aggregate.Version> whenAppendedExpectingVersion(long version) {
+            return eventStore.append(FIRST_ID, Aggregate.Version.of(version), List.of(event));
+        }
+
+        void thenProducerIsFlushed() throws InterruptedException {
+            assertThat(producerFlushes.tryAcquire(5, SECONDS)).isTrue();
+        }
+
+        EventStreamAssertion thenEventStreamOf(EventStream<ModelTestData.Event> eventStream) {
+            return new EventStreamAssertion(eventStream);
+        }
+    }
+
+    private static class EventStreamAssertion {
+        private final EventStream<ModelTestData.Event> eventStream;
+
+        EventStreamAssertion(EventStream<ModelTestData.Event> eventStream) {
+            this.eventStream = eventStream;
+        }
+
+        void hasEventsCountAndVersion(int eventsCount, long version) {
+            assertThat(eventStream.getEvents()).hasSize(eventsCount);
+            assertThat(eventStream.getVersion()).isEqualTo(Aggregate.Version.of(version));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KafkaRecordPollerTest {
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture();
+    }
+
+    @Test
+    void stopsPolling_whenEndOffsetIsReached() {
+        fixture.givenPollerBoundedByEndOffset();
+        fixture.givenPartitionWithRecords(0, 1, 2);
+
+        fixture.whenRecordsArePolled();
+
+        fixture.thenPolledOffsetsAre(0L, 1L, 2L);
+        fixture.thenNumberOfPollsIs(1);
+    }
+
+    @Test
+    void doesNotPoll_whenPartitionIsAlreadyAtEndOffset() {
+        fixture.givenPollerBoundedByEndOffset();
+        fixture.givenPartitionWithRecords();
+
+        fixture.whenRecordsArePolled();
+
+        fixture.thenPolledOffsetsAre();
+        fixture.thenNumberOfPollsIs(0);
+    }
+
+    @Test
+    void stopsPolling_whenMaxConsecutiveEmptyPollsIsReachedBeforeEndOffset() {
+        fixture.givenPollerBoundedByEndOffset();
+        fixture.givenPartitionEndingAt(5);
+
+        fixture.whenRecordsArePolled();
+
+        fixture.thenPolledOffsetsAre();
+        fixture.thenNumberOfPollsIs(Fixture.MAX_CONSECUTIVE_EMPTY_POLLS);
+    }
+
+    @Test
+    void stopsPolling_whenNoRecordsAreReturned_inUnboundedMode() {
+        fixture.givenUnboundedPoller();
+        fixture.givenPartitionWithRecords(0, 1);
+
+        fixture.whenRecordsArePolled();
+
+        fixture.thenPolledOffsetsAre(0L, 1L);
+        fixture.thenNumberOfPollsIs(2);
+    }
+
+    private static class Fixture {
+        private static final TopicPartition PARTITION = new TopicPartition("test_topic", 0);
+        private static final int MAX_CONSECUTIVE_EMPTY_POLLS = 2;
+        private static final long POLL_TIMEOUT_MILLIS = 1;
+
+        private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        private final List<Long> polledOffsets = new ArrayList<>();
+        private KafkaRecordPoller recordPoller;
+        private int numberOfPolls;
+
+        Fixture() {
+            consumer.assign(Set.of(PARTITION));
+            consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        }
+
+        void givenPollerBoundedByEndOffset() {
+            recordPoller = new KafkaRecordPoller(new KafkaReadConfig(true, POLL_TIMEOUT_MILLIS, MAX_CONSECUTIVE_EMPTY_POLLS));
+        }
+
+        void givenUnboundedPoller() {
+            recordPoller = new KafkaRecordPoller(new KafkaReadConfig(false, POLL_TIMEOUT_MILLIS, MAX_CONSECUTIVE_EMPTY_POLLS));
+        }
+
+        void givenPartitionWithRecords(long... offsets) {
+            consumer.seek(PARTITION, 0);
+            for (var offset : offsets) {
+                consumer.addRecord(new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, "key", "value"));
+            }
+            consumer.updateEndOffsets(Map.of(PARTITION, (long) offsets.length));
+        }
+
+        void givenPartitionEndingAt(long endOffset) {
+            consumer.seek(PARTITION, 0);
+            consumer.updateEndOffsets(Map.of(PARTITION, endOffset));
+        }
+
+        void whenRecordsArePolled() {
+            consumer.schedulePollTask(this::countPoll);
+            recordPoller.pollRecords(consumer, readRecords -> {
+                readRecords.forEach(record -> polledOffsets.add(record.offset()));
+                return true;
+            });
+        }
+
+        private void countPoll() {
+            numberOfPolls++;
+            consumer.schedulePollTask(this::countPoll);
+        }
+
+        void thenPolledOffsetsAre(Long... expectedOffsets) {
+            assertThat(polledOffsets).containsExactly(expectedOffsets);
+        }
+
+        void thenNumberOfPollsIs(int expectedNumberOfPolls) {
+            assertThat(numberOfPolls).isEqualTo(expectedNumberOfPolls);
+        }
+    }
+}
@@ -10,6 +10,10 @@ import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardM
 import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
 import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardMetadataProvider;
 import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -26,6 +30,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.wnowakcraft.preconditions.Preconditions.requireThat;
@@ -63,6 +68,35 @@ class KafkaSnapshotRepositoryTest {
         fixture.thenTheFollowingOffsetsWereTried(offsetsTried);
     }
 
+    @Test
+    void interpolatesOffsetOfLatestSnapshot_whenInterpolationSearchStrategyIsUsed() {
+        var snapshotVersions = IntStream.rangeClosed(1, 100).mapToObj(i -> i * 10).collect(Collectors.toUnmodifiableList());
+
+        fixture.givenShardForBusinessId();
+        fixture.givenSnapshotsInTopicWithFollowingVersions(snapshotVersions);
+        fixture.givenKafkaConsumerIsProvided();
+        fixture.givenRealInterpolationSearchStrategyIsUsed();
+        fixture.givenSingleRecordIsReadForOffsetSelectedBySearchStrategy();
+        fixture.whenFindLatestSnapshotMethodIsCalledFor(555);
+        fixture.thenSnapshotWithTheFollowingVersionIsSelected(550);
+        fixture.thenTheFollowingOffsetsWereTried(List.of(99, 54, 55));
+        fixture.thenNumberOfOffsetsTriedIs(3);
+    }
+
+    @Test
+    void searchesJustBetweenIndexedOffsets_whenVersionsAroundSearchedOneWereSeenBefore() {
+        fixture.givenShardForBusinessId();
+        fixture.givenSnapshotsInTopicWithFollowingVersions(List.of(5, 20, 25, 32, 40, 60, 73, 75, 88, 95, 100));
+        fixture.givenKafkaConsumerIsProvided();
+        fixture.givenRealBinarySearchStrategyIsUsed();
+        fixture.givenSingleRecordIsReadForOffsetSelectedBySearchStrategy();
+        fixture.whenFindLatestSnapshotMethodIsCalledFor(85);
+        fixture.whenFindLatestSnapshotMethodIsCalledFor(85);
+        fixture.thenSnapshotWithTheFollowingVersionIsSelected(75);
+        fixture.thenTheFollowingOffsetsWereTried(List.of(10, 5, 8, 6, 7, 7));
+        fixture.thenNumberOfOffsetsTriedIs(6);
+    }
+
     @Test
     void returnsEmptyOptionalWhenThereAreNoSnapshotsInTheTopic() {
         var anySequenceNumber = 10;
@@ -76,6 +110,20 @@ class KafkaSnapshotRepositoryTest {
         fixture.thenNoOffsetsWereTried();
     }
 
+    @Test
+    void writesSnapshotsWithOneSharedProducer_andCompletesWithOffsetOfWrittenSnapshot() {
+        fixture.givenShardForBusinessId();
+        fixture.givenSnapshotProducerIsInitialized();
+
+        var firstWrittenOffset = fixture.whenSnapshotIsAddedAsync();
+        var secondWrittenOffset = fixture.whenSnapshotIsAddedAsync();
+        fixture.whenBrokerAcknowledgesSentSnapshotsAtOffsets(7, 8);
+
+        assertThat(firstWrittenOffset).isCompletedWithValue(7L);
+        assertThat(secondWrittenOffset).isCompletedWithValue(8L);
+        fixture.thenSnapshotProducerWasCreatedOnce();
+    }
+
     static Stream<? extends Arguments> latestSnapshotByEventSequenceNumberTestCases() {
         return Stream.of(
           arguments(givenSnapshotsWithVersions(5, 20, 25, 32, 40, 60, 73, 75, 88, 95, 100), whenWeLookForSnapshotWithEventSequenceOf(85),
@@ -142,6 +190,8 @@ class KafkaSnapshotRepositoryTest {
         @Mock private KafkaRecordReader<ModelTestData.Snapshot> recordReader;
         @Mock private RecordSearchStrategyFactory recordSearchStrategyFactory;
         @Mock private MessageConverter<ModelTestData.Snapshot, Message> snapshotMessageConverter;
+        @Mock private Producer<String, Message> snapshotProducer;
+        private final SnapshotVersionOffsetIndex versionOffsetIndex = new SnapshotVersionOffsetIndex(10, 64);
         private KafkaSnapshotRepository<ModelTestData.Snapshot, ModelTestData.AggregateId> snapshotRepository;
         private ModelTestData.Snapshot foundSnapshot;
 
@@ -149,7 +199,7 @@ class KafkaSnapshotRepositoryTest {
             snapshotsInTopic = new ArrayList<>();
             MockitoAnnotations.initMocks(this);
             snapshotRepository = new KafkaSnapshotRepository<>(consumerFactory, producerFactory, shardManager,
-                    shardMetadataProvider, recordReader, recordSearchStrategyFactory, snapshotMessageConverter);
+                    shardMetadataProvider, recordReader, recordSearchStrategyFactory, snapshotMessageConverter, versionOffsetIndex);
         }
 
         void givenShardForBusinessId() {
@@ -179,13 +229,23 @@ class KafkaSnapshotRepositoryTest {
         }
 
         void givenRealBinarySearchStrategyIsUsed() {
-            given(recordSearchStrategyFactory.getSearchStrategyFor(anyLong(), anyLong()))
+            given(recordSearchStrategyFactory.getSearchStrategyFor(anyLong(), anyLong(), anyLong(), anyLong()))
                     .willAnswer(args ->
                             new RecordBinarySearchStrategyFactory()
                                     .getSearchStrategyFor(args.getArgument(0, Long.class), args.getArgument(1, Long.class))
                     );
         }
 
+        void givenRealInterpolationSearchStrategyIsUsed() {
+            given(recordSearchStrategyFactory.getSearchStrategyFor(anyLong(), anyLong(), anyLong(), anyLong()))
+                    .willAnswer(args ->
+                            new RecordInterpolationSearchStrategyFactory().getSearchStrategyFor(
+                                    args.getArgument(0, Long.class), args.getArgument(1, Long.class),
+                                    args.getArgument(2, Long.class), args.getArgument(3, Long.class)
+                            )
+                    );
+        }
+
         void givenSingleRecordIsReadForOffsetSelectedBySearchStrategy() {
             ArgumentCaptor<Long> offsetArgumentCaptor = ArgumentCaptor.forClass(Long.class);
             willDoNothing().given(recordConsumer).seek(eq(PARTITION_ASSIGNMENT), offsetArgumentCaptor.capture());
@@ -194,6 +254,29 @@ class KafkaSnapshotRepositoryTest {
                     .willAnswer(arguments -> singleton(snapshotsInTopic.get(offsetArgumentCaptor.getValue().intValue())));
         }
 
+        void givenSnapshotProducerIsInitialized() {
+            given(producerFactory.<Message>createProducer()).willReturn(snapshotProducer);
+            snapshotRepository.initializeKafkaProducer();
+        }
+
+        CompletableFuture<Long> whenSnapshotIsAddedAsync() {
+            return snapshotRepository.addNewSnapshotAsync(ModelTestData.Snapshot.DEFAULT);
+        }
+
+        @SuppressWarnings("unchecked")
+        void whenBrokerAcknowledgesSentSnapshotsAtOffsets(long... offsets) {
+            ArgumentCaptor<Callback> callbackCaptor = ArgumentCaptor.forClass(Callback.class);
+            then(snapshotProducer).should(times(offsets.length)).send(any(ProducerRecord.class), callbackCaptor.capture());
+
+            for (int i = 0; i < offsets.length; i++) {
+                callbackCaptor.getAllValues().get(i).onCompletion(new RecordMetadata(PARTITION_ASSIGNMENT, offsets[i], 0, 0, 0L, 0, 0), null);
+            }
+        }
+
+        void thenSnapshotProducerWasCreatedOnce() {
+            then(producerFactory).should(times(1)).createProducer();
+        }
+
         void whenFindLatestSnapshotMethodIsCalledFor(int givenEventSequence) {
             foundSnapshot = snapshotRepository
                     .findLatestSnapshotFor(AGGREGATE_ID, Event.SequenceNumber.of(givenEventSequence))
@@ -224,6 +307,10 @@ class KafkaSnapshotRepositoryTest {
                     .forEach((expectedOffset, occurredCount) -> then(recordConsumer).should(times(occurredCount)).seek(PARTITION_ASSIGNMENT, expectedOffset));
         }
 
+        void thenNumberOfOffsetsTriedIs(int expectedOffsetsTriedCount) {
+            then(recordConsumer).should(times(expectedOffsetsTriedCount)).seek(any(TopicPartition.class), anyLong());
+        }
+
         void thenNoOffsetsWereTried() {
             then(recordConsumer).should(never()).seek(any(TopicPartition.class), anyLong());
         }
@@ -0,0 +1,100 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.google.protobuf.Message;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate;
+import com.wnowakcraft.samples.restaurant.core.domain.model.EventStore.EventStream;
+import com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.conversion.MessageConverter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.*;
+
+class LazyKafkaEventStreamTest {
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture();
+    }
+
+    @Test
+    void knowsVersion_withoutDecodingAnyEvent() {
+        var eventStream = fixture.givenEventStreamOfRecordsAtOffsets(3, 7, 12);
+
+        assertThat(eventStream.getVersion()).isEqualTo(Aggregate.Version.of(12));
+        assertThat(eventStream.getEvents()).hasSize(3);
+        then(fixture.messageDeserializer).shouldHaveNoInteractions();
+        then(fixture.eventMessageConverter).shouldHaveNoInteractions();
+    }
+
+    @Test
+    void decodesEvents_onlyAsTheyAreIterated() {
+        var eventStream = fixture.givenEventStreamOfRecordsAtOffsets(3, 7);
+        var events = eventStream.getEvents().iterator();
+
+        events.next();
+
+        then(fixture.eventMessageConverter).should().convert(fixture.message, 3);
+        then(fixture.eventMessageConverter).shouldHaveNoMoreInteractions();
+
+        events.next();
+
+        then(fixture.eventMessageConverter).should().convert(fixture.message, 7);
+        then(fixture.messageDeserializer).should(times(2)).deserialize(any(), any(), any());
+    }
+
+    @Test
+    void decodesFirstEventOnce_whenItIsLookedUpBeforeIteratingAllEvents() {
+        var eventStream = fixture.givenEventStreamOfRecordsAtOffsets(3, 7);
+        var creatingEvent = eventStream.getEvents().iterator().next();
+
+        var events = List.copyOf(eventStream.getEvents());
+
+        assertThat(events.get(0)).isSameAs(creatingEvent);
+        then(fixture.eventMessageConverter).should(times(1)).convert(fixture.message, 3);
+        then(fixture.messageDeserializer).should(times(2)).deserialize(any(), any(), any());
+    }
+
+    @Test
+    void isEmptyEventStream_whenNoRecordsWereRead() {
+        var eventStream = fixture.givenEventStreamOfRecordsAtOffsets();
+
+        assertThat(eventStream.isEmpty()).isTrue();
+    }
+
+    private static class Fixture {
+        private static final String TOPIC = "test_topic";
+
+        @Mock private Deserializer<Message> messageDeserializer;
+        @Mock private MessageConverter<ModelTestData.Event, Message> eventMessageConverter;
+        @Mock private Message message;
+
+        Fixture() {
+            MockitoAnnotations.initMocks(this);
+            given(messageDeserializer.deserialize(any(), any(), any())).willReturn(message);
+            given(eventMessageConverter.convert(any(Message.class), anyLong())).willAnswer(invocation -> mock(ModelTestData.Event.class));
+        }
+
+        EventStream<ModelTestData.Event> givenEventStreamOfRecordsAtOffsets(long... offsets) {
+            var records = new ArrayList<ConsumerRecord<String, byte[]>>();
+            for (var offset : offsets) {
+                records.add(new ConsumerRecord<>(TOPIC, 0, offset, "aggregate-1", new byte[0]));
+            }
+
+            return LazyKafkaEventStream.of(List.copyOf(records), messageDeserializer, eventMessageConverter);
+        }
+    }
+}
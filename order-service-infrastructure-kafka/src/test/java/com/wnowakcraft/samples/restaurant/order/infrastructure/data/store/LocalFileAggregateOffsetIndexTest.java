@@ -0,0 +1,220 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.KafkaPartition;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class LocalFileAggregateOffsetIndexTest {
+    @TempDir
+    Path indexDirectory;
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture(indexDirectory);
+    }
+
+    @Test
+    void startsReadingFromTheBeginning_whenShardWasNotScannedYet() {
+        var index = fixture.givenIndex();
+
+        index.recordAppended(Fixture.SHARD_REF, Fixture.AGGREGATE_ID, 7);
+
+        assertThat(index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID)).isZero();
+        assertThat(index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.OTHER_AGGREGATE_ID)).isZero();
+    }
+
+    @Test
+    void startsReadingFromFirstOffsetOfAggregate_orPastTheScannedPartOfShard() {
+        var index = fixture.givenIndex();
+        fixture.givenShardWithRecordsOf(Fixture.OTHER_AGGREGATE_ID, Fixture.OTHER_AGGREGATE_ID, Fixture.AGGREGATE_ID, Fixture.OTHER_AGGREGATE_ID);
+        index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID);
+
+        index.scanShards();
+
+        assertThat(index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID)).isEqualTo(2);
+        assertThat(index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.NEW_AGGREGATE_ID)).isEqualTo(4);
+    }
+
+    @Test
+    void keepsTheFirstOffsetOfAggregate_whenFurtherRecordsAreAppended() {
+        var index = fixture.givenIndex();
+        fixture.givenShardWithRecordsOf(Fixture.OTHER_AGGREGATE_ID, Fixture.AGGREGATE_ID);
+        index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID);
+        index.scanShards();
+
+        index.recordAppended(Fixture.SHARD_REF, Fixture.AGGREGATE_ID, 5);
+
+        assertThat(index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID)).isEqualTo(1);
+    }
+
+    @Test
+    void restoresIndex_fromPersistedFile() {
+        var index = fixture.givenIndex();
+        fixture.givenShardWithRecordsOf(Fixture.OTHER_AGGREGATE_ID, Fixture.AGGREGATE_ID);
+        index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID);
+        index.scanShards();
+
+        index.persistIndexFile();
+        var restoredIndex = fixture.givenIndex();
+        restoredIndex.startIndexMaintenance();
+
+        assertThat(restoredIndex.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID)).isEqualTo(1);
+        assertThat(restoredIndex.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.NEW_AGGREGATE_ID)).isEqualTo(2);
+    }
+
+    @Test
+    void rebuildsIndexOfShard_whenShardNoLongerHoldsRecordsCoveredByPersistedFile() {
+        var index = fixture.givenIndex();
+        fixture.givenShardWithRecordsOf(Fixture.OTHER_AGGREGATE_ID, Fixture.AGGREGATE_ID);
+        index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID);
+        index.scanShards();
+        index.persistIndexFile();
+
+        fixture.givenShardIsRecreatedEmpty(Fixture.SHARD_REF);
+        var restoredIndex = fixture.givenIndex();
+        restoredIndex.startIndexMaintenance();
+
+        assertThat(restoredIndex.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID)).isZero();
+    }
+
+    @Test
+    void scansOnlyShardsUsedSinceTheirLastScan() {
+        var index = fixture.givenIndex();
+        fixture.givenShardWithRecordsOf(Fixture.OTHER_AGGREGATE_ID, Fixture.AGGREGATE_ID);
+        index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID);
+        index.scanShards();
+        fixture.givenRecordsAppendedOf(Fixture.SHARD_REF, 2, Fixture.NEW_AGGREGATE_ID);
+
+        index.scanShards();
+
+        assertThat(index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.NEW_AGGREGATE_ID)).isEqualTo(2);
+        index.scanShards();
+        assertThat(index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.NEW_AGGREGATE_ID)).isEqualTo(2);
+    }
+
+    @Test
+    void scansNoMoreThanMaxShardsPerCycle_leavingTheRestForTheNextOne() {
+        var index = fixture.givenIndexScanningOneShardPerCycle();
+        fixture.givenShardWithRecordsOf(Fixture.OTHER_AGGREGATE_ID, Fixture.AGGREGATE_ID);
+        fixture.givenRecordsAppendedOf(Fixture.OTHER_SHARD_REF, 0, Fixture.OTHER_AGGREGATE_ID);
+        index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID);
+        index.recordAppended(Fixture.OTHER_SHARD_REF, Fixture.OTHER_AGGREGATE_ID, 0);
+
+        index.scanShards();
+
+        assertThat(index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.NEW_AGGREGATE_ID)).isEqualTo(2);
+        assertThat(index.getReadStartOffsetFor(Fixture.OTHER_SHARD_REF, Fixture.NEW_AGGREGATE_ID)).isZero();
+
+        index.scanShards();
+
+        assertThat(index.getReadStartOffsetFor(Fixture.OTHER_SHARD_REF, Fixture.NEW_AGGREGATE_ID)).isEqualTo(1);
+    }
+
+    @Test
+    void forgetsLeastRecentlyUsedShards_overMaxIndexedShards() {
+        var index = fixture.givenIndexOfOneShardAtMost();
+        fixture.givenShardWithRecordsOf(Fixture.OTHER_AGGREGATE_ID, Fixture.AGGREGATE_ID);
+        index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID);
+        index.scanShards();
+
+        index.recordAppended(Fixture.OTHER_SHARD_REF, Fixture.OTHER_AGGREGATE_ID, 0);
+
+        assertThat(index.getReadStartOffsetFor(Fixture.SHARD_REF, Fixture.AGGREGATE_ID)).isZero();
+    }
+
+    private static class Fixture {
+        private static final ShardRef SHARD_REF = new ShardRef("test_topic", 0);
+        private static final ShardRef OTHER_SHARD_REF = new ShardRef("other_test_topic", 0);
+        private static final String AGGREGATE_ID = "order-1";
+        private static final String OTHER_AGGREGATE_ID = "order-2";
+        private static final String NEW_AGGREGATE_ID = "order-3";
+        private static final long ONE_HOUR_MILLIS = 3_600_000;
+
+        private final Map<ShardRef, MockConsumer<String, byte[]>> consumers = Map.of(
+                SHARD_REF, consumerOf(SHARD_REF), OTHER_SHARD_REF, consumerOf(OTHER_SHARD_REF)
+        );
+        private final KafkaConsumerFactory consumerFactory = mock(KafkaConsumerFactory.class);
+        private final Path indexFile;
+
+        @SuppressWarnings("unchecked")
+        Fixture(Path indexDirectory) {
+            indexFile = indexDirectory.resolve("index.bin");
+            given(consumerFactory.doPooledRawConsumerRead(any(ShardRef.class), any()))
+                    .willAnswer(invocation -> invocation.<Function<Consumer<String, byte[]>, ?>>getArgument(1)
+                            .apply(consumers.get(invocation.<ShardRef>getArgument(0))));
+            given(consumerFactory.createConsumer()).willAnswer(invocation -> shardBoundsConsumer());
+        }
+
+        private MockConsumer<String, byte[]> shardBoundsConsumer() {
+            var consumer = new MockConsumer<String, byte[]>(OffsetResetStrategy.EARLIEST);
+            consumers.forEach((shardRef, shardConsumer) -> {
+                var partition = KafkaPartition.of(shardRef);
+                consumer.updateBeginningOffsets(shardConsumer.beginningOffsets(Set.of(partition)));
+                consumer.updateEndOffsets(shardConsumer.endOffsets(Set.of(partition)));
+            });
+            return consumer;
+        }
+
+        private static MockConsumer<String, byte[]> consumerOf(ShardRef shardRef) {
+            var partition = KafkaPartition.of(shardRef);
+            var consumer = new MockConsumer<String, byte[]>(OffsetResetStrategy.EARLIEST);
+            consumer.assign(Set.of(partition));
+            consumer.updateBeginningOffsets(Map.of(partition, 0L));
+            consumer.updateEndOffsets(Map.of(partition, 0L));
+            return consumer;
+        }
+
+        LocalFileAggregateOffsetIndex givenIndex() {
+            return givenIndexOf(10, 10);
+        }
+
+        LocalFileAggregateOffsetIndex givenIndexScanningOneShardPerCycle() {
+            return givenIndexOf(10, 1);
+        }
+
+        LocalFileAggregateOffsetIndex givenIndexOfOneShardAtMost() {
+            return givenIndexOf(1, 10);
+        }
+
+        private LocalFileAggregateOffsetIndex givenIndexOf(long maxIndexedShards, int maxShardsScannedPerCycle) {
+            var indexConfig = new AggregateOffsetIndexConfig(true, indexFile.toString(), ONE_HOUR_MILLIS, ONE_HOUR_MILLIS,
+                    maxIndexedShards, ONE_HOUR_MILLIS, maxShardsScannedPerCycle);
+            var recordPoller = new KafkaRecordPoller(new KafkaReadConfig(true, 1, 1));
+            return new LocalFileAggregateOffsetIndex(indexConfig, consumerFactory, recordPoller);
+        }
+
+        void givenShardWithRecordsOf(String... aggregateIds) {
+            givenRecordsAppendedOf(SHARD_REF, 0, aggregateIds);
+        }
+
+        void givenShardIsRecreatedEmpty(ShardRef shardRef) {
+            consumers.get(shardRef).updateEndOffsets(Map.of(KafkaPartition.of(shardRef), 0L));
+        }
+
+        void givenRecordsAppendedOf(ShardRef shardRef, long firstOffset, String... aggregateIds) {
+            var consumer = consumers.get(shardRef);
+            consumer.updateEndOffsets(Map.of(KafkaPartition.of(shardRef), firstOffset + aggregateIds.length));
+
+            for (var i = 0; i < aggregateIds.length; i++) {
+                consumer.addRecord(new ConsumerRecord<>(shardRef.topicName, shardRef.shardId, firstOffset + i, aggregateIds[i], new byte[0]));
+            }
+        }
+    }
+}
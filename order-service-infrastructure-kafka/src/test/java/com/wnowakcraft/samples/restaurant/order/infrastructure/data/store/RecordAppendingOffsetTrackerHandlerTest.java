@@ -0,0 +1,55 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecordAppendingOffsetTrackerHandlerTest {
+    private static final TopicPartition PARTITION = new TopicPartition("test_topic", 0);
+
+    @Test
+    void completesWithOffsetOfLatestRecord_onlyOnceAllRecordsAreAcknowledged() throws Exception {
+        var trackerHandler = new RecordAppendingOffsetTrackerHandler(3);
+
+        trackerHandler.getHandler().onCompletion(recordMetadataOf(10), null);
+        trackerHandler.getHandler().onCompletion(recordMetadataOf(12), null);
+        assertThat(trackerHandler.getOffsetOfLatestAppendedRecord()).isNotDone();
+
+        trackerHandler.getHandler().onCompletion(recordMetadataOf(11), null);
+        assertThat(trackerHandler.getOffsetOfLatestAppendedRecord().get()).isEqualTo(12);
+    }
+
+    @Test
+    void completesExceptionally_whenAppendingAnyRecordFails() {
+        var trackerHandler = new RecordAppendingOffsetTrackerHandler(2);
+
+        trackerHandler.getHandler().onCompletion(null, new IllegalStateException("Broker unavailable"));
+        trackerHandler.getHandler().onCompletion(recordMetadataOf(10), null);
+
+        assertThatThrownBy(() -> trackerHandler.getOffsetOfLatestAppendedRecord().get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void callsComposedHandler_beforeCompletingOffset() {
+        var trackerHandler = new RecordAppendingOffsetTrackerHandler(1);
+        var composedHandlerSawCompletedOffset = new boolean[1];
+
+        trackerHandler.getHandlerComposedWith((metadata, exception) ->
+                composedHandlerSawCompletedOffset[0] = trackerHandler.getOffsetOfLatestAppendedRecord().isDone()
+        ).onCompletion(recordMetadataOf(10), null);
+
+        assertThat(composedHandlerSawCompletedOffset[0]).isFalse();
+        assertThat(trackerHandler.getOffsetOfLatestAppendedRecord()).isCompleted();
+    }
+
+    private static RecordMetadata recordMetadataOf(long offset) {
+        return new RecordMetadata(PARTITION, offset, 0, 0, 0L, 0, 0);
+    }
+}
@@ -0,0 +1,86 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.store.RecordSearchStrategyFactory.SearchStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.LongUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecordInterpolationSearchStrategyFactoryTest {
+    private static final int OFFSETS_COUNT = 10_000;
+
+    private final RecordSearchStrategyFactory searchStrategyFactory = new RecordInterpolationSearchStrategyFactory();
+
+    @Test
+    void findsLatestOffsetHoldingKeyLowerThanTarget_withinFewProbes_whenKeysGrowAtConstantRate() {
+        LongUnaryOperator keyAtOffset = offset -> offset * 20 + 20;
+
+        for (long targetKey = 0; targetKey <= keyAtOffset.applyAsLong(OFFSETS_COUNT); targetKey += 7) {
+            var searchResult = search(keyAtOffset, targetKey);
+
+            assertThat(searchResult.foundOffset).isEqualTo(expectedOffsetFor(keyAtOffset, targetKey));
+            assertThat(searchResult.probes).isLessThanOrEqualTo(3);
+        }
+    }
+
+    @Test
+    void findsLatestOffsetHoldingKeyLowerThanTarget_withinLogarithmicNumberOfProbes_whenKeysGrowUnevenly() {
+        LongUnaryOperator keyAtOffset = offset -> offset < OFFSETS_COUNT - 10 ? offset : offset * 1_000_000;
+
+        for (long targetKey = 0; targetKey <= OFFSETS_COUNT; targetKey += 13) {
+            var searchResult = search(keyAtOffset, targetKey);
+
+            assertThat(searchResult.foundOffset).isEqualTo(expectedOffsetFor(keyAtOffset, targetKey));
+            assertThat(searchResult.probes).isLessThanOrEqualTo(3 * 14);
+        }
+    }
+
+    @Test
+    void searchesLikeBinarySearch_whenNoKeysAreKnown() {
+        var searchStrategy = searchStrategyFactory.getSearchStrategyFor(0, 100);
+
+        assertThat(searchStrategy.getNextOffsetToTry()).isEqualTo(50);
+        assertThat(searchStrategy.searchLower().getNextOffsetToTry()).isEqualTo(25);
+        assertThat(searchStrategy.searchUpper().getNextOffsetToTry()).isEqualTo(75);
+    }
+
+    private SearchResult search(LongUnaryOperator keyAtOffset, long targetKey) {
+        var searchResult = new SearchResult();
+        var lastOffset = OFFSETS_COUNT - 1;
+        var searchStrategy = searchStrategyFactory.getSearchStrategyFor(0, lastOffset, targetKey, keyAtOffset.applyAsLong(lastOffset));
+        if (keyAtOffset.applyAsLong(lastOffset) < targetKey) {
+            searchResult.foundOffset = lastOffset;
+            return searchResult;
+        }
+
+        List<Long> offsetsToTry;
+        while (!(offsetsToTry = searchStrategy.getNextOffsetsToTry()).isEmpty()) {
+            var offset = offsetsToTry.get(0);
+            var observedKey = keyAtOffset.applyAsLong(offset);
+            var satisfied = observedKey < targetKey;
+            if (satisfied) {
+                searchResult.foundOffset = offset;
+            }
+
+            searchResult.probes++;
+            searchStrategy = searchStrategy.narrowDown(satisfied ? 1 : 0, List.of(observedKey));
+        }
+
+        return searchResult;
+    }
+
+    private static long expectedOffsetFor(LongUnaryOperator keyAtOffset, long targetKey) {
+        var expectedOffset = -1L;
+        for (long offset = 0; offset < OFFSETS_COUNT && keyAtOffset.applyAsLong(offset) < targetKey; offset++) {
+            expectedOffset = offset;
+        }
+        return expectedOffset;
+    }
+
+    private static class SearchResult {
+        private long foundOffset = SearchStrategy.NO_FURTHER_OFFSET_AVAILABLE;
+        private int probes;
+    }
+}
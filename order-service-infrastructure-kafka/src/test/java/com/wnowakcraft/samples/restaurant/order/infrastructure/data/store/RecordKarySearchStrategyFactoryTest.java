@@ -0,0 +1,53 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.store.RecordSearchStrategyFactory.SearchStrategy;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+import java.util.function.LongPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecordKarySearchStrategyFactoryTest {
+
+    @ParameterizedTest(name = "given {0} probes per round and {1} offsets, then every boundary is found within {2} rounds")
+    @CsvSource({ "1, 100, 7", "4, 100, 3", "4, 1000, 5", "9, 1000, 4", "4, 1, 1" })
+    void findsLatestOffsetSatisfyingCriteria_withinLogarithmicNumberOfRounds(int probesPerRound, int offsetsCount, int maxRounds) {
+        var searchStrategyFactory = new RecordKarySearchStrategyFactory(probesPerRound);
+
+        for (long lastSatisfyingOffset = -1; lastSatisfyingOffset < offsetsCount; lastSatisfyingOffset++) {
+            var boundary = lastSatisfyingOffset;
+            var searchResult = search(searchStrategyFactory.getSearchStrategyFor(0, offsetsCount), offset -> offset <= boundary);
+
+            assertThat(searchResult.foundOffset).isEqualTo(boundary);
+            assertThat(searchResult.rounds).isLessThanOrEqualTo(maxRounds);
+        }
+    }
+
+    private static SearchResult search(SearchStrategy searchStrategy, LongPredicate criteria) {
+        var searchResult = new SearchResult();
+        List<Long> offsetsToTry;
+
+        while (!(offsetsToTry = searchStrategy.getNextOffsetsToTry()).isEmpty()) {
+            var satisfyingProbesCount = 0;
+            for (var offset : offsetsToTry) {
+                if (!criteria.test(offset)) {
+                    break;
+                }
+                searchResult.foundOffset = offset;
+                satisfyingProbesCount++;
+            }
+
+            searchResult.rounds++;
+            searchStrategy = searchStrategy.narrowDown(satisfyingProbesCount);
+        }
+
+        return searchResult;
+    }
+
+    private static class SearchResult {
+        private long foundOffset = -1;
+        private int rounds;
+    }
+}
@@ -0,0 +1,108 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.store.RecordSearchStrategyFactory.SearchStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Compares searching for the latest snapshot satisfying given criteria with {@link RecordBinarySearchStrategyFactory},
+ * probing one offset per round, and with {@link RecordKarySearchStrategyFactory}, probing several offsets per round in
+ * parallel. Every probe simulates the latency of fetching a single record from the broker. Run it with the main method,
+ * e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordSearchStrategyBenchmark {
+    private static final long PROBE_LATENCY_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    private long snapshotsCount;
+
+    @Param({ "4" })
+    private int probesPerRound;
+
+    private RecordSearchStrategyFactory binarySearchStrategyFactory;
+    private RecordSearchStrategyFactory karySearchStrategyFactory;
+    private ExecutorService probeExecutor;
+    private long lastSatisfyingOffset;
+
+    @Setup
+    public void setUp() {
+        binarySearchStrategyFactory = new RecordBinarySearchStrategyFactory();
+        karySearchStrategyFactory = new RecordKarySearchStrategyFactory(probesPerRound);
+        probeExecutor = Executors.newFixedThreadPool(probesPerRound);
+        lastSatisfyingOffset = snapshotsCount * 2 / 3;
+    }
+
+    @TearDown
+    public void tearDown() {
+        probeExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public long binarySearch() {
+        return search(binarySearchStrategyFactory.getSearchStrategyFor(0, snapshotsCount));
+    }
+
+    @Benchmark
+    public long karySearch() {
+        return search(karySearchStrategyFactory.getSearchStrategyFor(0, snapshotsCount));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RecordSearchStrategyBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private long search(SearchStrategy searchStrategy) {
+        var latestSatisfyingOffset = -1L;
+        var offsetsToTry = searchStrategy.getNextOffsetsToTry();
+
+        while (!offsetsToTry.isEmpty()) {
+            var satisfyingProbesCount = 0;
+
+            for (var offset : probe(offsetsToTry)) {
+                if (offset > lastSatisfyingOffset) {
+                    break;
+                }
+                latestSatisfyingOffset = offset;
+                satisfyingProbesCount++;
+            }
+
+            searchStrategy = searchStrategy.narrowDown(satisfyingProbesCount);
+            offsetsToTry = searchStrategy.getNextOffsetsToTry();
+        }
+
+        return latestSatisfyingOffset;
+    }
+
+    private List<Long> probe(List<Long> offsetsToTry) {
+        if (offsetsToTry.size() == 1) {
+            return List.of(fetchRecordAt(offsetsToTry.get(0)));
+        }
+
+        var probes = offsetsToTry.stream()
+                .map(offset -> CompletableFuture.supplyAsync(() -> fetchRecordAt(offset), probeExecutor))
+                .collect(Collectors.toUnmodifiableList());
+
+        return probes.stream().map(CompletableFuture::join).collect(Collectors.toUnmodifiableList());
+    }
+
+    private static long fetchRecordAt(long offset) {
+        LockSupport.parkNanos(PROBE_LATENCY_NANOS);
+        return offset;
+    }
+}
@@ -0,0 +1,103 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardMetadataProvider;
+import org.apache.kafka.common.KafkaException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardMetadataProvider.SHARD_OFFSET_UNKNOWN;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.*;
+
+class ShardOffsetTableTest {
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture();
+    }
+
+    @Test
+    void asksBrokerForShardOffset_onlyWhenShardIsNotTrackedYet() {
+        fixture.givenBrokerReportsLastOffset(5L);
+
+        fixture.shardOffsetTable.reserveOffsetsFor(Fixture.SHARD_REF, 5, 2);
+        fixture.shardOffsetTable.reserveOffsetsFor(Fixture.SHARD_REF, 7, 1);
+
+        fixture.thenBrokerWasAskedTimes(1);
+    }
+
+    @Test
+    void rejectsAppend_whenBrokerReportsShardHasMovedPastExpectedOffset() {
+        fixture.givenBrokerReportsLastOffset(7L);
+
+        assertThatThrownBy(() -> fixture.shardOffsetTable.reserveOffsetsFor(Fixture.SHARD_REF, 5, 1))
+                .isInstanceOf(ConcurrentLogAppendingException.class);
+        fixture.thenBrokerWasAskedTimes(1);
+    }
+
+    @Test
+    void rejectsSecondReservationOfTheSameOffset_evenBeforeBrokerAcknowledgesTheFirstOne() {
+        fixture.givenBrokerReportsLastOffset(5L, 5L);
+        fixture.shardOffsetTable.reserveOffsetsFor(Fixture.SHARD_REF, 5, 2);
+
+        assertThatThrownBy(() -> fixture.shardOffsetTable.reserveOffsetsFor(Fixture.SHARD_REF, 5, 1))
+                .isInstanceOf(ConcurrentLogAppendingException.class);
+        fixture.thenBrokerWasAskedTimes(1);
+    }
+
+    @Test
+    void tracksEmptyShard_soSecondFirstAppendToItIsRejected() {
+        fixture.givenBrokerReportsLastOffset(SHARD_OFFSET_UNKNOWN);
+        fixture.shardOffsetTable.reserveOffsetsFor(Fixture.SHARD_REF, SHARD_OFFSET_UNKNOWN, 1);
+
+        assertThatThrownBy(() -> fixture.shardOffsetTable.reserveOffsetsFor(Fixture.SHARD_REF, SHARD_OFFSET_UNKNOWN, 1))
+                .isInstanceOf(ConcurrentLogAppendingException.class);
+        fixture.thenBrokerWasAskedTimes(1);
+    }
+
+    @Test
+    void rejectsAppend_whenShardOffsetCannotBeLookedUp() {
+        given(fixture.shardMetadataProvider.getLastRecordOffsetForShard(Fixture.SHARD_REF))
+                .willReturn(CompletableFuture.failedFuture(new KafkaException("Test lookup failure")));
+
+        assertThatThrownBy(() -> fixture.shardOffsetTable.reserveOffsetsFor(Fixture.SHARD_REF, 5, 1))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void asksBrokerAgain_whenShardOffsetIsInvalidated() {
+        fixture.givenBrokerReportsLastOffset(5L, 6L);
+        fixture.shardOffsetTable.reserveOffsetsFor(Fixture.SHARD_REF, 5, 1);
+        fixture.shardOffsetTable.recordAppended(Fixture.SHARD_REF, 6);
+
+        fixture.shardOffsetTable.invalidate(Fixture.SHARD_REF);
+        fixture.shardOffsetTable.reserveOffsetsFor(Fixture.SHARD_REF, 6, 1);
+
+        fixture.thenBrokerWasAskedTimes(2);
+    }
+
+    private static class Fixture {
+        private static final ShardRef SHARD_REF = new ShardRef("test_topic", 0);
+
+        private final ShardMetadataProvider shardMetadataProvider = mock(ShardMetadataProvider.class);
+        private final ShardOffsetTable shardOffsetTable = new ShardOffsetTable(shardMetadataProvider);
+
+        void givenBrokerReportsLastOffset(Long lastOffset, Long... subsequentLastOffsets) {
+            var subsequentOffsetFutures = new CompletableFuture[subsequentLastOffsets.length];
+            for (var i = 0; i < subsequentLastOffsets.length; i++) {
+                subsequentOffsetFutures[i] = CompletableFuture.completedFuture(subsequentLastOffsets[i]);
+            }
+
+            given(shardMetadataProvider.getLastRecordOffsetForShard(SHARD_REF))
+                    .willReturn(CompletableFuture.completedFuture(lastOffset), subsequentOffsetFutures);
+        }
+
+        void thenBrokerWasAskedTimes(int times) {
+            then(shardMetadataProvider).should(times(times)).getLastRecordOffsetForShard(SHARD_REF);
+        }
+    }
+}
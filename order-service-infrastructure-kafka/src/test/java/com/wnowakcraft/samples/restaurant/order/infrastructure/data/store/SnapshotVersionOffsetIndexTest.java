@@ -0,0 +1,40 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.data.store;
+
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.shard.ShardManager.ShardRef;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.store.SnapshotVersionOffsetIndex.VersionBounds;
+import org.junit.jupiter.api.Test;
+
+import static com.wnowakcraft.samples.restaurant.order.infrastructure.data.store.SnapshotVersionOffsetIndex.OFFSET_UNKNOWN;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotVersionOffsetIndexTest {
+    private static final ShardRef SHARD_REF = new ShardRef("test_topic-SNAPSHOT", 0);
+    private static final ShardRef OTHER_SHARD_REF = new ShardRef("other_topic-SNAPSHOT", 0);
+
+    private final SnapshotVersionOffsetIndex versionOffsetIndex = new SnapshotVersionOffsetIndex(10, 4);
+
+    @Test
+    void returnsOffsetsOfSnapshotsSurroundingGivenVersion() {
+        versionOffsetIndex.recordSnapshotAt(SHARD_REF, 30, 3);
+        versionOffsetIndex.recordSnapshotAt(SHARD_REF, 10, 1);
+        versionOffsetIndex.recordSnapshotAt(SHARD_REF, 20, 2);
+
+        assertThat(versionOffsetIndex.getBoundsOf(SHARD_REF, 25)).isEqualTo(new VersionBounds(2, 3, 30));
+        assertThat(versionOffsetIndex.getBoundsOf(SHARD_REF, 20)).isEqualTo(new VersionBounds(1, 2, 20));
+        assertThat(versionOffsetIndex.getBoundsOf(SHARD_REF, 5).hasFloor()).isFalse();
+        assertThat(versionOffsetIndex.getBoundsOf(SHARD_REF, 35).hasCeiling()).isFalse();
+        assertThat(versionOffsetIndex.getBoundsOf(SHARD_REF, 35).getFloorOffset()).isEqualTo(3);
+        assertThat(versionOffsetIndex.getBoundsOf(OTHER_SHARD_REF, 25).hasFloor()).isFalse();
+    }
+
+    @Test
+    void forgetsEveryOtherEntry_butTheLatestOne_onceShardIndexIsFull() {
+        for (int i = 1; i <= 5; i++) {
+            versionOffsetIndex.recordSnapshotAt(SHARD_REF, i * 10, i);
+        }
+
+        assertThat(versionOffsetIndex.getBoundsOf(SHARD_REF, 45)).isEqualTo(new VersionBounds(4, 5, 50));
+        assertThat(versionOffsetIndex.getBoundsOf(SHARD_REF, 35)).isEqualTo(new VersionBounds(2, 4, 40));
+        assertThat(versionOffsetIndex.getBoundsOf(SHARD_REF, 15).getFloorOffset()).isEqualTo(OFFSET_UNKNOWN);
+    }
+}
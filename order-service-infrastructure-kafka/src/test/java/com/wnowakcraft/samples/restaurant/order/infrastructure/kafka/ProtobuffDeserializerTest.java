@@ -0,0 +1,146 @@
+package com.wnowakcraft.samples.restaurant.order.infrastructure.kafka;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.wnowakcraft.samples.restaurant.common.infrastructure.data.message.MessageEnvelope;
+import com.wnowakcraft.samples.restaurant.common.infrastructure.data.message.MessageEnvelopeV2;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.message.OrderApprovedEventMessage;
+import com.wnowakcraft.samples.restaurant.order.infrastructure.data.message.OrderCreatedEventMessage;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProtobuffDeserializerTest {
+    private static final String TOPIC = "test_topic";
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture();
+    }
+
+    @Test
+    void deserializesMessageSerializedByProtobuffSerializer() {
+        var message = OrderApprovedEventMessage.newBuilder().setOrderId("order-1").build();
+
+        var deserializedMessage = fixture.whenSerializedAndDeserialized(message);
+
+        assertThat(deserializedMessage).isEqualTo(message);
+    }
+
+    @Test
+    void deserializesMessageWithinEnvelopeV1_ofTypeRegisteredWithTypeId_byDefault() {
+        var message = OrderApprovedEventMessage.newBuilder().setOrderId("order-1").build();
+
+        var bytes = fixture.serializer.serialize(TOPIC, message);
+
+        assertThat(bytes[0]).isNotEqualTo(ProtobuffSerializer.ENVELOPE_V2_MAGIC_BYTE);
+        assertThat(fixture.deserializer.deserialize(TOPIC, bytes)).isEqualTo(message);
+    }
+
+    @Test
+    void serializesMessageOfTypeRegisteredWithTypeIdWithinCompactEnvelope_whenEnvelopeV2IsConfigured() throws InvalidProtocolBufferException {
+        var message = OrderApprovedEventMessage.newBuilder().setOrderId("order-1").build();
+        fixture.givenSerializerConfiguredWithEnvelopeVersion(2);
+
+        var bytes = fixture.serializer.serialize(TOPIC, message);
+
+        assertThat(bytes[0]).isEqualTo(ProtobuffSerializer.ENVELOPE_V2_MAGIC_BYTE);
+        assertThat(MessageEnvelopeV2.parseFrom(Arrays.copyOfRange(bytes, 1, bytes.length)))
+                .isEqualTo(MessageEnvelopeV2.newBuilder().setPayloadTypeId(2).setPayload(message.toByteString()).build());
+    }
+
+    @Test
+    void deserializesBareMessage_typedByRecordHeaders() {
+        var message = OrderApprovedEventMessage.newBuilder().setOrderId("order-1").build();
+        fixture.givenSerializerConfiguredWithTypeHeaders();
+        var headers = new RecordHeaders();
+
+        var bytes = fixture.serializer.serialize(TOPIC, headers, message);
+
+        assertThat(bytes).isEqualTo(message.toByteArray());
+        assertThat(headers.lastHeader(ProtobuffSerializer.PAYLOAD_TYPE_ID_HEADER)).isNotNull();
+        assertThat(fixture.deserializer.deserialize(TOPIC, headers, bytes)).isEqualTo(message);
+    }
+
+    @Test
+    void skipsRecordsOfNotAcceptedTypes_withoutParsingTheirPayload() {
+        var approvedMessage = OrderApprovedEventMessage.newBuilder().setOrderId("order-1").build();
+        var createdMessage = OrderCreatedEventMessage.newBuilder().setOrderId("order-1").build();
+        fixture.givenSerializerConfiguredWithTypeHeaders();
+        fixture.givenDeserializerAcceptingOnly(OrderCreatedEventMessage.class);
+        var approvedHeaders = new RecordHeaders();
+        var createdHeaders = new RecordHeaders();
+        fixture.serializer.serialize(TOPIC, approvedHeaders, approvedMessage);
+        var createdBytes = fixture.serializer.serialize(TOPIC, createdHeaders, createdMessage);
+
+        var corruptedApprovedBytes = new byte[] { (byte) 0xFF };
+
+        assertThat(fixture.deserializer.deserialize(TOPIC, approvedHeaders, corruptedApprovedBytes)).isNull();
+        assertThat(fixture.deserializer.deserialize(TOPIC, createdHeaders, createdBytes)).isEqualTo(createdMessage);
+        assertThat(fixture.deserializer.deserialize(TOPIC, new RecordHeaders(), fixture.serializer.serialize(TOPIC, approvedMessage))).isNull();
+    }
+
+    @Test
+    void failsWithMessageDeserializationException_whenPayloadTypeIdIsUnknown() {
+        var bytes = fixture.givenEnvelopeV2OfPayloadTypeId(Integer.MAX_VALUE);
+
+        assertThatThrownBy(() -> fixture.deserializer.deserialize(TOPIC, bytes))
+                .isInstanceOf(MessageDeserializationException.class);
+    }
+
+    @Test
+    void failsWithMessageDeserializationException_whenPayloadTypeIsUnknown() {
+        var bytes = fixture.givenEnvelopeOfPayloadType("com.wnowakcraft.UnknownMessage");
+
+        assertThatThrownBy(() -> fixture.deserializer.deserialize(TOPIC, bytes))
+                .isInstanceOf(MessageDeserializationException.class);
+    }
+
+    private static class Fixture {
+        private final ProtobuffSerializer serializer = new ProtobuffSerializer();
+        private final ProtobuffDeserializer deserializer = new ProtobuffDeserializer();
+
+        Message whenSerializedAndDeserialized(Message message) {
+            return deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, message));
+        }
+
+        void givenSerializerConfiguredWithEnvelopeVersion(int envelopeVersion) {
+            serializer.configure(Map.of(ProtobuffSerializer.ENVELOPE_VERSION_CONFIG, String.valueOf(envelopeVersion)), false);
+        }
+
+        void givenSerializerConfiguredWithTypeHeaders() {
+            serializer.configure(Map.of(
+                    ProtobuffSerializer.ENVELOPE_VERSION_CONFIG, "2",
+                    ProtobuffSerializer.TYPE_HEADERS_ENABLED_CONFIG, "true"
+            ), false);
+        }
+
+        void givenDeserializerAcceptingOnly(Class<? extends Message> acceptedType) {
+            deserializer.configure(Map.of(ProtobuffDeserializer.ACCEPTED_TYPES_CONFIG, acceptedType.getName()), false);
+        }
+
+        byte[] givenEnvelopeV2OfPayloadTypeId(int payloadTypeId) {
+            var envelope = MessageEnvelopeV2.newBuilder().setPayloadTypeId(payloadTypeId).build().toByteArray();
+            var bytes = new byte[1 + envelope.length];
+            bytes[0] = ProtobuffSerializer.ENVELOPE_V2_MAGIC_BYTE;
+            System.arraycopy(envelope, 0, bytes, 1, envelope.length);
+            return bytes;
+        }
+
+        byte[] givenEnvelopeOfPayloadType(String payloadTypeName) {
+            return MessageEnvelope.newBuilder()
+                    .setPayloadTypeQualifiedName(payloadTypeName)
+                    .setPayload(Any.getDefaultInstance())
+                    .build()
+                    .toByteArray();
+        }
+    }
+}
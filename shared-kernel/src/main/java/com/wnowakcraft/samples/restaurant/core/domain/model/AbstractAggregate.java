@@ -9,6 +9,7 @@ import java.util.LinkedList;
 
 import static com.wnowakcraft.preconditions.Preconditions.*;
 import static java.lang.String.format;
+import static java.util.Collections.unmodifiableCollection;
 import static java.util.List.copyOf;
 import static java.util.List.of;
 
@@ -41,7 +42,7 @@ public abstract class AbstractAggregate<ID extends Aggregate.Id, E extends Event
 
         this.aggregateId = creatingEvent.getConcernedAggregateId();
 
-        applyAll(copyOf(events));
+        applyAll(unmodifiableCollection(events));
         this.changes = new LinkedList<>();
     }
 
@@ -54,10 +55,14 @@ public abstract class AbstractAggregate<ID extends Aggregate.Id, E extends Event
         this.aggregateId = snapshot.getAggregateId();
 
         restoreFrom(snapshot);
-        applyAll(copyOf(events));
+        applyAll(unmodifiableCollection(events));
         this.changes = new LinkedList<>();
     }
 
+    /**
+     * Applies the events in the order they're iterated. Events restored from an event store may be decoded only as
+     * they're iterated, so they're handed over as they are instead of being copied first, and should be iterated once.
+     */
     protected abstract void applyAll(Collection<E> events);
 
     protected abstract void restoreFrom(S snapshot);
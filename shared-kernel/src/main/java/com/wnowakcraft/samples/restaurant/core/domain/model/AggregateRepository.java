@@ -11,6 +11,9 @@ import lombok.extern.slf4j.Slf4j;
 import javax.inject.Inject;
 import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 
 import static java.util.Objects.requireNonNull;
@@ -28,15 +31,33 @@ public class AggregateRepository<
     @NonNull private final TakeSnapshotStrategy<E, A, S, ID> takeSnapshotStrategy;
     @NonNull private final RestoreAggregateFromSnapshot<E, A, S, ID> restoreAggregateFromSnapshot;
     @NonNull private final RestoreAggregateFromEvents<E, A, ID> restoreAggregateFromEvents;
-
+    @NonNull private final Executor executor;
+
+    /**
+     * The returned future completes as soon as the changes are appended and the aggregate's version is updated. Adding a
+     * new snapshot, when the strategy asks for one, happens afterwards and is never waited for - the strategy is asked and
+     * the snapshot captured before the future completes though, so it can't see changes made to the aggregate after
+     * saving it, and the aggregate's state is copied only when the snapshot is going to be added. Only
+     * the snapshotting runs on the given executor - the version update is done straight away, so a busy executor can't
+     * leave an appended aggregate with a stale version; when the executor rejects the snapshotting it's just skipped.
+     */
     @LogBefore("Saving aggregate with id of {p0.getId().getValue()}...")
     @LogAfter("Aggregate has been saved.")
     public CompletableFuture<Aggregate.Version> save(A aggregate) {
         requireNonNull(aggregate, "aggregate");
+        var capturedSnapshot = new AtomicReference<S>();
+
+        var savedVersion = eventStore.append(aggregate.getId(), aggregate.getVersion(), aggregate.getChanges())
+                .whenComplete(updateVersionOf(aggregate))
+                .whenComplete(captureSnapshotWhenRequiredOf(aggregate, capturedSnapshot));
+
+        savedVersion.thenRun(() -> {
+            if (capturedSnapshot.get() != null) {
+                scheduleSnapshottingOf(aggregate, capturedSnapshot.get());
+            }
+        });
 
-        return eventStore.append(aggregate.getId(), aggregate.getVersion(), aggregate.getChanges())
-                .whenCompleteAsync(updateVersionOf(aggregate))
-                .whenCompleteAsync(doSnapshottingWhenRequiredOf(aggregate));
+        return savedVersion;
     }
 
     private BiConsumer<Aggregate.Version, Throwable> updateVersionOf(A aggregate) {
@@ -47,32 +68,60 @@ public class AggregateRepository<
         };
     }
 
-    private BiConsumer<Aggregate.Version, Throwable> doSnapshottingWhenRequiredOf(A ofAggregate) {
+    private BiConsumer<Aggregate.Version, Throwable> captureSnapshotWhenRequiredOf(A ofAggregate, AtomicReference<S> capturedSnapshot) {
         return (newAggregateVersion, exception) -> {
-            if (takeSnapshotStrategy.shouldTakeNewSnapshot(
-                    ofAggregate,
-                    aggregate -> snapshotRepository.findLatestSnapshotFor(aggregate.getId())
-            )) {
-                snapshotRepository.addNewSnapshot(ofAggregate.takeSnapshot());
+            if (exception != null) {
+                return;
+            }
+
+            try {
+                if (takeSnapshotStrategy.shouldTakeNewSnapshot(
+                        ofAggregate,
+                        aggregate -> snapshotRepository.findLatestSnapshotFor(aggregate.getId())
+                )) {
+                    capturedSnapshot.set(ofAggregate.takeSnapshot());
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Couldn't take a snapshot of aggregate with id of {}. Reason: {}", ofAggregate.getId().getValue(), ex.getMessage(), ex);
             }
         };
     }
 
+    private void scheduleSnapshottingOf(A aggregate, S snapshot) {
+        try {
+            executor.execute(() -> addSnapshotOf(aggregate, snapshot));
+        } catch (RejectedExecutionException ex) {
+            log.warn("Snapshotting of aggregate with id of {} has been rejected and is skipped. Reason: {}", aggregate.getId().getValue(), ex.getMessage());
+        }
+    }
+
+    private void addSnapshotOf(A aggregate, S snapshot) {
+        try {
+            snapshotRepository.addNewSnapshot(snapshot);
+        } catch (RuntimeException ex) {
+            log.warn("Couldn't take a snapshot of aggregate with id of {}. Reason: {}", aggregate.getId().getValue(), ex.getMessage(), ex);
+        }
+    }
+
     @LogBefore("Restoring aggregate with id of {p0.getValue()}...")
     @LogAfter("Aggregate has been restored.")
     public A getById(ID aggregateId) {
         requireNonNull(aggregateId, "aggregateId");
 
         return snapshotRepository.findLatestSnapshotFor(aggregateId)
-                .map(s -> restoreOrderFrom(s, eventStore.loadEventsFor(aggregateId, s.getAggregateVersion().nextVersion())))
+                .map(s -> restoreFrom(aggregateId, s, s.getAggregateVersion()))
                 .orElseGet(() -> restoreOrderFrom(eventStore.loadAllEventsFor(aggregateId)));
     }
 
-    private A restoreOrderFrom(S snapshot, EventStore.EventStream<E> eventStream) {
+    protected A restoreFrom(ID aggregateId, S snapshot, Aggregate.Version snapshotVersion) {
+        return restoreOrderFrom(snapshot, snapshotVersion, eventStore.loadEventsFor(aggregateId, snapshotVersion.nextVersion()));
+    }
+
+    private A restoreOrderFrom(S snapshot, Aggregate.Version snapshotVersion, EventStore.EventStream<E> eventStream) {
         return restoreAggregateFromSnapshot.restore(
                 snapshot,
                 eventStream.getEvents(),
-                eventStream.isEmpty() ? snapshot.getAggregateVersion() : eventStream.getVersion()
+                eventStream.isEmpty() ? snapshotVersion : eventStream.getVersion()
         );
     }
 
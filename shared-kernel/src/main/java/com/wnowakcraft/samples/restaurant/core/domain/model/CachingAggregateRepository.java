@@ -0,0 +1,142 @@
+package com.wnowakcraft.samples.restaurant.core.domain.model;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.wnowakcraft.samples.restaurant.core.domain.model.snapshot.Snapshottable;
+import com.wnowakcraft.samples.restaurant.core.domain.model.snapshot.TakeSnapshotStrategy;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+/**
+ * {@link AggregateRepository} keeping recently saved or restored aggregates in memory, so restoring them again only
+ * needs the events appended after the cached version instead of a snapshot lookup followed by an event store read.
+ * <p>
+ * Aggregates are cached as their snapshots together with their versions - aggregates themselves are mutable and can't be
+ * shared between callers. A cached entry is dropped when saving its aggregate fails, for instance due to a concurrent
+ * append, or when the cached version turns out not to match the version the aggregate is saved or restored with.
+ */
+@Slf4j
+public class CachingAggregateRepository<
+        E extends Event<?>,
+        A extends Aggregate<ID, E> & WithUpdatableVersion & Snapshottable<S>,
+        S extends Snapshot<? extends Snapshot.Id, ID>,
+        ID extends Aggregate.Id> extends AggregateRepository<E, A, S, ID> {
+
+    private final Cache<ID, CachedAggregate<S>> aggregateCache;
+    private final LongAdder invalidationCount = new LongAdder();
+
+    public CachingAggregateRepository(EventStore<E, A, ID> eventStore,
+                                      SnapshotRepository<S, ID> snapshotRepository,
+                                      TakeSnapshotStrategy<E, A, S, ID> takeSnapshotStrategy,
+                                      RestoreAggregateFromSnapshot<E, A, S, ID> restoreAggregateFromSnapshot,
+                                      RestoreAggregateFromEvents<E, A, ID> restoreAggregateFromEvents,
+                                      Executor executor,
+                                      CacheSettings cacheSettings) {
+        super(eventStore, snapshotRepository, takeSnapshotStrategy, restoreAggregateFromSnapshot, restoreAggregateFromEvents, executor);
+        requireNonNull(cacheSettings, "cacheSettings");
+
+        this.aggregateCache = CacheBuilder.newBuilder()
+                .maximumSize(cacheSettings.getMaximumSize())
+                .expireAfterWrite(cacheSettings.getExpireAfterWrite())
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<Aggregate.Version> save(A aggregate) {
+        requireNonNull(aggregate, "aggregate");
+        var aggregateId = aggregate.getId();
+        var cachedAggregate = aggregateCache.asMap().get(aggregateId);
+
+        if (cachedAggregate != null && !cachedAggregate.version.equals(aggregate.getVersion())) {
+            invalidate(aggregateId);
+        }
+
+        try {
+            return super.save(aggregate).whenComplete((newAggregateVersion, exception) -> {
+                if (exception == null) {
+                    cache(aggregate);
+                } else {
+                    invalidate(aggregateId);
+                }
+            });
+        } catch (RuntimeException ex) {
+            invalidate(aggregateId);
+            throw ex;
+        }
+    }
+
+    @Override
+    public A getById(ID aggregateId) {
+        requireNonNull(aggregateId, "aggregateId");
+        var cachedAggregate = aggregateCache.getIfPresent(aggregateId);
+
+        if (cachedAggregate != null) {
+            var aggregate = restoreFrom(aggregateId, cachedAggregate.snapshot, cachedAggregate.version);
+
+            if (aggregate.getVersion().number > cachedAggregate.version.number) {
+                cache(aggregate);
+            }
+            if (aggregate.getVersion().number >= cachedAggregate.version.number) {
+                return aggregate;
+            }
+
+            log.warn("Aggregate with id of {} restored with version {} preceding its cached version {}, restoring it from scratch",
+                    aggregateId.getValue(), aggregate.getVersion(), cachedAggregate.version);
+            invalidate(aggregateId);
+        }
+
+        var aggregate = super.getById(aggregateId);
+        cache(aggregate);
+        return aggregate;
+    }
+
+    private void cache(A aggregate) {
+        aggregateCache.put(aggregate.getId(), new CachedAggregate<>(aggregate.takeSnapshot(), aggregate.getVersion()));
+    }
+
+    private void invalidate(ID aggregateId) {
+        aggregateCache.invalidate(aggregateId);
+        invalidationCount.increment();
+    }
+
+    public CacheStats getCacheStats() {
+        var stats = aggregateCache.stats();
+        return new CacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(), invalidationCount.sum());
+    }
+
+    @RequiredArgsConstructor
+    private static class CachedAggregate<S> {
+        private final S snapshot;
+        private final Aggregate.Version version;
+    }
+
+    @Value
+    public static class CacheSettings {
+        private final long maximumSize;
+        private final Duration expireAfterWrite;
+
+        public CacheSettings(long maximumSize, Duration expireAfterWrite) {
+            requireThat(maximumSize >= 0, "maximumSize cannot be negative");
+            this.maximumSize = maximumSize;
+            this.expireAfterWrite = requireNonNull(expireAfterWrite, "expireAfterWrite");
+        }
+    }
+
+    @Value
+    public static class CacheStats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long invalidationCount;
+    }
+}
@@ -6,13 +6,16 @@ import lombok.ToString;
 import java.util.UUID;
 
 import static com.wnowakcraft.preconditions.Preconditions.requireNonEmpty;
-import static com.wnowakcraft.preconditions.Preconditions.requireThat;
 import static java.lang.String.format;
 
 @ToString
 @EqualsAndHashCode
 public abstract class DomainBoundBusinessId implements Id<String> {
     private static final String SEPARATOR = "-";
+    private static final char SEPARATOR_CHAR = '-';
+    private static final int FIRST_THREE_UUID_GROUPS_LENGTH = 18;
+    private static final int FIRST_UUID_GROUP_END = 8;
+    private static final int SECOND_UUID_GROUP_END = 13;
     private static final String FIRST_THREE_UUUID_GROUPS_REGEX = "\\w{8}" + SEPARATOR + "\\w{4}" + SEPARATOR + "\\w{4}";
     public static final String STRING_ID_REGEX = "\\w+" + SEPARATOR + "\\w+" + SEPARATOR + "[A-Z]" + SEPARATOR + FIRST_THREE_UUUID_GROUPS_REGEX;
 
@@ -45,12 +48,52 @@ public abstract class DomainBoundBusinessId implements Id<String> {
 
     private static void verifyAggregateIdCorrectness(String domainObjectId, String domainName, String domainObjectName,
                                                      char domainObjectType) {
-        requireThat(
-                domainObjectId.matches(
-                        idPrefixOf(domainName, domainObjectName, domainObjectType) + SEPARATOR + FIRST_THREE_UUUID_GROUPS_REGEX),
-                format("%s is not valid identifier for %s domain and %s domain object of type %c",
-                        domainObjectId, domainName, domainObjectName, domainObjectType)
-        );
+        if (!isValidIdOf(domainObjectId, domainName, domainObjectName, domainObjectType)) {
+            throw new IllegalArgumentException(
+                    format("%s is not valid identifier for %s domain and %s domain object of type %c",
+                            domainObjectId, domainName, domainObjectName, domainObjectType)
+            );
+        }
+    }
+
+    /**
+     * Checks the id the same way matching it against the id prefix followed by {@link #FIRST_THREE_UUUID_GROUPS_REGEX}
+     * would, but without building and compiling the regex, as ids are parsed for every event and snapshot read.
+     */
+    private static boolean isValidIdOf(String domainObjectId, String domainName, String domainObjectName,
+                                       char domainObjectType) {
+        var domainObjectNameStart = domainName.length() + 1;
+        var domainObjectTypeStart = domainObjectNameStart + domainObjectName.length() + 1;
+        var uuidGroupsStart = domainObjectTypeStart + 2;
+
+        return domainObjectId.length() == uuidGroupsStart + FIRST_THREE_UUID_GROUPS_LENGTH
+                && domainObjectId.startsWith(domainName)
+                && domainObjectId.charAt(domainObjectNameStart - 1) == SEPARATOR_CHAR
+                && domainObjectId.startsWith(domainObjectName, domainObjectNameStart)
+                && domainObjectId.charAt(domainObjectTypeStart - 1) == SEPARATOR_CHAR
+                && domainObjectId.charAt(domainObjectTypeStart) == domainObjectType
+                && domainObjectId.charAt(uuidGroupsStart - 1) == SEPARATOR_CHAR
+                && areFirstThreeUuidGroups(domainObjectId, uuidGroupsStart);
+    }
+
+    private static boolean areFirstThreeUuidGroups(String domainObjectId, int uuidGroupsStart) {
+        for (int i = 0; i < FIRST_THREE_UUID_GROUPS_LENGTH; i++) {
+            var character = domainObjectId.charAt(uuidGroupsStart + i);
+            var isSeparatorPosition = i == FIRST_UUID_GROUP_END || i == SECOND_UUID_GROUP_END;
+
+            if (isSeparatorPosition ? character != SEPARATOR_CHAR : !isWordCharacter(character)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as the {@code \w} regex character class.
+     */
+    private static boolean isWordCharacter(char character) {
+        return (character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z')
+                || (character >= '0' && character <= '9') || character == '_';
     }
 
     private static String threeMostSignificantComponentsOf(UUID uuid) {
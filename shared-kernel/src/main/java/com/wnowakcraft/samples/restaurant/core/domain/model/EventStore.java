@@ -5,12 +5,28 @@ import lombok.RequiredArgsConstructor;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 import static lombok.AccessLevel.PRIVATE;
 
 public interface EventStore<E extends Event<?>, A extends Aggregate<ID, E>, ID extends Aggregate.Id> {
     EventStream<E> loadAllEventsFor(ID aggregateId);
+
+    /**
+     * Loads all events of each of the given aggregates. Implementations are encouraged to override it whenever they can
+     * read the events of many aggregates more efficiently than one by one.
+     *
+     * @return event streams keyed by aggregate ids, in the order of the given ids
+     */
+    default Map<ID, EventStream<E>> loadAllEventsFor(Collection<ID> aggregateIds) {
+        var eventStreams = new LinkedHashMap<ID, EventStream<E>>();
+        aggregateIds.forEach(aggregateId -> eventStreams.computeIfAbsent(aggregateId, this::loadAllEventsFor));
+
+        return eventStreams;
+    }
+
     EventStream<E> loadEventsFor(ID aggregateId, SequenceNumber startingFromSequenceNumber);
     EventStream<E> loadEventsFor(ID aggregateId, Aggregate.Version whichFollowsAggregateVersion);
     CompletableFuture<Aggregate.Version> append(ID aggregateId, Aggregate.Version aggregateVersion, Collection<E> events);
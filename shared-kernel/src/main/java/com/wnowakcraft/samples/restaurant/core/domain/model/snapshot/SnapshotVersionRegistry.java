@@ -0,0 +1,43 @@
+package com.wnowakcraft.samples.restaurant.core.domain.model.snapshot;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate;
+
+import java.util.Optional;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+/**
+ * Remembers the version of the latest snapshot of recently used aggregates, so deciding whether a new snapshot is due
+ * doesn't need to look the latest snapshot up. {@link Aggregate.Version#NONE} is remembered for aggregates known to
+ * have no snapshot at all. Recorded versions only ever move forward.
+ */
+public class SnapshotVersionRegistry<ID extends Aggregate.Id> {
+    private final Cache<ID, Aggregate.Version> snapshotVersions;
+
+    public SnapshotVersionRegistry(long maximumSize) {
+        requireThat(maximumSize >= 0, "maximumSize cannot be negative");
+
+        this.snapshotVersions = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    public Optional<Aggregate.Version> getLastSnapshotVersionOf(ID aggregateId) {
+        requireNonNull(aggregateId, "aggregateId");
+
+        return Optional.ofNullable(snapshotVersions.getIfPresent(aggregateId));
+    }
+
+    public void recordSnapshotOf(ID aggregateId, Aggregate.Version snapshotVersion) {
+        requireNonNull(aggregateId, "aggregateId");
+        requireNonNull(snapshotVersion, "snapshotVersion");
+
+        snapshotVersions.asMap().merge(aggregateId, snapshotVersion,
+                (recordedVersion, version) -> version.number > recordedVersion.number ? version : recordedVersion);
+    }
+
+    public void recordNoSnapshotOf(ID aggregateId) {
+        recordSnapshotOf(aggregateId, Aggregate.Version.NONE);
+    }
+}
@@ -4,14 +4,12 @@ import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate;
 import com.wnowakcraft.samples.restaurant.core.domain.model.Event;
 import com.wnowakcraft.samples.restaurant.core.domain.model.Snapshot;
 import com.wnowakcraft.samples.restaurant.core.domain.model.WithUpdatableVersion;
-import lombok.RequiredArgsConstructor;
 
 import java.util.Optional;
 import java.util.function.Function;
 
 import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
 
-@RequiredArgsConstructor
 public class TakeSnapshotEveryVersionThresholdStrategy<
         E extends Event<?>,
         A extends Aggregate<ID, E> & WithUpdatableVersion,
@@ -19,21 +17,53 @@ public class TakeSnapshotEveryVersionThresholdStrategy<
         ID extends Aggregate.Id>
         implements TakeSnapshotStrategy<E, A, S, ID> {
 
+    private static final long NO_REMEMBERED_VERSIONS = 0;
     private final int versionThreshold;
+    private final SnapshotVersionRegistry<ID> snapshotVersionRegistry;
+
+    public TakeSnapshotEveryVersionThresholdStrategy(int versionThreshold) {
+        this(versionThreshold, new SnapshotVersionRegistry<>(NO_REMEMBERED_VERSIONS));
+    }
+
+    /**
+     * The version of the previous snapshot is taken from the given registry whenever it's there, the previous snapshot
+     * provider is asked only otherwise. The strategy keeps the registry up to date by itself - the version of every
+     * snapshot it decides to be taken is recorded there straight away, so it doesn't depend on the registry being shared
+     * with a {@link VersionTrackingSnapshotRepository}.
+     */
+    public TakeSnapshotEveryVersionThresholdStrategy(int versionThreshold, SnapshotVersionRegistry<ID> snapshotVersionRegistry) {
+        this.versionThreshold = versionThreshold;
+        this.snapshotVersionRegistry = requireNonNull(snapshotVersionRegistry, "snapshotVersionRegistry");
+    }
 
     @Override
     public boolean shouldTakeNewSnapshot(A aggregate, Function<A, Optional<S>> previousSnapshotProvider) {
         requireNonNull(aggregate, "aggregate");
         requireNonNull(previousSnapshotProvider, "previousSnapshotProvider");
 
-        return aggregate.getVersion().number >=
+        var shouldTakeNewSnapshot = aggregate.getVersion().number >=
                 snapshottedAggregateVersionUsing(previousSnapshotProvider, aggregate) + versionThreshold;
+
+        if (shouldTakeNewSnapshot) {
+            snapshotVersionRegistry.recordSnapshotOf(aggregate.getId(), aggregate.getVersion());
+        }
+        return shouldTakeNewSnapshot;
     }
 
     private long snapshottedAggregateVersionUsing(Function<A, Optional<S>> previousSnapshotProvider, A aggregate) {
-        return previousSnapshotProvider
+        var snapshottedVersion = snapshotVersionRegistry.getLastSnapshotVersionOf(aggregate.getId())
+                .orElseGet(() -> previousSnapshotVersionUsing(previousSnapshotProvider, aggregate));
+
+        return Math.max(snapshottedVersion.number, 0L);
+    }
+
+    private Aggregate.Version previousSnapshotVersionUsing(Function<A, Optional<S>> previousSnapshotProvider, A aggregate) {
+        var snapshottedVersion = previousSnapshotProvider
                 .apply(aggregate)
-                .map(snapshot -> snapshot.getAggregateVersion().number)
-                .orElse(0L);
+                .map(Snapshot::getAggregateVersion)
+                .orElse(Aggregate.Version.NONE);
+
+        snapshotVersionRegistry.recordSnapshotOf(aggregate.getId(), snapshottedVersion);
+        return snapshottedVersion;
     }
 }
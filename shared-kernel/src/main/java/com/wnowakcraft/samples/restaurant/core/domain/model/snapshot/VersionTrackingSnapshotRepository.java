@@ -0,0 +1,58 @@
+package com.wnowakcraft.samples.restaurant.core.domain.model.snapshot;
+
+import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Event;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Snapshot;
+import com.wnowakcraft.samples.restaurant.core.domain.model.SnapshotRepository;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+
+/**
+ * {@link SnapshotRepository} keeping the {@link SnapshotVersionRegistry} up to date with the snapshots being added, and
+ * with the latest snapshots being looked up - which is what restoring an aggregate starts with.
+ */
+@RequiredArgsConstructor
+public class VersionTrackingSnapshotRepository<S extends Snapshot<? extends Snapshot.Id, AID>, AID extends Aggregate.Id>
+        implements SnapshotRepository<S, AID> {
+    @NonNull private final SnapshotRepository<S, AID> snapshotRepository;
+    @NonNull private final SnapshotVersionRegistry<AID> snapshotVersionRegistry;
+
+    @Override
+    public Optional<S> findLatestSnapshotFor(AID aggregateId) {
+        var latestSnapshot = snapshotRepository.findLatestSnapshotFor(aggregateId);
+
+        latestSnapshot.ifPresentOrElse(
+                snapshot -> snapshotVersionRegistry.recordSnapshotOf(aggregateId, snapshot.getAggregateVersion()),
+                () -> snapshotVersionRegistry.recordNoSnapshotOf(aggregateId)
+        );
+        return latestSnapshot;
+    }
+
+    @Override
+    public Optional<S> findLatestSnapshotFor(AID aggregateId, Event.SequenceNumber beforeGivenEventSequenceNumber) {
+        return snapshotRepository.findLatestSnapshotFor(aggregateId, beforeGivenEventSequenceNumber);
+    }
+
+    @Override
+    public Optional<S> findLatestSnapshotFor(AID aggregateId, Instant beforeGivenPointInTime) {
+        return snapshotRepository.findLatestSnapshotFor(aggregateId, beforeGivenPointInTime);
+    }
+
+    @Override
+    public Optional<S> findFirstSnapshotFor(AID aggregateId, Instant afterGivenPointInTime) {
+        return snapshotRepository.findFirstSnapshotFor(aggregateId, afterGivenPointInTime);
+    }
+
+    @Override
+    public void addNewSnapshot(S snapshot) {
+        requireNonNull(snapshot, "snapshot");
+
+        snapshotRepository.addNewSnapshot(snapshot);
+        snapshotVersionRegistry.recordSnapshotOf(snapshot.getAggregateId(), snapshot.getAggregateVersion());
+    }
+}
@@ -0,0 +1,238 @@
+package com.wnowakcraft.samples.restaurant.core.infrastructure.concurrent;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Event;
+import com.wnowakcraft.samples.restaurant.core.domain.model.Snapshot;
+import com.wnowakcraft.samples.restaurant.core.domain.model.SnapshotRepository;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * {@link SnapshotRepository} writing new snapshots in the background, so nobody adding a snapshot waits for the write.
+ * <p>
+ * Snapshots waiting to be written are coalesced per aggregate - adding a snapshot of an aggregate which already has one
+ * waiting keeps just the one of the higher version, so hot aggregates cost a single write per round of the writer no
+ * matter how often they're snapshotted. Aggregates are spread over the writers by their ids, hence snapshots of the same
+ * aggregate are never written concurrently.
+ * <p>
+ * Each writer has a bounded queue of aggregates waiting for their snapshots to be written. What happens once the queue
+ * is full is decided by {@link OverflowPolicy}. The latest snapshot of an aggregate is looked up among the ones waiting
+ * or being written first, all other lookups go straight to the underlying repository.
+ */
+@Slf4j
+public class BackgroundSnapshotRepository<S extends Snapshot<? extends Snapshot.Id, AID>, AID extends Aggregate.Id>
+        implements SnapshotRepository<S, AID>, AutoCloseable {
+    private static final long IDLE_CHECK_INTERVAL_MILLIS = 100;
+    private static final long TERMINATION_TIMEOUT_SECONDS = 10;
+
+    private final SnapshotRepository<S, AID> snapshotRepository;
+    private final OverflowPolicy overflowPolicy;
+    private final ConcurrentMap<AID, S> pendingSnapshots = new ConcurrentHashMap<>();
+    private final ConcurrentMap<AID, S> writtenSnapshots = new ConcurrentHashMap<>();
+    private final List<BlockingDeque<AID>> writerQueues = new ArrayList<>();
+    private final ExecutorService writers;
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private volatile boolean closed;
+
+    public BackgroundSnapshotRepository(SnapshotRepository<S, AID> snapshotRepository, WriterSettings writerSettings) {
+        this.snapshotRepository = requireNonNull(snapshotRepository, "snapshotRepository");
+        requireNonNull(writerSettings, "writerSettings");
+        this.overflowPolicy = writerSettings.getOverflowPolicy();
+
+        var writersCount = writerSettings.getWritersCount();
+        var writerQueueCapacity = Math.max(1, writerSettings.getQueueCapacity() / writersCount);
+        this.writers = Executors.newFixedThreadPool(
+                writersCount, new ThreadFactoryBuilder().setNameFormat("background-snapshot-writer-%d").setDaemon(true).build()
+        );
+
+        for (int i = 0; i < writersCount; i++) {
+            var writerQueue = new LinkedBlockingDeque<AID>(writerQueueCapacity);
+            writerQueues.add(writerQueue);
+            writers.execute(() -> writeSnapshotsFrom(writerQueue));
+        }
+    }
+
+    @Override
+    public void addNewSnapshot(S snapshot) {
+        requireNonNull(snapshot, "snapshot");
+        var aggregateId = snapshot.getAggregateId();
+        var coalesced = new AtomicBoolean();
+
+        pendingSnapshots.compute(aggregateId, (anyAggregateId, pendingSnapshot) -> {
+            if (pendingSnapshot == null) {
+                return snapshot;
+            }
+
+            coalesced.set(true);
+            return snapshot.getAggregateVersion().number >= pendingSnapshot.getAggregateVersion().number ? snapshot : pendingSnapshot;
+        });
+
+        if (coalesced.get()) {
+            coalescedCount.increment();
+            return;
+        }
+
+        if (closed || !enqueue(aggregateId, writerQueueFor(aggregateId))) {
+            pendingSnapshots.remove(aggregateId);
+            droppedCount.increment();
+            log.debug("Dropped snapshot of aggregate with id of {}, the snapshot writer is overloaded", aggregateId.getValue());
+        }
+    }
+
+    private BlockingDeque<AID> writerQueueFor(AID aggregateId) {
+        return writerQueues.get(Math.floorMod(aggregateId.hashCode(), writerQueues.size()));
+    }
+
+    private boolean enqueue(AID aggregateId, BlockingDeque<AID> writerQueue) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    writerQueue.putLast(aggregateId);
+                    return true;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            case DROP_OLDEST:
+                while (!writerQueue.offerLast(aggregateId)) {
+                    var oldestAggregateId = writerQueue.pollFirst();
+                    if (oldestAggregateId != null && pendingSnapshots.remove(oldestAggregateId) != null) {
+                        droppedCount.increment();
+                    }
+                }
+                return true;
+            case DROP_NEWEST:
+            default:
+                return writerQueue.offerLast(aggregateId);
+        }
+    }
+
+    private void writeSnapshotsFrom(BlockingDeque<AID> writerQueue) {
+        try {
+            while (!closed || !writerQueue.isEmpty()) {
+                var aggregateId = writerQueue.pollFirst(IDLE_CHECK_INTERVAL_MILLIS, MILLISECONDS);
+                if (aggregateId != null) {
+                    writePendingSnapshotOf(aggregateId);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writePendingSnapshotOf(AID aggregateId) {
+        var snapshot = pendingSnapshots.remove(aggregateId);
+        if (snapshot == null) {
+            return;
+        }
+
+        writtenSnapshots.put(aggregateId, snapshot);
+        try {
+            snapshotRepository.addNewSnapshot(snapshot);
+        } catch (RuntimeException ex) {
+            log.warn("Couldn't write snapshot of aggregate with id of {}. Reason: {}", aggregateId.getValue(), ex.getMessage(), ex);
+        } finally {
+            writtenSnapshots.remove(aggregateId, snapshot);
+        }
+    }
+
+    @Override
+    public Optional<S> findLatestSnapshotFor(AID aggregateId) {
+        requireNonNull(aggregateId, "aggregateId");
+
+        var pendingSnapshot = pendingSnapshots.getOrDefault(aggregateId, writtenSnapshots.get(aggregateId));
+        return pendingSnapshot != null ? Optional.of(pendingSnapshot) : snapshotRepository.findLatestSnapshotFor(aggregateId);
+    }
+
+    @Override
+    public Optional<S> findLatestSnapshotFor(AID aggregateId, Event.SequenceNumber beforeGivenEventSequenceNumber) {
+        return snapshotRepository.findLatestSnapshotFor(aggregateId, beforeGivenEventSequenceNumber);
+    }
+
+    @Override
+    public Optional<S> findLatestSnapshotFor(AID aggregateId, Instant beforeGivenPointInTime) {
+        return snapshotRepository.findLatestSnapshotFor(aggregateId, beforeGivenPointInTime);
+    }
+
+    @Override
+    public Optional<S> findFirstSnapshotFor(AID aggregateId, Instant afterGivenPointInTime) {
+        return snapshotRepository.findFirstSnapshotFor(aggregateId, afterGivenPointInTime);
+    }
+
+    public WriterStats getWriterStats() {
+        return new WriterStats(pendingSnapshots.size(), coalescedCount.sum(), droppedCount.sum());
+    }
+
+    /**
+     * Stops accepting new snapshots and waits for the ones already waiting to be written, but no longer than for
+     * {@value #TERMINATION_TIMEOUT_SECONDS}s - the snapshots still waiting by then are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writers.shutdown();
+
+        try {
+            if (!writers.awaitTermination(TERMINATION_TIMEOUT_SECONDS, SECONDS)) {
+                log.warn("Snapshot writers didn't complete in {}s, dropping {} snapshots waiting to be written",
+                        TERMINATION_TIMEOUT_SECONDS, pendingSnapshots.size());
+                writers.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            writers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * The caller adding a snapshot waits for the queue to have room for it.
+         */
+        BLOCK,
+        /**
+         * The snapshot being added is dropped.
+         */
+        DROP_NEWEST,
+        /**
+         * The snapshot waiting the longest is dropped to make room for the one being added.
+         */
+        DROP_OLDEST
+    }
+
+    @Value
+    public static class WriterSettings {
+        private final int queueCapacity;
+        private final int writersCount;
+        private final OverflowPolicy overflowPolicy;
+
+        public WriterSettings(int queueCapacity, int writersCount, OverflowPolicy overflowPolicy) {
+            requireThat(queueCapacity > 0, "queueCapacity needs to be positive");
+            requireThat(writersCount > 0, "writersCount needs to be positive");
+            this.queueCapacity = queueCapacity;
+            this.writersCount = writersCount;
+            this.overflowPolicy = requireNonNull(overflowPolicy, "overflowPolicy");
+        }
+    }
+
+    @Value
+    public static class WriterStats {
+        private final int pendingCount;
+        private final long coalescedCount;
+        private final long droppedCount;
+    }
+}
@@ -0,0 +1,177 @@
+package com.wnowakcraft.samples.restaurant.core.infrastructure.concurrent;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.wnowakcraft.preconditions.Preconditions.requireNonEmpty;
+import static com.wnowakcraft.preconditions.Preconditions.requireNonNull;
+import static com.wnowakcraft.preconditions.Preconditions.requireThat;
+
+/**
+ * Named {@link Executor} for blocking I/O, so blocking calls never run on the common fork-join pool shared by the whole
+ * JVM. Depending on its settings, and on what the runtime supports, it either starts a virtual thread per task or runs
+ * tasks on a bounded pool of platform threads. A bounded pool with its queue full rejects the task with
+ * {@link RejectedExecutionException}, so async stages submitted to it fail instead of running on the submitting
+ * thread - which may well be an I/O thread, e.g. the one completing Kafka producer callbacks.
+ * <p>
+ * Counts of tasks waiting to be run and being run are tracked the same way for both kinds of executors.
+ */
+@Slf4j
+public class ManagedExecutor implements Executor, AutoCloseable {
+    private static final long TERMINATION_TIMEOUT_SECONDS = 10;
+    private static final Optional<Method> NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutorFactory();
+
+    private final String name;
+    private final ExecutorService executorService;
+    private final boolean virtualThreadPerTask;
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder startedCount = new LongAdder();
+    private final LongAdder completedCount = new LongAdder();
+
+    private ManagedExecutor(String name, ExecutorService executorService, boolean virtualThreadPerTask) {
+        this.name = name;
+        this.executorService = executorService;
+        this.virtualThreadPerTask = virtualThreadPerTask;
+    }
+
+    public static ManagedExecutor create(String name, Settings settings) {
+        requireNonEmpty(name, "name");
+        requireNonNull(settings, "settings");
+
+        if (settings.getThreadModel() == ThreadModel.VIRTUAL_THREAD_PER_TASK_WHEN_SUPPORTED) {
+            var virtualThreadPerTaskExecutor = newVirtualThreadPerTaskExecutor();
+            if (virtualThreadPerTaskExecutor.isPresent()) {
+                return new ManagedExecutor(name, virtualThreadPerTaskExecutor.get(), true);
+            }
+            log.info("Virtual threads aren't supported by the runtime, {} executor uses a bounded pool of {} threads", name, settings.getMaxThreads());
+        }
+
+        var threadPool = new ThreadPoolExecutor(
+                settings.getMaxThreads(), settings.getMaxThreads(), 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(settings.getQueueCapacity()),
+                new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        threadPool.allowCoreThreadTimeOut(true);
+
+        return new ManagedExecutor(name, threadPool, false);
+    }
+
+    public static boolean isVirtualThreadPerTaskSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.isPresent();
+    }
+
+    private static Optional<Method> findVirtualThreadPerTaskExecutorFactory() {
+        try {
+            return Optional.of(Executors.class.getMethod("newVirtualThreadPerTaskExecutor"));
+        } catch (NoSuchMethodException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.flatMap(factory -> {
+            try {
+                return Optional.of((ExecutorService) factory.invoke(null));
+            } catch (ReflectiveOperationException ex) {
+                log.warn("Couldn't create a virtual thread per task executor. Reason: {}", ex.getMessage(), ex);
+                return Optional.empty();
+            }
+        });
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        requireNonNull(task, "task");
+
+        submittedCount.increment();
+        try {
+            executorService.execute(() -> {
+                startedCount.increment();
+                try {
+                    task.run();
+                } finally {
+                    completedCount.increment();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            submittedCount.decrement();
+            throw ex;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isVirtualThreadPerTask() {
+        return virtualThreadPerTask;
+    }
+
+    public ExecutorStats getStats() {
+        var completed = completedCount.sum();
+        var started = startedCount.sum();
+        var submitted = submittedCount.sum();
+
+        return new ExecutorStats(name, Math.max(submitted - started, 0), Math.max(started - completed, 0), completed);
+    }
+
+    /**
+     * Stops accepting new tasks and waits a while for the ones already submitted, interrupting them afterwards.
+     */
+    @Override
+    public void close() {
+        executorService.shutdown();
+
+        try {
+            if (!executorService.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Tasks of {} executor didn't complete in {}s, interrupting them", name, TERMINATION_TIMEOUT_SECONDS);
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public enum ThreadModel {
+        /**
+         * A virtual thread is started for every task when the runtime supports virtual threads, a bounded pool of
+         * platform threads is used otherwise.
+         */
+        VIRTUAL_THREAD_PER_TASK_WHEN_SUPPORTED,
+        /**
+         * Tasks are run on a bounded pool of platform threads.
+         */
+        BOUNDED_PLATFORM_POOL
+    }
+
+    @Value
+    public static class Settings {
+        private final ThreadModel threadModel;
+        private final int maxThreads;
+        private final int queueCapacity;
+
+        public Settings(ThreadModel threadModel, int maxThreads, int queueCapacity) {
+            requireThat(maxThreads > 0, "maxThreads needs to be positive");
+            requireThat(queueCapacity > 0, "queueCapacity needs to be positive");
+            this.threadModel = requireNonNull(threadModel, "threadModel");
+            this.maxThreads = maxThreads;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    @Value
+    public static class ExecutorStats {
+        private final String name;
+        private final long queueDepth;
+        private final long activeCount;
+        private final long completedCount;
+    }
+}
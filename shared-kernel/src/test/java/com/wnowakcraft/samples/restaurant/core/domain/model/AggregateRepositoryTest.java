@@ -13,6 +13,9 @@ import org.mockito.MockitoAnnotations;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Function;
 
 import static com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.Aggregate;
@@ -20,11 +23,16 @@ import static com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData
 import static com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.Snapshot;
 import static com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.*;
 import static java.util.Optional.empty;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 
 class AggregateRepositoryTest {
     private Fixture fixture;
@@ -54,6 +62,20 @@ class AggregateRepositoryTest {
         fixture.andThereShouldBeNoInteractionWithRestoringAggregateDependencies();
     }
 
+    @Test
+    void save_doesNotCopyAggregateState_whenNoSnapshotIsToBeTaken() throws Exception {
+        fixture.givenAn(spy(Aggregate.ofVersion(Aggregate.VERSION_1)));
+        fixture.givenAggregateChangesAreAppendedToEventStoreAndNewAggregateVersionIs(Aggregate.VERSION_2);
+        fixture.givenTakeSnapshotStrategyReturns(false);
+
+        fixture.whenSaveIsCalled();
+
+        fixture.thenReturnedVersionIs(Aggregate.VERSION_2);
+        fixture.thenAggregateSnapshotIsNotCaptured();
+        fixture.thenThereShouldBeNoInteractionWithSnapshotRepository();
+        fixture.andThereShouldBeNoInteractionWithRestoringAggregateDependencies();
+    }
+
     @Test
     void save_storesAggregateChangesIntoEventStore_createsAggregateSnapshot_andReturnsCorrectAggregateVersion() throws Exception {
         fixture.givenAggregateChangesAreAppendedToEventStoreAndNewAggregateVersionIs(Aggregate.VERSION_2);
@@ -67,6 +89,33 @@ class AggregateRepositoryTest {
         fixture.andThereShouldBeNoInteractionWithRestoringAggregateDependencies();
     }
 
+    @Test
+    void save_returnsAggregateVersion_withoutWaitingForSnapshotToBeTaken() throws Exception {
+        fixture.givenAggregateChangesAreAppendedToEventStoreAndNewAggregateVersionIs(Aggregate.VERSION_2);
+        fixture.givenTakeSnapshotStrategyReturns(true);
+        fixture.givenAddingSnapshotBlocks();
+
+        fixture.whenSaveIsCalled();
+
+        fixture.thenReturnedVersionIs(Aggregate.VERSION_2);
+        fixture.thenSnapshotOfAggregateShouldBeTaken();
+        fixture.andAddingSnapshotIsUnblocked();
+        fixture.andThereShouldBeNoInteractionWithRestoringAggregateDependencies();
+    }
+
+    @Test
+    void save_updatesAggregateVersion_andSkipsSnapshotting_whenExecutorRejectsIt() throws Exception {
+        fixture.givenExecutorRejectingAllTasks();
+        fixture.givenAggregateChangesAreAppendedToEventStoreAndNewAggregateVersionIs(Aggregate.VERSION_2);
+
+        fixture.whenSaveIsCalled();
+
+        fixture.thenReturnedVersionIs(Aggregate.VERSION_2);
+        fixture.thenAggregateVersionIsUpdatedTo(Aggregate.VERSION_2);
+        fixture.thenThereShouldBeNoInteractionWithSnapshotRepository();
+        fixture.andThereShouldBeNoInteractionWithRestoringAggregateDependencies();
+    }
+
     @Test
     void getById_returnsAggregateRecreatedFromEvents_whenNoSnapshotIsAvailable() {
         var restoreEvents = List.<Event>of(Aggregate.INIT_EVENT, Aggregate.SAMPLE_EVENT);
@@ -117,6 +166,7 @@ class AggregateRepositoryTest {
     }
 
     private static class Fixture {
+        private static final long ASYNC_TIMEOUT_MILLIS = 1000;
         @Mock private EventStore<Event, Aggregate, AggregateId> eventStore;
         @Mock private SnapshotRepository<ModelTestData.Snapshot, ModelTestData.AggregateId> snapshotRepository;
         @Mock private TakeSnapshotStrategy<Event, Aggregate, Snapshot, AggregateId> takeSnapshotStrategy;
@@ -131,12 +181,22 @@ class AggregateRepositoryTest {
         private Collection<Event> events;
         private Collection<Runnable> interactions = new ArrayList<>();
         private Collection<Object> interactionObjects = new ArrayList<>();
+        private final CountDownLatch addingSnapshotUnblocked = new CountDownLatch(1);
 
         public Fixture() {
             MockitoAnnotations.initMocks(this);
             aggregateRepository =
                     new AggregateRepository<>(
-                            eventStore, snapshotRepository, takeSnapshotStrategy, restoreAggregateFromSnapshot, restoreAggregateFromEvents
+                            eventStore, snapshotRepository, takeSnapshotStrategy, restoreAggregateFromSnapshot, restoreAggregateFromEvents,
+                            ForkJoinPool.commonPool()
+                    );
+        }
+
+        public void givenExecutorRejectingAllTasks() {
+            aggregateRepository =
+                    new AggregateRepository<>(
+                            eventStore, snapshotRepository, takeSnapshotStrategy, restoreAggregateFromSnapshot, restoreAggregateFromEvents,
+                            task -> { throw new RejectedExecutionException("Test executor is full"); }
                     );
         }
 
@@ -197,7 +257,7 @@ class AggregateRepositoryTest {
 
         public void givenTakeSnapshotStrategyReturns(boolean shouldTakeSnapshot) {
             given(takeSnapshotStrategy.shouldTakeNewSnapshot(eq(aggregate), any(Function.class))).willReturn(shouldTakeSnapshot);
-            addInteraction(restoreAggregateFromSnapshot, () -> then(takeSnapshotStrategy).should().shouldTakeNewSnapshot(eq(aggregate), any(Function.class)));
+            addInteraction(restoreAggregateFromSnapshot, () -> then(takeSnapshotStrategy).should(timeout(ASYNC_TIMEOUT_MILLIS)).shouldTakeNewSnapshot(eq(aggregate), any(Function.class)));
         }
 
         public void whenGetByIdIsCalled() {
@@ -209,7 +269,19 @@ class AggregateRepositoryTest {
         }
 
         public void thenSnapshotOfAggregateShouldBeTaken() {
-            then(snapshotRepository).should().addNewSnapshot(aggregate.takeSnapshot());
+            then(snapshotRepository).should(timeout(ASYNC_TIMEOUT_MILLIS)).addNewSnapshot(aggregate.takeSnapshot());
+        }
+
+        public void thenAggregateSnapshotIsNotCaptured() {
+            then(aggregate).should(never()).takeSnapshot();
+        }
+
+        public void givenAddingSnapshotBlocks() {
+            willAnswer(invocation -> addingSnapshotUnblocked.await(5, SECONDS)).given(snapshotRepository).addNewSnapshot(any());
+        }
+
+        public void andAddingSnapshotIsUnblocked() {
+            addingSnapshotUnblocked.countDown();
         }
 
         public void thenThereShouldBeNoInteractionWithSnapshotRepository() {
@@ -0,0 +1,177 @@
+package com.wnowakcraft.samples.restaurant.core.domain.model;
+
+import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate.Version;
+import com.wnowakcraft.samples.restaurant.core.domain.model.AggregateRepository.RestoreAggregateFromEvents;
+import com.wnowakcraft.samples.restaurant.core.domain.model.AggregateRepository.RestoreAggregateFromSnapshot;
+import com.wnowakcraft.samples.restaurant.core.domain.model.CachingAggregateRepository.CacheSettings;
+import com.wnowakcraft.samples.restaurant.core.domain.model.CachingAggregateRepository.CacheStats;
+import com.wnowakcraft.samples.restaurant.core.domain.model.snapshot.TakeSnapshotStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.Aggregate;
+import static com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.Event;
+import static com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.Snapshot;
+import static com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.*;
+import static java.util.Optional.empty;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+class CachingAggregateRepositoryTest {
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture();
+    }
+
+    @Test
+    void getById_replaysOnlyEventsFollowingCachedVersion_whenAggregateHasAlreadyBeenRestored() {
+        fixture.givenAggregateIsRestoredFromAllEventsWithVersion(Aggregate.VERSION_2);
+        fixture.givenNoEventsFollowVersion(Aggregate.VERSION_2);
+        fixture.givenAggregateIsRestoredFromCachedSnapshotWithVersion(Aggregate.VERSION_2);
+
+        fixture.whenGetByIdIsCalled();
+        fixture.whenGetByIdIsCalled();
+
+        fixture.thenSnapshotRepositoryIsAskedForLatestSnapshot(1);
+        fixture.thenAllEventsAreLoaded(1);
+        fixture.thenCacheStatsAre(new CacheStats(1, 1, 0, 0));
+    }
+
+    @Test
+    void getById_usesAggregateCachedOnSave() throws Exception {
+        fixture.givenAggregateIsAppendedWithNewVersion(Aggregate.VERSION_2);
+        fixture.givenNoEventsFollowVersion(Aggregate.VERSION_2);
+        fixture.givenAggregateIsRestoredFromCachedSnapshotWithVersion(Aggregate.VERSION_2);
+
+        fixture.whenSaveIsCalled();
+        fixture.whenGetByIdIsCalled();
+
+        fixture.thenSnapshotRepositoryIsAskedForLatestSnapshot(0);
+        fixture.thenAllEventsAreLoaded(0);
+        fixture.thenCacheStatsAre(new CacheStats(1, 0, 0, 0));
+    }
+
+    @Test
+    void save_invalidatesCachedAggregate_whenAppendingFails() throws Exception {
+        fixture.givenAggregateIsRestoredFromAllEventsWithVersion(Aggregate.VERSION_1);
+        fixture.whenGetByIdIsCalled();
+        fixture.givenAppendingFails();
+
+        assertThatThrownBy(fixture::whenSaveIsCalled).isInstanceOf(ExecutionException.class);
+        fixture.whenGetByIdIsCalled();
+
+        fixture.thenAllEventsAreLoaded(2);
+        fixture.thenCacheStatsAre(new CacheStats(0, 2, 0, 1));
+    }
+
+    @Test
+    void save_invalidatesCachedAggregate_whenAppendingIsRejectedStraightAway() {
+        fixture.givenAggregateIsRestoredFromAllEventsWithVersion(Aggregate.VERSION_1);
+        fixture.whenGetByIdIsCalled();
+        fixture.givenAppendingIsRejected();
+
+        assertThatThrownBy(fixture::whenSaveIsCalled).isInstanceOf(IllegalStateException.class);
+        fixture.whenGetByIdIsCalled();
+
+        fixture.thenAllEventsAreLoaded(2);
+        fixture.thenCacheStatsAre(new CacheStats(0, 2, 0, 1));
+    }
+
+    @Test
+    void getById_restoresAggregateFromScratch_whenRestoredVersionPrecedesCachedOne() {
+        fixture.givenAggregateIsRestoredFromAllEventsWithVersion(Aggregate.VERSION_2);
+        fixture.givenNoEventsFollowVersion(Aggregate.VERSION_2);
+        fixture.givenAggregateIsRestoredFromCachedSnapshotWithVersion(Aggregate.VERSION_1);
+
+        fixture.whenGetByIdIsCalled();
+        fixture.whenGetByIdIsCalled();
+
+        fixture.thenAllEventsAreLoaded(2);
+        fixture.thenCacheStatsAre(new CacheStats(1, 1, 0, 1));
+    }
+
+    private static class Fixture {
+        private static final List<Event> ALL_EVENTS = List.of(Aggregate.INIT_EVENT, Aggregate.SAMPLE_EVENT);
+
+        @Mock private EventStore<Event, Aggregate, AggregateId> eventStore;
+        @Mock private SnapshotRepository<Snapshot, AggregateId> snapshotRepository;
+        @Mock private TakeSnapshotStrategy<Event, Aggregate, Snapshot, AggregateId> takeSnapshotStrategy;
+        @Mock private RestoreAggregateFromSnapshot<Event, Aggregate, Snapshot, AggregateId> restoreAggregateFromSnapshot;
+        @Mock private RestoreAggregateFromEvents<Event, Aggregate, AggregateId> restoreAggregateFromEvents;
+        private final CachingAggregateRepository<Event, Aggregate, Snapshot, AggregateId> aggregateRepository;
+        private final Aggregate aggregate = Aggregate.ofVersion(Aggregate.VERSION_1);
+
+        Fixture() {
+            MockitoAnnotations.initMocks(this);
+            aggregateRepository = new CachingAggregateRepository<>(
+                    eventStore, snapshotRepository, takeSnapshotStrategy, restoreAggregateFromSnapshot, restoreAggregateFromEvents,
+                    ForkJoinPool.commonPool(), new CacheSettings(10, Duration.ofMinutes(1))
+            );
+        }
+
+        void givenAggregateIsRestoredFromAllEventsWithVersion(Version version) {
+            given(snapshotRepository.findLatestSnapshotFor(aggregate.getId())).willReturn(empty());
+            given(eventStore.loadAllEventsFor(aggregate.getId())).willReturn(new EventStream(ALL_EVENTS, version));
+            given(restoreAggregateFromEvents.restore(ALL_EVENTS, version)).willReturn(Aggregate.ofVersion(version));
+        }
+
+        void givenNoEventsFollowVersion(Version version) {
+            given(eventStore.loadEventsFor(aggregate.getId(), version.nextVersion()))
+                    .willReturn(new EventStream(Collections.emptyList(), Version.NONE));
+        }
+
+        void givenAggregateIsRestoredFromCachedSnapshotWithVersion(Version version) {
+            given(restoreAggregateFromSnapshot.restore(any(), any(), any())).willReturn(Aggregate.ofVersion(version));
+        }
+
+        void givenAggregateIsAppendedWithNewVersion(Version newVersion) {
+            given(eventStore.append(aggregate.getId(), aggregate.getVersion(), aggregate.getChanges()))
+                    .willReturn(CompletableFuture.completedFuture(newVersion));
+        }
+
+        void givenAppendingFails() {
+            given(eventStore.append(aggregate.getId(), aggregate.getVersion(), aggregate.getChanges()))
+                    .willReturn(CompletableFuture.failedFuture(new IllegalStateException("Concurrent append")));
+        }
+
+        void givenAppendingIsRejected() {
+            given(eventStore.append(aggregate.getId(), aggregate.getVersion(), aggregate.getChanges()))
+                    .willThrow(new IllegalStateException("Concurrent append"));
+        }
+
+        void whenGetByIdIsCalled() {
+            aggregateRepository.getById(aggregate.getId());
+        }
+
+        void whenSaveIsCalled() throws Exception {
+            aggregateRepository.save(aggregate).get();
+        }
+
+        void thenSnapshotRepositoryIsAskedForLatestSnapshot(int times) {
+            then(snapshotRepository).should(times(times)).findLatestSnapshotFor(aggregate.getId());
+        }
+
+        void thenAllEventsAreLoaded(int times) {
+            then(eventStore).should(times(times)).loadAllEventsFor(aggregate.getId());
+        }
+
+        void thenCacheStatsAre(CacheStats expectedCacheStats) {
+            assertThat(aggregateRepository.getCacheStats()).isEqualTo(expectedCacheStats);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.wnowakcraft.samples.restaurant.core.domain.model;
+
+import com.wnowakcraft.samples.restaurant.core.domain.model.DomainBoundBusinessIdTest.TestId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing ids restored from messages, compared with matching them against a regex built for every id, as was
+ * done before. Run it with the main method, e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DomainBoundBusinessIdBenchmark {
+    private String idValue;
+
+    @Setup
+    public void setUp() {
+        idValue = new TestId().getValue();
+    }
+
+    @Benchmark
+    public DomainBoundBusinessId parseId() {
+        return new TestId(idValue);
+    }
+
+    @Benchmark
+    public boolean matchIdAgainstRegex() {
+        var idPrefix = TestId.DOMAIN_NAME + "-" + TestId.DOMAIN_OBJECT_NAME + "-" + TestId.DOMAIN_OBJECT_TYPE;
+        return idValue.matches(idPrefix + "-\\w{8}-\\w{4}-\\w{4}");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DomainBoundBusinessIdBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,64 @@
+package com.wnowakcraft.samples.restaurant.core.domain.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class DomainBoundBusinessIdTest {
+
+    @Test
+    void generatedIdIsValid() {
+        var generatedId = new TestId();
+
+        assertThat(generatedId.getValue()).matches(DomainBoundBusinessId.STRING_ID_REGEX);
+        assertThat(new TestId(generatedId.getValue())).isEqualTo(generatedId);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "DOMAIN-OBJECT-T-3df56c04-0bf9-4caa",
+            "DOMAIN-OBJECT-T-3DF56C04-0BF9-4CAA",
+            "DOMAIN-OBJECT-T-3df_6c04-0bf9-4ca_"
+    })
+    void acceptsIdMatchingIdRegex(String idValue) {
+        assertThat(new TestId(idValue).getValue()).isEqualTo(idValue);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "DOMAIN-OBJECT-T-3df56c04-0bf9-4ca",
+            "DOMAIN-OBJECT-T-3df56c04-0bf9-4caaa",
+            "DOMAIN-OBJECT-T-3df56c040-bf9-4caa",
+            "DOMAIN-OBJECT-T-3df56c04-0bf9+4caa",
+            "DOMAIN-OBJECT-T-3df56c04-0bf9-4ca!",
+            "DOMAIN-OBJECT-T_3df56c04-0bf9-4caa",
+            "DOMAIN_OBJECT-T-3df56c04-0bf9-4caa",
+            "DOMAIN-OBJECT_T-3df56c04-0bf9-4caa",
+            "DOMAIN-OBJECTS-3df56c04-0bf9-4caa",
+            "DOMAINX-OBJECT-T-3df56c04-0bf9-4caa",
+            "DOMAIN-OBJECT-X-3df56c04-0bf9-4caa"
+    })
+    void rejectsIdNotMatchingIdRegex(String idValue) {
+        var exception = catchThrowable(() -> new TestId(idValue));
+
+        assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    static final class TestId extends DomainBoundBusinessId {
+        static final String DOMAIN_NAME = "DOMAIN";
+        static final String DOMAIN_OBJECT_NAME = "OBJECT";
+        static final char DOMAIN_OBJECT_TYPE = 'T';
+
+        TestId() {
+            super(DOMAIN_NAME, DOMAIN_OBJECT_NAME, DOMAIN_OBJECT_TYPE);
+        }
+
+        TestId(String idValue) {
+            super(idValue, DOMAIN_NAME, DOMAIN_OBJECT_NAME, DOMAIN_OBJECT_TYPE);
+        }
+    }
+}
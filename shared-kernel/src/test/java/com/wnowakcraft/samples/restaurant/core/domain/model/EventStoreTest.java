@@ -0,0 +1,68 @@
+package com.wnowakcraft.samples.restaurant.core.domain.model;
+
+import com.wnowakcraft.samples.restaurant.core.domain.model.EventStore.EventStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.Aggregate;
+import static com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.AggregateId;
+import static com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.Event;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class EventStoreTest {
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture();
+    }
+
+    @Test
+    void loadsEventStreamsOfAllAggregates_inTheOrderOfGivenIds() {
+        fixture.givenEventStreamsOfBothAggregates();
+
+        var eventStreams = fixture.whenEventsAreLoadedFor(Fixture.SECOND_ID, Fixture.FIRST_ID);
+
+        assertThat(eventStreams).containsExactly(
+                Map.entry(Fixture.SECOND_ID, fixture.secondEventStream),
+                Map.entry(Fixture.FIRST_ID, fixture.firstEventStream)
+        );
+    }
+
+    @Test
+    void loadsEventsOfEachAggregateOnlyOnce_whenItsIdIsGivenMoreThanOnce() {
+        fixture.givenEventStreamsOfBothAggregates();
+
+        var eventStreams = fixture.whenEventsAreLoadedFor(Fixture.FIRST_ID, Fixture.SECOND_ID, Fixture.FIRST_ID);
+
+        assertThat(eventStreams).containsOnlyKeys(Fixture.FIRST_ID, Fixture.SECOND_ID);
+        then(fixture.eventStore).should().loadAllEventsFor(Fixture.FIRST_ID);
+        then(fixture.eventStore).should().loadAllEventsFor(Fixture.SECOND_ID);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static class Fixture {
+        private static final AggregateId FIRST_ID = AggregateId.any();
+        private static final AggregateId SECOND_ID = AggregateId.any();
+
+        private final EventStore<Event, Aggregate, AggregateId> eventStore = mock(EventStore.class, CALLS_REAL_METHODS);
+        private final EventStream<Event> firstEventStream = mock(EventStream.class);
+        private final EventStream<Event> secondEventStream = mock(EventStream.class);
+
+        void givenEventStreamsOfBothAggregates() {
+            doReturn(firstEventStream).when(eventStore).loadAllEventsFor(FIRST_ID);
+            doReturn(secondEventStream).when(eventStore).loadAllEventsFor(SECOND_ID);
+        }
+
+        Map<AggregateId, EventStream<Event>> whenEventsAreLoadedFor(AggregateId... aggregateIds) {
+            return eventStore.loadAllEventsFor(List.of(aggregateIds));
+        }
+    }
+}
@@ -16,6 +16,10 @@ public class ModelTestData {
         public static final String AGGREGATE_NAME = "testAggregate";
         public static final AggregateId DEFAULT_ONE = new AggregateId(DOMAIN_NAME, AGGREGATE_NAME);
 
+        public static AggregateId any() {
+            return new AggregateId(DOMAIN_NAME, AGGREGATE_NAME);
+        }
+
         private AggregateId(String domainName, String domainObjectName) {
             super(domainName, domainObjectName);
         }
@@ -74,6 +78,10 @@ public class ModelTestData {
             return new Snapshot(Snapshot.Id.any(), AggregateId.DEFAULT_ONE, INSTANT_NOW, version);
         }
 
+        public static Snapshot of(AggregateId aggregateId, Version version) {
+            return new Snapshot(Snapshot.Id.any(), aggregateId, INSTANT_NOW, version);
+        }
+
         @Override
         public Id getSnapshotId() {
             return snapshotId;
@@ -83,6 +83,57 @@ class TakeSnapshotEveryVersionThresholdStrategyTest {
         assertThat(shouldTakeSnapshot).isFalse();
     }
 
+    @Test
+    void shouldUseSnapshotVersionFromRegistry_insteadOfAskingPreviousSnapshotProvider() {
+        var snapshotVersionRegistry = new SnapshotVersionRegistry<AggregateId>(10);
+        var aggregate = Aggregate.ofVersion(Aggregate.Version.of(24));
+        snapshotVersionRegistry.recordSnapshotOf(aggregate.getId(), Aggregate.Version.of(14));
+        var strategy = new TakeSnapshotEveryVersionThresholdStrategy<Event, Aggregate, Snapshot, AggregateId>(VERSION_THRESHOLD, snapshotVersionRegistry);
+
+        var shouldTakeSnapshot = strategy.shouldTakeNewSnapshot(aggregate, failingSnapshotProvider());
+
+        assertThat(shouldTakeSnapshot).isTrue();
+    }
+
+    @Test
+    void shouldRememberSnapshotVersionFromPreviousSnapshotProvider_whenRegistryDoesNotKnowIt() {
+        var snapshotVersionRegistry = new SnapshotVersionRegistry<AggregateId>(10);
+        var strategy = new TakeSnapshotEveryVersionThresholdStrategy<Event, Aggregate, Snapshot, AggregateId>(VERSION_THRESHOLD, snapshotVersionRegistry);
+
+        strategy.shouldTakeNewSnapshot(Aggregate.ofVersion(Aggregate.Version.of(20)), providerOf(Snapshot.ofVersion(Aggregate.Version.of(15))));
+        assertThat(snapshotVersionRegistry.getLastSnapshotVersionOf(AggregateId.DEFAULT_ONE)).contains(Aggregate.Version.of(15));
+        var shouldTakeSnapshot = strategy.shouldTakeNewSnapshot(Aggregate.ofVersion(Aggregate.Version.of(25)), failingSnapshotProvider());
+
+        assertThat(shouldTakeSnapshot).isTrue();
+    }
+
+    @Test
+    void shouldRememberThatThereIsNoSnapshot_whenPreviousSnapshotProviderFindsNone() {
+        var snapshotVersionRegistry = new SnapshotVersionRegistry<AggregateId>(10);
+        var strategy = new TakeSnapshotEveryVersionThresholdStrategy<Event, Aggregate, Snapshot, AggregateId>(VERSION_THRESHOLD, snapshotVersionRegistry);
+
+        strategy.shouldTakeNewSnapshot(Aggregate.ofVersion(Aggregate.Version.of(5)), noSnapshotProvider());
+        var shouldTakeSnapshot = strategy.shouldTakeNewSnapshot(Aggregate.ofVersion(Aggregate.Version.of(10)), failingSnapshotProvider());
+
+        assertThat(shouldTakeSnapshot).isTrue();
+    }
+
+    @Test
+    void shouldRememberVersionOfSnapshotItDecidedToBeTaken() {
+        var snapshotVersionRegistry = new SnapshotVersionRegistry<AggregateId>(10);
+        var strategy = new TakeSnapshotEveryVersionThresholdStrategy<Event, Aggregate, Snapshot, AggregateId>(VERSION_THRESHOLD, snapshotVersionRegistry);
+
+        strategy.shouldTakeNewSnapshot(Aggregate.ofVersion(Aggregate.Version.of(25)), providerOf(Snapshot.ofVersion(Aggregate.Version.of(15))));
+        var shouldTakeSnapshot = strategy.shouldTakeNewSnapshot(Aggregate.ofVersion(Aggregate.Version.of(30)), failingSnapshotProvider());
+
+        assertThat(shouldTakeSnapshot).isFalse();
+        assertThat(snapshotVersionRegistry.getLastSnapshotVersionOf(AggregateId.DEFAULT_ONE)).contains(Aggregate.Version.of(25));
+    }
+
+    private Function<Aggregate, Optional<Snapshot>> failingSnapshotProvider() {
+        return a -> { throw new AssertionError("The previous snapshot provider shouldn't be asked"); };
+    }
+
     @Test
     void verifiesNullPointerContractOfPublicInstanceMethods() {
         new NullPointerTester().testAllPublicInstanceMethods(takeSnapshotStrategy);
@@ -0,0 +1,48 @@
+package com.wnowakcraft.samples.restaurant.core.domain.model.snapshot;
+
+import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate.Version;
+import com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.AggregateId;
+import com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.Snapshot;
+import com.wnowakcraft.samples.restaurant.core.domain.model.SnapshotRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+
+class VersionTrackingSnapshotRepositoryTest {
+    private static final AggregateId AGGREGATE_ID = AggregateId.any();
+
+    @SuppressWarnings("unchecked")
+    private final SnapshotRepository<Snapshot, AggregateId> snapshotRepository = mock(SnapshotRepository.class);
+    private final SnapshotVersionRegistry<AggregateId> snapshotVersionRegistry = new SnapshotVersionRegistry<>(10);
+    private final VersionTrackingSnapshotRepository<Snapshot, AggregateId> versionTrackingSnapshotRepository =
+            new VersionTrackingSnapshotRepository<>(snapshotRepository, snapshotVersionRegistry);
+
+    @Test
+    void recordsVersionOfLatestSnapshotFound_orThatThereIsNone() {
+        var otherAggregateId = AggregateId.any();
+        given(snapshotRepository.findLatestSnapshotFor(AGGREGATE_ID)).willReturn(Optional.of(Snapshot.of(AGGREGATE_ID, Version.of(7))));
+        given(snapshotRepository.findLatestSnapshotFor(otherAggregateId)).willReturn(Optional.empty());
+
+        versionTrackingSnapshotRepository.findLatestSnapshotFor(AGGREGATE_ID);
+        versionTrackingSnapshotRepository.findLatestSnapshotFor(otherAggregateId);
+
+        assertThat(snapshotVersionRegistry.getLastSnapshotVersionOf(AGGREGATE_ID)).contains(Version.of(7));
+        assertThat(snapshotVersionRegistry.getLastSnapshotVersionOf(otherAggregateId)).contains(Version.NONE);
+    }
+
+    @Test
+    void recordsVersionOfAddedSnapshot_neverMovingRecordedVersionBackwards() {
+        var snapshot = Snapshot.of(AGGREGATE_ID, Version.of(9));
+
+        versionTrackingSnapshotRepository.addNewSnapshot(snapshot);
+        versionTrackingSnapshotRepository.addNewSnapshot(Snapshot.of(AGGREGATE_ID, Version.of(4)));
+
+        then(snapshotRepository).should().addNewSnapshot(snapshot);
+        assertThat(snapshotVersionRegistry.getLastSnapshotVersionOf(AGGREGATE_ID)).contains(Version.of(9));
+    }
+}
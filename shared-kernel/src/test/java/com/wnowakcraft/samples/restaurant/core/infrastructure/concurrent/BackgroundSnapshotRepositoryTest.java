@@ -0,0 +1,138 @@
+package com.wnowakcraft.samples.restaurant.core.infrastructure.concurrent;
+
+import com.wnowakcraft.samples.restaurant.core.domain.model.Aggregate.Version;
+import com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.AggregateId;
+import com.wnowakcraft.samples.restaurant.core.domain.model.ModelTestData.Snapshot;
+import com.wnowakcraft.samples.restaurant.core.domain.model.SnapshotRepository;
+import com.wnowakcraft.samples.restaurant.core.infrastructure.concurrent.BackgroundSnapshotRepository.OverflowPolicy;
+import com.wnowakcraft.samples.restaurant.core.infrastructure.concurrent.BackgroundSnapshotRepository.WriterSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.willAnswer;
+
+class BackgroundSnapshotRepositoryTest {
+    private Fixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new Fixture();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.closeRepository();
+    }
+
+    @Test
+    void returnsSnapshotWaitingToBeWritten_asLatestSnapshotOfItsAggregate() throws InterruptedException {
+        fixture.givenRepositoryWith(OverflowPolicy.BLOCK);
+        fixture.givenWriterIsBusyWritingSnapshotOf(Fixture.BUSY_AGGREGATE_ID);
+
+        var snapshot = fixture.whenSnapshotIsAdded(Fixture.AGGREGATE_ID, 5);
+
+        assertThat(fixture.repository.findLatestSnapshotFor(Fixture.AGGREGATE_ID)).contains(snapshot);
+    }
+
+    @Test
+    void writesJustTheNewestOfSnapshotsWaitingForTheSameAggregate() throws InterruptedException {
+        fixture.givenRepositoryWith(OverflowPolicy.BLOCK);
+        var busySnapshot = fixture.givenWriterIsBusyWritingSnapshotOf(Fixture.BUSY_AGGREGATE_ID);
+
+        fixture.whenSnapshotIsAdded(Fixture.AGGREGATE_ID, 5);
+        var newestSnapshot = fixture.whenSnapshotIsAdded(Fixture.AGGREGATE_ID, 7);
+        fixture.whenSnapshotIsAdded(Fixture.AGGREGATE_ID, 6);
+        fixture.closeRepository();
+
+        fixture.thenWrittenSnapshotsAre(busySnapshot, newestSnapshot);
+        assertThat(fixture.repository.getWriterStats().getCoalescedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void dropsSnapshotBeingAdded_whenQueueIsFull_andDropNewestPolicyIsUsed() throws InterruptedException {
+        fixture.givenRepositoryWith(OverflowPolicy.DROP_NEWEST);
+        var busySnapshot = fixture.givenWriterIsBusyWritingSnapshotOf(Fixture.BUSY_AGGREGATE_ID);
+
+        var queuedSnapshot = fixture.whenSnapshotIsAdded(Fixture.AGGREGATE_ID, 5);
+        fixture.whenSnapshotIsAdded(Fixture.OTHER_AGGREGATE_ID, 3);
+        fixture.closeRepository();
+
+        fixture.thenWrittenSnapshotsAre(busySnapshot, queuedSnapshot);
+        assertThat(fixture.repository.getWriterStats().getDroppedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void dropsOldestWaitingSnapshot_whenQueueIsFull_andDropOldestPolicyIsUsed() throws InterruptedException {
+        fixture.givenRepositoryWith(OverflowPolicy.DROP_OLDEST);
+        var busySnapshot = fixture.givenWriterIsBusyWritingSnapshotOf(Fixture.BUSY_AGGREGATE_ID);
+
+        fixture.whenSnapshotIsAdded(Fixture.AGGREGATE_ID, 5);
+        var newestSnapshot = fixture.whenSnapshotIsAdded(Fixture.OTHER_AGGREGATE_ID, 3);
+        fixture.closeRepository();
+
+        fixture.thenWrittenSnapshotsAre(busySnapshot, newestSnapshot);
+        assertThat(fixture.repository.findLatestSnapshotFor(Fixture.AGGREGATE_ID)).isEmpty();
+    }
+
+    private static class Fixture {
+        private static final AggregateId BUSY_AGGREGATE_ID = AggregateId.any();
+        private static final AggregateId AGGREGATE_ID = AggregateId.any();
+        private static final AggregateId OTHER_AGGREGATE_ID = AggregateId.any();
+        private static final int QUEUE_CAPACITY = 1;
+        private static final int WRITERS_COUNT = 1;
+
+        @Mock private SnapshotRepository<Snapshot, AggregateId> snapshotRepository;
+        private final List<Snapshot> writtenSnapshots = new CopyOnWriteArrayList<>();
+        private final CountDownLatch writingStarted = new CountDownLatch(1);
+        private final CountDownLatch writingReleased = new CountDownLatch(1);
+        private BackgroundSnapshotRepository<Snapshot, AggregateId> repository;
+
+        Fixture() {
+            MockitoAnnotations.initMocks(this);
+            willAnswer(invocation -> {
+                writtenSnapshots.add(invocation.getArgument(0));
+                writingStarted.countDown();
+                return writingReleased.await(5, SECONDS);
+            }).given(snapshotRepository).addNewSnapshot(any());
+        }
+
+        void givenRepositoryWith(OverflowPolicy overflowPolicy) {
+            repository = new BackgroundSnapshotRepository<>(
+                    snapshotRepository, new WriterSettings(QUEUE_CAPACITY, WRITERS_COUNT, overflowPolicy)
+            );
+        }
+
+        Snapshot givenWriterIsBusyWritingSnapshotOf(AggregateId aggregateId) throws InterruptedException {
+            var snapshot = whenSnapshotIsAdded(aggregateId, 1);
+            assertThat(writingStarted.await(5, SECONDS)).isTrue();
+            return snapshot;
+        }
+
+        Snapshot whenSnapshotIsAdded(AggregateId aggregateId, long version) {
+            var snapshot = Snapshot.of(aggregateId, Version.of(version));
+            repository.addNewSnapshot(snapshot);
+            return snapshot;
+        }
+
+        void thenWrittenSnapshotsAre(Snapshot... expectedSnapshots) {
+            assertThat(writtenSnapshots).containsExactly(expectedSnapshots);
+        }
+
+        void closeRepository() {
+            writingReleased.countDown();
+            if (repository != null) {
+                repository.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.wnowakcraft.samples.restaurant.core.infrastructure.concurrent;
+
+import com.wnowakcraft.samples.restaurant.core.infrastructure.concurrent.ManagedExecutor.Settings;
+import com.wnowakcraft.samples.restaurant.core.infrastructure.concurrent.ManagedExecutor.ThreadModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ManagedExecutorTest {
+
+    @Test
+    void runsTasksOnNamedThreadsOfBoundedPool() {
+        try (var executor = ManagedExecutor.create("test-executor", new Settings(ThreadModel.BOUNDED_PLATFORM_POOL, 2, 10))) {
+            var threadName = CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(), executor).join();
+
+            assertThat(executor.isVirtualThreadPerTask()).isFalse();
+            assertThat(threadName).startsWith("test-executor-");
+        }
+    }
+
+    @Test
+    void fallsBackToBoundedPool_whenVirtualThreadsAreNotSupported() {
+        try (var executor = ManagedExecutor.create("test-executor", new Settings(ThreadModel.VIRTUAL_THREAD_PER_TASK_WHEN_SUPPORTED, 2, 10))) {
+            assertThat(executor.isVirtualThreadPerTask()).isEqualTo(ManagedExecutor.isVirtualThreadPerTaskSupported());
+        }
+    }
+
+    @Test
+    void rejectsTask_andFailsAsyncStageSubmittedToIt_whenQueueIsFull() {
+        var taskUnblocked = new CountDownLatch(1);
+
+        try (var executor = ManagedExecutor.create("test-executor", new Settings(ThreadModel.BOUNDED_PLATFORM_POOL, 1, 1))) {
+            executor.execute(() -> awaitQuietly(taskUnblocked));
+            executor.execute(() -> awaitQuietly(taskUnblocked));
+
+            assertThatThrownBy(() -> executor.execute(() -> {})).isInstanceOf(RejectedExecutionException.class);
+            var asyncStage = CompletableFuture.completedFuture(null).thenRunAsync(() -> {}, executor);
+
+            assertThat(asyncStage).hasFailedWithThrowableThat().isInstanceOf(RejectedExecutionException.class);
+            var stats = executor.getStats();
+            assertThat(stats.getName()).isEqualTo("test-executor");
+            assertThat(stats.getQueueDepth() + stats.getActiveCount()).isEqualTo(2);
+            assertThat(stats.getCompletedCount()).isZero();
+            taskUnblocked.countDown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}